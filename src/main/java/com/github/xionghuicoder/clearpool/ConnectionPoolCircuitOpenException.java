@@ -0,0 +1,28 @@
+package com.github.xionghuicoder.clearpool;
+
+/**
+ * 新建连接连续失败后熔断期间的异常类
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ConnectionPoolCircuitOpenException extends ConnectionPoolException {
+  private static final long serialVersionUID = -3270915846221178457L;
+
+  public ConnectionPoolCircuitOpenException() {
+    super();
+  }
+
+  public ConnectionPoolCircuitOpenException(String message) {
+    super(message);
+  }
+
+  public ConnectionPoolCircuitOpenException(Throwable cause) {
+    super(cause);
+  }
+
+  public ConnectionPoolCircuitOpenException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
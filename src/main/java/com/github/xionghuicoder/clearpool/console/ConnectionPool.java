@@ -149,7 +149,7 @@ class ConnectionPool implements ConnectionPoolMBean {
   public int get21_PoolSize() {
     PoolInfo poolInfo = this.poolInfoHolder.get();
     if (poolInfo == null) {
-      poolInfo = new PoolInfo(this.pool.getPoolSize(), this.pool.getConnectionChain().size());
+      poolInfo = new PoolInfo(this.pool.getPoolSize(), this.pool.getIdleSize());
       this.poolInfoHolder.set(poolInfo);
     }
     int poolSize = poolInfo.getPoolSize();
@@ -163,7 +163,7 @@ class ConnectionPool implements ConnectionPoolMBean {
   public int get22_ConnectionUsing() {
     PoolInfo poolInfo = this.poolInfoHolder.get();
     if (poolInfo == null) {
-      poolInfo = new PoolInfo(this.pool.getPoolSize(), this.pool.getConnectionChain().size());
+      poolInfo = new PoolInfo(this.pool.getPoolSize(), this.pool.getIdleSize());
       this.poolInfoHolder.set(poolInfo);
     }
     int connectionUsing = poolInfo.getConnectionUsing();
@@ -177,7 +177,7 @@ class ConnectionPool implements ConnectionPoolMBean {
   public int get23_ConnectionLeft() {
     PoolInfo poolInfo = this.poolInfoHolder.get();
     if (poolInfo == null) {
-      poolInfo = new PoolInfo(this.pool.getPoolSize(), this.pool.getConnectionChain().size());
+      poolInfo = new PoolInfo(this.pool.getPoolSize(), this.pool.getIdleSize());
       this.poolInfoHolder.set(poolInfo);
     }
     int connectionLeft = poolInfo.getConnectionLeft();
@@ -187,6 +187,248 @@ class ConnectionPool implements ConnectionPoolMBean {
     return connectionLeft;
   }
 
+  @Override
+  public boolean is24_LockFree() {
+    return this.pool.getCfgVO().isLockFree();
+  }
+
+  @Override
+  public boolean is25_ThreadAffinity() {
+    return this.pool.getCfgVO().isThreadAffinity();
+  }
+
+  @Override
+  public long get26_AffinityHitCount() {
+    return this.pool.getAffinityHitCount();
+  }
+
+  @Override
+  public long get27_AffinityMissCount() {
+    return this.pool.getAffinityMissCount();
+  }
+
+  @Override
+  public String get28_AffinityHitRate() {
+    long hit = this.pool.getAffinityHitCount();
+    long total = hit + this.pool.getAffinityMissCount();
+    if (total == 0) {
+      return "-";
+    }
+    return hit * 100 / total + "%";
+  }
+
+  @Override
+  public boolean is29_Striped() {
+    return this.pool.getCfgVO().isStriped();
+  }
+
+  @Override
+  public int get30_StripeCount() {
+    return this.pool.getCfgVO().getStripeCount();
+  }
+
+  @Override
+  public boolean is31_Fair() {
+    return this.pool.getCfgVO().isFair();
+  }
+
+  @Override
+  public int get32_WaiterSize() {
+    return this.pool.getWaiterSize();
+  }
+
+  @Override
+  public long get33_OldestWaitMillis() {
+    return this.pool.getOldestWaitMillis();
+  }
+
+  @Override
+  public String get34_StartupMode() {
+    return this.pool.getCfgVO().getStartupMode();
+  }
+
+  @Override
+  public long get35_StartupMillis() {
+    return this.pool.getStartupMillis();
+  }
+
+  @Override
+  public boolean is36_Adaptive() {
+    return this.pool.getCfgVO().isAdaptive();
+  }
+
+  @Override
+  public int get37_TargetPoolSize() {
+    return this.pool.getTargetPoolSize();
+  }
+
+  @Override
+  public String get38_BorrowRate() {
+    return String.format("%.2f/s", this.pool.getBorrowRate());
+  }
+
+  @Override
+  public String get39_AvgHoldMillis() {
+    return String.format("%.2fms", this.pool.getHoldMillis());
+  }
+
+  @Override
+  public String get40_AvgWaitMillis() {
+    return String.format("%.2fms", this.pool.getWaitMillis());
+  }
+
+  @Override
+  public String get41_LastSizingDecision() {
+    return this.pool.getLastSizingDecision();
+  }
+
+  @Override
+  public long get42_ValidationWindow() {
+    return this.pool.getCfgVO().getValidationWindow();
+  }
+
+  @Override
+  public long get43_ValidationCount() {
+    return this.pool.getValidationCount();
+  }
+
+  @Override
+  public long get44_ValidationSkipCount() {
+    return this.pool.getValidationSkipCount();
+  }
+
+  @Override
+  public String get45_ValidationSkipRate() {
+    long skip = this.pool.getValidationSkipCount();
+    long total = skip + this.pool.getValidationCount();
+    if (total == 0) {
+      return "-";
+    }
+    return skip * 100 / total + "%";
+  }
+
+  @Override
+  public long get46_ValidationFailCount() {
+    return this.pool.getValidationFailCount();
+  }
+
+  @Override
+  public boolean is47_OptimisticValidation() {
+    return this.pool.getCfgVO().isOptimisticValidation();
+  }
+
+  @Override
+  public long get48_OptimisticRetryCount() {
+    return this.pool.getOptimisticRetryCount();
+  }
+
+  @Override
+  public String get49_CircuitState() {
+    return this.pool.getCircuitState();
+  }
+
+  @Override
+  public int get50_ConsecutiveCreateFailures() {
+    return this.pool.getConsecutiveCreateFailures();
+  }
+
+  @Override
+  public String get51_CircuitRetryAfter() {
+    long retryAfter = this.pool.getCircuitRetryAfterMillis();
+    return retryAfter < 0 ? "-" : retryAfter + "ms";
+  }
+
+  @Override
+  public long get52_CircuitOpenCount() {
+    return this.pool.getCircuitOpenCount();
+  }
+
+  @Override
+  public long get53_CircuitRejectCount() {
+    return this.pool.getCircuitRejectCount();
+  }
+
+  @Override
+  public String get54_CreateRate() {
+    double rate = this.pool.getCreateRate();
+    return rate > 0 ? String.format("%.2f/s", rate) : "-";
+  }
+
+  @Override
+  public long get55_CreateThrottledCount() {
+    return this.pool.getCreateThrottledCount();
+  }
+
+  @Override
+  public long get56_MaxLifetime() {
+    return this.pool.getCfgVO().getMaxLifetime();
+  }
+
+  @Override
+  public int get57_MaxUses() {
+    return this.pool.getCfgVO().getMaxUses();
+  }
+
+  @Override
+  public long get58_RetiredCount() {
+    return this.pool.getRetiredCount();
+  }
+
+  @Override
+  public long get59_StateMatchCount() {
+    return this.pool.getStateMatchCount();
+  }
+
+  @Override
+  public long get60_StateSwitchCount() {
+    return this.pool.getStateSwitchCount();
+  }
+
+  @Override
+  public int get61_StatementCacheSize() {
+    return this.pool.getCfgVO().getStatementCacheSize();
+  }
+
+  @Override
+  public long get62_StatementCacheMemory() {
+    return this.pool.getCfgVO().getStatementCacheMemory();
+  }
+
+  @Override
+  public long get63_StatementCacheHitCount() {
+    return this.pool.getStatementCacheHitCount();
+  }
+
+  @Override
+  public long get64_StatementCacheMissCount() {
+    return this.pool.getStatementCacheMissCount();
+  }
+
+  @Override
+  public long get65_SqlAffinityHitCount() {
+    return this.pool.getSqlAffinityHitCount();
+  }
+
+  @Override
+  public long get66_SqlAffinityMissCount() {
+    return this.pool.getSqlAffinityMissCount();
+  }
+
+  @Override
+  public String get67_SqlAffinityHitRate() {
+    long hit = this.pool.getSqlAffinityHitCount();
+    long total = hit + this.pool.getSqlAffinityMissCount();
+    if (total == 0) {
+      return "-";
+    }
+    return hit * 100 / total + "%";
+  }
+
+  @Override
+  public String get68_IdleOrder() {
+    return this.pool.getCfgVO().getIdleOrder();
+  }
+
   /**
    * 存储连接池信息
    *
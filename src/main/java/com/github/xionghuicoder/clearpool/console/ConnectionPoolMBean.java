@@ -49,4 +49,94 @@ public interface ConnectionPoolMBean {
   int get22_ConnectionUsing();
 
   int get23_ConnectionLeft();
+
+  boolean is24_LockFree();
+
+  boolean is25_ThreadAffinity();
+
+  long get26_AffinityHitCount();
+
+  long get27_AffinityMissCount();
+
+  String get28_AffinityHitRate();
+
+  boolean is29_Striped();
+
+  int get30_StripeCount();
+
+  boolean is31_Fair();
+
+  int get32_WaiterSize();
+
+  long get33_OldestWaitMillis();
+
+  String get34_StartupMode();
+
+  long get35_StartupMillis();
+
+  boolean is36_Adaptive();
+
+  int get37_TargetPoolSize();
+
+  String get38_BorrowRate();
+
+  String get39_AvgHoldMillis();
+
+  String get40_AvgWaitMillis();
+
+  String get41_LastSizingDecision();
+
+  long get42_ValidationWindow();
+
+  long get43_ValidationCount();
+
+  long get44_ValidationSkipCount();
+
+  String get45_ValidationSkipRate();
+
+  long get46_ValidationFailCount();
+
+  boolean is47_OptimisticValidation();
+
+  long get48_OptimisticRetryCount();
+
+  String get49_CircuitState();
+
+  int get50_ConsecutiveCreateFailures();
+
+  String get51_CircuitRetryAfter();
+
+  long get52_CircuitOpenCount();
+
+  long get53_CircuitRejectCount();
+
+  String get54_CreateRate();
+
+  long get55_CreateThrottledCount();
+
+  long get56_MaxLifetime();
+
+  int get57_MaxUses();
+
+  long get58_RetiredCount();
+
+  long get59_StateMatchCount();
+
+  long get60_StateSwitchCount();
+
+  int get61_StatementCacheSize();
+
+  long get62_StatementCacheMemory();
+
+  long get63_StatementCacheHitCount();
+
+  long get64_StatementCacheMissCount();
+
+  long get65_SqlAffinityHitCount();
+
+  long get66_SqlAffinityMissCount();
+
+  String get67_SqlAffinityHitRate();
+
+  String get68_IdleOrder();
 }
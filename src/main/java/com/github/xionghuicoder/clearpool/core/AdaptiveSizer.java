@@ -0,0 +1,131 @@
+package com.github.xionghuicoder.clearpool.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按需调整连接池大小
+ *
+ * <p>
+ * 统计借用速率，连接持有时间和等待时间的EWMA，按Little定律(同时使用的连接数 = 借用速率 * 持有时间)估算需求，
+ * 再加上<tt>adaptiveHeadroom</tt>比例(至少1个)的空闲余量作为目标连接数；<br>
+ * 连接数低于目标时提前新建连接，高于目标时每次最多关闭<tt>adaptiveShrinkStep</tt>个空闲连接，避免连接数来回震荡。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class AdaptiveSizer {
+  // EWMA的平滑系数，越大越看重最近一次的采样
+  private static final double ALPHA = 0.3;
+
+  private final ConnectionPoolManager pool;
+
+  private final AtomicLong borrowCount = new AtomicLong();
+  private final AtomicLong waitNanos = new AtomicLong();
+  private final AtomicLong returnCount = new AtomicLong();
+  private final AtomicLong holdNanos = new AtomicLong();
+
+  // 以下字段只在调整线程中修改
+  private long lastNanos = System.nanoTime();
+  private long lastBorrowCount;
+  private long lastWaitNanos;
+  private long lastReturnCount;
+  private long lastHoldNanos;
+
+  private volatile double borrowRate;
+  private volatile double holdMillis;
+  private volatile double waitMillis;
+
+  private volatile int targetPoolSize;
+  private volatile String lastDecision = "-";
+
+  AdaptiveSizer(ConnectionPoolManager pool) {
+    this.pool = pool;
+    this.targetPoolSize = pool.getCfgVO().getCorePoolSize();
+  }
+
+  void recordBorrow(long waitNanos) {
+    this.borrowCount.incrementAndGet();
+    this.waitNanos.addAndGet(waitNanos);
+  }
+
+  void recordReturn(long holdNanos) {
+    this.returnCount.incrementAndGet();
+    this.holdNanos.addAndGet(holdNanos);
+  }
+
+  /**
+   * 采样并调整连接数，由调整线程定时调用
+   */
+  void adjust() {
+    long now = System.nanoTime();
+    double seconds = (now - this.lastNanos) / 1e9;
+    if (seconds <= 0) {
+      return;
+    }
+    this.lastNanos = now;
+    long borrows = this.borrowCount.get();
+    long waits = this.waitNanos.get();
+    long returns = this.returnCount.get();
+    long holds = this.holdNanos.get();
+    long deltaBorrow = borrows - this.lastBorrowCount;
+    long deltaReturn = returns - this.lastReturnCount;
+    this.borrowRate = this.ewma(this.borrowRate, deltaBorrow / seconds);
+    if (deltaBorrow > 0) {
+      this.waitMillis = this.ewma(this.waitMillis, (waits - this.lastWaitNanos) / 1e6 / deltaBorrow);
+    }
+    if (deltaReturn > 0) {
+      this.holdMillis = this.ewma(this.holdMillis, (holds - this.lastHoldNanos) / 1e6 / deltaReturn);
+    }
+    this.lastBorrowCount = borrows;
+    this.lastWaitNanos = waits;
+    this.lastReturnCount = returns;
+    this.lastHoldNanos = holds;
+
+    ConfigurationVO cfgVO = this.pool.getCfgVO();
+    int poolSize = this.pool.getPoolSize();
+    int busy = poolSize - this.pool.getIdleSize() + this.pool.getWaiterSize();
+    double demand = Math.max(this.borrowRate * this.holdMillis / 1000, busy);
+    int headroom = Math.max(1, (int) Math.ceil(demand * cfgVO.getAdaptiveHeadroom()));
+    long target = (long) Math.ceil(demand) + headroom;
+    target = Math.max(target, cfgVO.getCorePoolSize());
+    target = Math.min(target, cfgVO.getMaxPoolSize());
+    this.targetPoolSize = (int) target;
+
+    if (poolSize < target) {
+      int grown = this.pool.preGrow(this.targetPoolSize);
+      this.lastDecision = grown > 0 ? "grow " + grown : "hold";
+    } else if (poolSize > target) {
+      int shrinkNum = Math.min(poolSize - this.targetPoolSize, cfgVO.getAdaptiveShrinkStep());
+      int shrunk = this.pool.shrink(shrinkNum);
+      this.lastDecision = shrunk > 0 ? "shrink " + shrunk : "hold";
+    } else {
+      this.lastDecision = "hold";
+    }
+  }
+
+  private double ewma(double average, double sample) {
+    return average + ALPHA * (sample - average);
+  }
+
+  int getTargetPoolSize() {
+    return this.targetPoolSize;
+  }
+
+  double getBorrowRate() {
+    return this.borrowRate;
+  }
+
+  double getHoldMillis() {
+    return this.holdMillis;
+  }
+
+  double getWaitMillis() {
+    return this.waitMillis;
+  }
+
+  String getLastDecision() {
+    return this.lastDecision;
+  }
+}
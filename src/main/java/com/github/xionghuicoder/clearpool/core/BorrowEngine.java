@@ -0,0 +1,138 @@
+package com.github.xionghuicoder.clearpool.core;
+
+import com.github.xionghuicoder.clearpool.ConnectionPoolException;
+import com.github.xionghuicoder.clearpool.core.chain.ConnectionMatcher;
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+
+/**
+ * 连接借还引擎
+ *
+ * <p>
+ * 负责存放空闲连接，并在没有空闲连接时让借用线程等待；<br>
+ * 物理连接的创建，关闭以及<tt>poolSize</tt>的统计由{@link ConnectionPoolManager ConnectionPoolManager}负责；<br>
+ * 新建物理连接时不持有借还引擎的锁。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+abstract class BorrowEngine {
+  final ConnectionPoolManager pool;
+
+  BorrowEngine(ConnectionPoolManager pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * 借出连接
+   *
+   * @param timed 是否限时等待，对应<tt>maxWait</tt>大于0
+   * @param nanos 限时等待时剩余的等待时间(ns)
+   * @return 连接，限时等待超时后返回<tt>null</tt>
+   * @throws InterruptedException 等待时被中断
+   */
+  abstract ConnectionProxy borrow(boolean timed, long nanos) throws InterruptedException;
+
+  /**
+   * 不等待也不新建地借出空闲连接，异步借用时使用
+   *
+   * @return 连接，没有空闲连接时返回<tt>null</tt>
+   */
+  abstract ConnectionProxy poll();
+
+  /**
+   * 不等待地借出满足<tt>matcher</tt>的空闲连接，需要遍历空闲连接
+   *
+   * @param matcher 优先借出的条件
+   * @return 连接，没有满足的空闲连接时返回<tt>null</tt>
+   */
+  abstract ConnectionProxy pollMatching(ConnectionMatcher matcher);
+
+  /**
+   * 归还连接
+   *
+   * @param conProxy 连接
+   */
+  abstract void requite(ConnectionProxy conProxy);
+
+  /**
+   * 预占最多<tt>acquireIncrement</tt>个连接数，其中一个由当前线程新建并直接借出，其余的交给创建线程池并行新建
+   *
+   * @param timed 是否限时借用
+   * @param deadline 限时借用的截止时间({@link System#nanoTime()})，等待新建令牌不超过它
+   * @return 当前线程新建的连接，已达到<tt>maxPoolSize</tt>或截止前拿不到新建令牌时返回<tt>null</tt>
+   * @see ConnectionPoolManager#getGrowIncrement()
+   */
+  ConnectionProxy grow(boolean timed, long deadline) {
+    int increment = this.pool.reservePoolSize(this.pool.getGrowIncrement());
+    if (increment == 0) {
+      return null;
+    }
+    this.pool.createAsync(increment - 1);
+    ConnectionProxy conProxy;
+    try {
+      conProxy = this.pool.createConnection(timed, deadline);
+    } catch (RuntimeException e) {
+      this.pool.releasePoolSize(1);
+      throw e;
+    }
+    if (conProxy == null) {
+      // 让出预占的连接数，唤醒等待者重新尝试新建
+      this.pool.releasePoolSize(1);
+      this.createFailed();
+      return null;
+    }
+    if (this.pool.isClosed()) {
+      this.pool.remove();
+      throw new ConnectionPoolException("pool is closed");
+    }
+    conProxy.setState(ConnectionProxy.STATE_IN_USE);
+    return conProxy;
+  }
+
+  /**
+   * 放入新建的连接并唤醒等待者，调用前<tt>poolSize</tt>已经增加
+   *
+   * @param conProxy 新建的连接
+   */
+  abstract void publish(ConnectionProxy conProxy);
+
+  /**
+   * 创建线程池新建连接失败时调用，唤醒等待者重新尝试新建连接
+   */
+  void createFailed() {
+    // do nothing
+  }
+
+  /**
+   * 取出空闲时间大于等于<tt>period</tt>(ms)的连接
+   *
+   * @param period 空闲时间(ms)
+   * @return 空闲连接，没有则返回<tt>null</tt>
+   */
+  abstract ConnectionProxy pollIdle(long period);
+
+  /**
+   * 连接被关闭时调用
+   *
+   * @param conProxy 被关闭的连接
+   */
+  void remove(ConnectionProxy conProxy) {
+    // do nothing
+  }
+
+  abstract int idleSize();
+
+  /**
+   * @return 等待连接的借用线程数
+   */
+  abstract int waiterSize();
+
+  /**
+   * @return 等待最久的借用线程已经等待的时间(ms)，不支持时返回0
+   */
+  long oldestWaitMillis() {
+    return 0;
+  }
+}
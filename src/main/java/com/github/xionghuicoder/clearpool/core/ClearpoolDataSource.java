@@ -57,6 +57,10 @@ public class ClearpoolDataSource extends AbstractDataSource
 
   private Console console;
 
+  // 所有连接池共享的新建物理连接限速，小于等于0表示不限速
+  private double sharedCreateRate;
+  private int sharedCreateBurst = 10;
+
   public void setPort(int port) {
     if (this.console == null) {
       this.console = new Console();
@@ -159,6 +163,109 @@ public class ClearpoolDataSource extends AbstractDataSource
     this.vo.setSqlTimeFilter(sqlTimeFilter);
   }
 
+  public void setLockFree(boolean lockFree) {
+    this.vo.setLockFree(lockFree);
+  }
+
+  public void setThreadAffinity(boolean threadAffinity) {
+    this.vo.setThreadAffinity(threadAffinity);
+  }
+
+  public void setStriped(boolean striped) {
+    this.vo.setStriped(striped);
+  }
+
+  public void setStripeCount(int stripeCount) {
+    this.vo.setStripeCount(stripeCount);
+  }
+
+  public void setFair(boolean fair) {
+    this.vo.setFair(fair);
+  }
+
+  public void setIdleOrder(String idleOrder) {
+    this.vo.setIdleOrder(idleOrder);
+  }
+
+  public void setWarmUpThreads(int warmUpThreads) {
+    this.vo.setWarmUpThreads(warmUpThreads);
+  }
+
+  public void setStartupMode(String startupMode) {
+    this.vo.setStartupMode(startupMode);
+  }
+
+  public void setAdaptive(boolean adaptive) {
+    this.vo.setAdaptive(adaptive);
+  }
+
+  public void setAdaptiveHeadroom(double adaptiveHeadroom) {
+    this.vo.setAdaptiveHeadroom(adaptiveHeadroom);
+  }
+
+  public void setAdaptiveShrinkStep(int adaptiveShrinkStep) {
+    this.vo.setAdaptiveShrinkStep(adaptiveShrinkStep);
+  }
+
+  public void setValidationWindow(long validationWindow) {
+    this.vo.setValidationWindow(validationWindow);
+  }
+
+  public void setOptimisticValidation(boolean optimisticValidation) {
+    this.vo.setOptimisticValidation(optimisticValidation);
+  }
+
+  public void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+    this.vo.setCircuitBreakerThreshold(circuitBreakerThreshold);
+  }
+
+  public void setCircuitBreakerBackoff(long circuitBreakerBackoff) {
+    this.vo.setCircuitBreakerBackoff(circuitBreakerBackoff);
+  }
+
+  public void setCircuitBreakerMaxBackoff(long circuitBreakerMaxBackoff) {
+    this.vo.setCircuitBreakerMaxBackoff(circuitBreakerMaxBackoff);
+  }
+
+  public void setCreateRate(double createRate) {
+    this.vo.setCreateRate(createRate);
+  }
+
+  public void setCreateBurst(int createBurst) {
+    this.vo.setCreateBurst(createBurst);
+  }
+
+  public void setMaxLifetime(long maxLifetime) {
+    this.vo.setMaxLifetime(maxLifetime);
+  }
+
+  public void setMaxUses(int maxUses) {
+    this.vo.setMaxUses(maxUses);
+  }
+
+  public void setStatementCacheSize(int statementCacheSize) {
+    this.vo.setStatementCacheSize(statementCacheSize);
+  }
+
+  public void setStatementCacheMemory(long statementCacheMemory) {
+    this.vo.setStatementCacheMemory(statementCacheMemory);
+  }
+
+  /**
+   * 设置所有连接池共享的新建物理连接限速(个/s)，和每个连接池自己的<tt>createRate</tt>同时生效
+   */
+  public void setSharedCreateRate(double sharedCreateRate) {
+    this.sharedCreateRate = sharedCreateRate;
+  }
+
+  public void setSharedCreateBurst(int sharedCreateBurst) {
+    if (sharedCreateBurst <= 0) {
+      LOGGER.warn("sharedCreateBurst should be positive");
+      return;
+    }
+    this.sharedCreateBurst = sharedCreateBurst;
+  }
+
   @Override
   public void init() {
     this.initVO(this.vo);
@@ -192,7 +299,9 @@ public class ClearpoolDataSource extends AbstractDataSource
       if (this.console != null) {
         this.mbeanFacade = new MBeanFacade(this.console);
       }
-      this.poolContainer.load(this.mbeanFacade, voList);
+      CreationRateLimiter sharedRateLimiter = this.sharedCreateRate > 0
+          ? new CreationRateLimiter(this.sharedCreateRate, this.sharedCreateBurst) : null;
+      this.poolContainer.load(this.mbeanFacade, voList, sharedRateLimiter);
       this.isInited = true;
       LOGGER.info("load success, cost " + (System.currentTimeMillis() - begin) + "ms");
     } finally {
@@ -222,6 +331,34 @@ public class ClearpoolDataSource extends AbstractDataSource
     return pooledCon == null ? null : pooledCon.getConnection();
   }
 
+  @Override
+  public Connection getConnection(ConnectionState state) throws SQLException {
+    this.init();
+    PooledConnection pooledCon = this.poolContainer.getConnection(0L, state, null);
+    return pooledCon.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String name, ConnectionState state) throws SQLException {
+    this.init();
+    PooledConnection pooledCon = this.poolContainer.getConnection(name, 0L, state, null);
+    return pooledCon == null ? null : pooledCon.getConnection();
+  }
+
+  @Override
+  public Connection getConnectionForSql(String sql) throws SQLException {
+    this.init();
+    PooledConnection pooledCon = this.poolContainer.getConnection(0L, null, sql);
+    return pooledCon.getConnection();
+  }
+
+  @Override
+  public Connection getConnectionForSql(String name, String sql) throws SQLException {
+    this.init();
+    PooledConnection pooledCon = this.poolContainer.getConnection(name, 0L, null, sql);
+    return pooledCon == null ? null : pooledCon.getConnection();
+  }
+
   @Override
   public PooledConnection getPooledConnection() throws SQLException {
     return this.getPooledConnection(0L);
@@ -235,13 +372,26 @@ public class ClearpoolDataSource extends AbstractDataSource
   @Override
   public PooledConnection getPooledConnection(long maxWait) throws SQLException {
     this.init();
-    return this.poolContainer.getConnection(maxWait);
+    return this.poolContainer.getConnection(maxWait, null, null);
   }
 
   @Override
   public PooledConnection getPooledConnection(String name, long maxWait) throws SQLException {
     this.init();
-    return this.poolContainer.getConnection(name, maxWait);
+    return this.poolContainer.getConnection(name, maxWait, null, null);
+  }
+
+  @Override
+  public ConnectionFuture getConnectionAsync(long maxWait, ConnectionCallback callback) {
+    this.init();
+    return this.poolContainer.getConnectionAsync(maxWait, callback);
+  }
+
+  @Override
+  public ConnectionFuture getConnectionAsync(String name, long maxWait,
+      ConnectionCallback callback) {
+    this.init();
+    return this.poolContainer.getConnectionAsync(name, maxWait, callback);
   }
 
   @Override
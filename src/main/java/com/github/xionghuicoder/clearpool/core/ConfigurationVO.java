@@ -40,6 +40,14 @@ import com.github.xionghuicoder.clearpool.util.DataSourceUtils;
 public class ConfigurationVO implements Cloneable {
   private static final PoolLogger LOGGER = PoolLoggerFactory.getLogger(ConfigurationVO.class);
 
+  public static final String STARTUP_MODE_SYNC = "sync";
+  public static final String STARTUP_MODE_ASYNC = "async";
+
+  public static final String IDLE_ORDER_WARMED = "warmed";
+  public static final String IDLE_ORDER_LIFO = "lifo";
+  public static final String IDLE_ORDER_FIFO = "fifo";
+  public static final String IDLE_ORDER_VALIDATED = "validated";
+
   private AbstractDataSource abstractDataSource;
 
   /**
@@ -76,6 +84,95 @@ public class ConfigurationVO implements Cloneable {
   private String testQuerySql;
   private boolean showSql;
   private long sqlTimeFilter;
+  /**
+   * 是否使用无锁的借还引擎，高并发时可减少锁竞争
+   */
+  private boolean lockFree;
+  /**
+   * 是否开启线程亲和，开启后线程会优先取回自己最近归还的连接
+   */
+  private boolean threadAffinity;
+  /**
+   * 是否把连接池分成<tt>stripeCount</tt>个分片，每个分片有自己的锁；<tt>lockFree</tt>为true时无效
+   */
+  private boolean striped;
+  private int stripeCount = Runtime.getRuntime().availableProcessors();
+  /**
+   * 是否使用公平模式，归还的连接直接交给等待最久的借用线程；<tt>lockFree</tt>为true时无效
+   */
+  private boolean fair;
+  /**
+   * 空闲连接的借出顺序：warmed优先借出执行过最多不同sql的连接，lifo优先借出最近归还的连接，<br>
+   * fifo优先借出最早归还的连接，validated优先借出最久没有确认有效的连接；<tt>lockFree</tt>为true时无效
+   */
+  private String idleOrder = IDLE_ORDER_WARMED;
+  /**
+   * 预热时每个连接池最多同时新建的连接数
+   */
+  private int warmUpThreads = 8;
+  /**
+   * 启动模式：sync时初始化完<tt>corePoolSize</tt>个连接后才返回；<br>
+   * async时立即返回，连接在后台预热，预热期间借用线程会自己新建连接
+   */
+  private String startupMode = STARTUP_MODE_SYNC;
+  /**
+   * 是否按需调整连接池大小，开启后不再按<tt>limitIdleTime</tt>回收多余的连接
+   */
+  private boolean adaptive;
+  /**
+   * 目标空闲余量占估算需求的比例，至少保留1个空闲连接
+   */
+  private double adaptiveHeadroom = 0.2;
+  /**
+   * 每秒最多关闭的空闲连接数
+   */
+  private int adaptiveShrinkStep = 1;
+  /**
+   * <tt>testBeforeUse</tt>为true时，连接在最近<tt>validationWindow</tt>(ms)内成功使用过则借出前不再检测；<br>
+   * 0表示每次借出都检测
+   */
+  private long validationWindow;
+  /**
+   * 是否乐观检测：借出时不检测连接，本次借出的第一条sql因为连接失效(SQLState为08xxx)执行失败时，<br>
+   * 关闭该连接，换一个检测过的连接重新执行；只在autoCommit为true时生效，<tt>jtaSupport</tt>为true时无效
+   */
+  private boolean optimisticValidation;
+  /**
+   * 连续新建连接失败多少次后熔断，熔断期间新建连接直接失败；小于等于0表示不熔断，默认不熔断
+   */
+  private int circuitBreakerThreshold;
+  /**
+   * 熔断后第一次探测前的退避时间(ms)，之后每次探测失败加倍
+   */
+  private long circuitBreakerBackoff = 1000;
+  /**
+   * 熔断后探测的最大退避时间(ms)
+   */
+  private long circuitBreakerMaxBackoff = 30 * 1000L;
+  /**
+   * 每秒最多新建的物理连接数，预热，借用线程新建和后台补充都受它限制；小于等于0表示不限速
+   */
+  private double createRate;
+  /**
+   * 限速时允许瞬间新建的物理连接数
+   */
+  private int createBurst = 10;
+  /**
+   * 连接的最长存活时间(ms)，每个连接随机提前最多10%，空闲时退役；0表示不限制
+   */
+  private long maxLifetime;
+  /**
+   * 连接的最多借出次数，达到后归还时退役；0表示不限制
+   */
+  private int maxUses;
+  /**
+   * 每个连接最多缓存的PreparedStatement数，超过时关闭最久没有使用的；0表示不缓存
+   */
+  private int statementCacheSize;
+  /**
+   * 连接池所有连接缓存的statement估算占用的内存上限(byte)；0表示不限制
+   */
+  private long statementCacheMemory;
 
   public AbstractDataSource getAbstractDataSource() {
     return this.abstractDataSource;
@@ -269,12 +366,250 @@ public class ConfigurationVO implements Cloneable {
     this.sqlTimeFilter = sqlTimeFilter;
   }
 
+  public boolean isLockFree() {
+    return this.lockFree;
+  }
+
+  public void setLockFree(boolean lockFree) {
+    this.lockFree = lockFree;
+  }
+
+  public boolean isThreadAffinity() {
+    return this.threadAffinity;
+  }
+
+  public void setThreadAffinity(boolean threadAffinity) {
+    this.threadAffinity = threadAffinity;
+  }
+
+  public boolean isStriped() {
+    return this.striped;
+  }
+
+  public void setStriped(boolean striped) {
+    this.striped = striped;
+  }
+
+  public int getStripeCount() {
+    return this.stripeCount;
+  }
+
+  public void setStripeCount(int stripeCount) {
+    if (stripeCount <= 0) {
+      LOGGER.warn("stripeCount should be positive");
+      return;
+    }
+    this.stripeCount = stripeCount;
+  }
+
+  public boolean isFair() {
+    return this.fair;
+  }
+
+  public void setFair(boolean fair) {
+    this.fair = fair;
+  }
+
+  public String getIdleOrder() {
+    return this.idleOrder;
+  }
+
+  public void setIdleOrder(String idleOrder) {
+    if (!IDLE_ORDER_WARMED.equals(idleOrder) && !IDLE_ORDER_LIFO.equals(idleOrder)
+        && !IDLE_ORDER_FIFO.equals(idleOrder) && !IDLE_ORDER_VALIDATED.equals(idleOrder)) {
+      LOGGER.warn("idleOrder should be " + IDLE_ORDER_WARMED + ", " + IDLE_ORDER_LIFO + ", "
+          + IDLE_ORDER_FIFO + " or " + IDLE_ORDER_VALIDATED);
+      return;
+    }
+    this.idleOrder = idleOrder;
+  }
+
+  public int getWarmUpThreads() {
+    return this.warmUpThreads;
+  }
+
+  public void setWarmUpThreads(int warmUpThreads) {
+    if (warmUpThreads <= 0) {
+      LOGGER.warn("warmUpThreads should be positive");
+      return;
+    }
+    this.warmUpThreads = warmUpThreads;
+  }
+
+  public String getStartupMode() {
+    return this.startupMode;
+  }
+
+  public void setStartupMode(String startupMode) {
+    if (!STARTUP_MODE_SYNC.equals(startupMode) && !STARTUP_MODE_ASYNC.equals(startupMode)) {
+      LOGGER.warn("startupMode should be " + STARTUP_MODE_SYNC + " or " + STARTUP_MODE_ASYNC);
+      return;
+    }
+    this.startupMode = startupMode;
+  }
+
+  public boolean isAsyncStartup() {
+    return STARTUP_MODE_ASYNC.equals(this.startupMode);
+  }
+
+  public boolean isAdaptive() {
+    return this.adaptive;
+  }
+
+  public void setAdaptive(boolean adaptive) {
+    this.adaptive = adaptive;
+  }
+
+  public double getAdaptiveHeadroom() {
+    return this.adaptiveHeadroom;
+  }
+
+  public void setAdaptiveHeadroom(double adaptiveHeadroom) {
+    if (adaptiveHeadroom < 0) {
+      LOGGER.warn("adaptiveHeadroom is negative");
+      return;
+    }
+    this.adaptiveHeadroom = adaptiveHeadroom;
+  }
+
+  public int getAdaptiveShrinkStep() {
+    return this.adaptiveShrinkStep;
+  }
+
+  public void setAdaptiveShrinkStep(int adaptiveShrinkStep) {
+    if (adaptiveShrinkStep <= 0) {
+      LOGGER.warn("adaptiveShrinkStep should be positive");
+      return;
+    }
+    this.adaptiveShrinkStep = adaptiveShrinkStep;
+  }
+
+  public long getValidationWindow() {
+    return this.validationWindow;
+  }
+
+  public void setValidationWindow(long validationWindow) {
+    if (validationWindow < 0) {
+      LOGGER.warn("validationWindow is negative");
+      return;
+    }
+    this.validationWindow = validationWindow;
+  }
+
+  public boolean isOptimisticValidation() {
+    return this.optimisticValidation;
+  }
+
+  public void setOptimisticValidation(boolean optimisticValidation) {
+    this.optimisticValidation = optimisticValidation;
+  }
+
+  public int getCircuitBreakerThreshold() {
+    return this.circuitBreakerThreshold;
+  }
+
+  public void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+    this.circuitBreakerThreshold = circuitBreakerThreshold;
+  }
+
+  public long getCircuitBreakerBackoff() {
+    return this.circuitBreakerBackoff;
+  }
+
+  public void setCircuitBreakerBackoff(long circuitBreakerBackoff) {
+    if (circuitBreakerBackoff <= 0) {
+      LOGGER.warn("circuitBreakerBackoff should be positive");
+      return;
+    }
+    this.circuitBreakerBackoff = circuitBreakerBackoff;
+  }
+
+  public long getCircuitBreakerMaxBackoff() {
+    return this.circuitBreakerMaxBackoff;
+  }
+
+  public void setCircuitBreakerMaxBackoff(long circuitBreakerMaxBackoff) {
+    if (circuitBreakerMaxBackoff <= 0) {
+      LOGGER.warn("circuitBreakerMaxBackoff should be positive");
+      return;
+    }
+    this.circuitBreakerMaxBackoff = circuitBreakerMaxBackoff;
+  }
+
+  public double getCreateRate() {
+    return this.createRate;
+  }
+
+  public void setCreateRate(double createRate) {
+    this.createRate = createRate;
+  }
+
+  public int getCreateBurst() {
+    return this.createBurst;
+  }
+
+  public void setCreateBurst(int createBurst) {
+    if (createBurst <= 0) {
+      LOGGER.warn("createBurst should be positive");
+      return;
+    }
+    this.createBurst = createBurst;
+  }
+
+  public long getMaxLifetime() {
+    return this.maxLifetime;
+  }
+
+  public void setMaxLifetime(long maxLifetime) {
+    if (maxLifetime < 0) {
+      LOGGER.warn("maxLifetime is negative");
+      return;
+    }
+    this.maxLifetime = maxLifetime;
+  }
+
+  public int getMaxUses() {
+    return this.maxUses;
+  }
+
+  public void setMaxUses(int maxUses) {
+    if (maxUses < 0) {
+      LOGGER.warn("maxUses is negative");
+      return;
+    }
+    this.maxUses = maxUses;
+  }
+
+  public int getStatementCacheSize() {
+    return this.statementCacheSize;
+  }
+
+  public void setStatementCacheSize(int statementCacheSize) {
+    if (statementCacheSize < 0) {
+      LOGGER.warn("statementCacheSize is negative");
+      return;
+    }
+    this.statementCacheSize = statementCacheSize;
+  }
+
+  public long getStatementCacheMemory() {
+    return this.statementCacheMemory;
+  }
+
+  public void setStatementCacheMemory(long statementCacheMemory) {
+    if (statementCacheMemory < 0) {
+      LOGGER.warn("statementCacheMemory is negative");
+      return;
+    }
+    this.statementCacheMemory = statementCacheMemory;
+  }
+
   /**
    * 初始化配置
    *
    * <p>
-   * 如果配置了keepTestPeriod，默认使用testQuerySql，若此时testQuerySql为null，<br>
-   * 则使用testTableName，若testTableName不为null，则会按testTableName设置testCreateSql。
+   * 检测连接优先使用驱动自带的ping，其次使用testQuerySql，<br>
+   * 没有配置testQuerySql时使用{@link java.sql.Connection#isValid Connection.isValid}。
    * </p>
    *
    */
@@ -286,9 +621,6 @@ public class ConfigurationVO implements Cloneable {
     if (this.acquireIncrement <= 0) {
       throw new ConnectionPoolException("acquireIncrement should be positive");
     }
-    if ((this.keepTestPeriod != -1 || this.testBeforeUse) && this.testQuerySql == null) {
-      throw new ConnectionPoolException("keepTestPeriod, testBeforeUse or testQuerySql illegal");
-    }
   }
 
   /**
@@ -393,6 +725,18 @@ public class ConfigurationVO implements Cloneable {
         + this.uselessConnectionException + ", limitIdleTime=" + this.limitIdleTime
         + ", keepTestPeriod=" + this.keepTestPeriod + ", testBeforeUse=" + this.testBeforeUse
         + ", testQuerySql=" + this.testQuerySql + ", showSql=" + this.showSql + ", sqlTimeFilter="
-        + this.sqlTimeFilter + "]";
+        + this.sqlTimeFilter + ", lockFree=" + this.lockFree
+        + ", threadAffinity=" + this.threadAffinity + ", striped=" + this.striped
+        + ", stripeCount=" + this.stripeCount + ", fair=" + this.fair + ", idleOrder="
+        + this.idleOrder + ", warmUpThreads="
+        + this.warmUpThreads + ", startupMode=" + this.startupMode + ", adaptive=" + this.adaptive
+        + ", adaptiveHeadroom=" + this.adaptiveHeadroom + ", adaptiveShrinkStep="
+        + this.adaptiveShrinkStep + ", validationWindow=" + this.validationWindow
+        + ", optimisticValidation=" + this.optimisticValidation + ", circuitBreakerThreshold="
+        + this.circuitBreakerThreshold + ", circuitBreakerBackoff=" + this.circuitBreakerBackoff
+        + ", circuitBreakerMaxBackoff=" + this.circuitBreakerMaxBackoff + ", createRate="
+        + this.createRate + ", createBurst=" + this.createBurst + ", maxLifetime="
+        + this.maxLifetime + ", maxUses=" + this.maxUses + ", statementCacheSize="
+        + this.statementCacheSize + ", statementCacheMemory=" + this.statementCacheMemory + "]";
   }
 }
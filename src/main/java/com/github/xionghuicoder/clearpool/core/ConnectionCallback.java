@@ -0,0 +1,32 @@
+package com.github.xionghuicoder.clearpool.core;
+
+import java.sql.Connection;
+
+/**
+ * 异步获取连接的回调
+ *
+ * <p>
+ * 回调在完成{@link ConnectionFuture ConnectionFuture}的线程中执行，可能是发起请求的线程，归还连接的线程或者超时线程；<br>
+ * 所以回调中不应该执行耗时操作。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface ConnectionCallback {
+
+  /**
+   * 获取到连接
+   *
+   * @param connection 数据库连接，超时时为<tt>null</tt>
+   */
+  void onConnection(Connection connection);
+
+  /**
+   * 获取连接失败
+   *
+   * @param e 异常
+   */
+  void onError(Exception e);
+}
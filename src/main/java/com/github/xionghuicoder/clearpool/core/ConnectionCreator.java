@@ -0,0 +1,199 @@
+package com.github.xionghuicoder.clearpool.core;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+import com.github.xionghuicoder.clearpool.logging.PoolLogger;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+/**
+ * 连接创建线程池
+ *
+ * <p>
+ * 在不持有任何锁的情况下并行新建物理连接，每个连接新建好后立即放入借还引擎并唤醒等待者；<br>
+ * 线程数不超过<tt>acquireIncrement</tt>，空闲一段时间后线程会退出。
+ * </p>
+ *
+ * <p>
+ * 借出前检测失败或归还时reset失败的连接也在这里关闭并补充新连接，借用线程不会阻塞在关闭和新建物理连接上；<br>
+ * 达到<tt>maxLifetime</tt>或<tt>maxUses</tt>的连接在这里先新建替代的连接，再关闭旧连接。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class ConnectionCreator {
+  private static final PoolLogger LOGGER = PoolLoggerFactory.getLogger(ConnectionCreator.class);
+
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  private final ConnectionPoolManager pool;
+
+  private final ThreadPoolExecutor executor;
+
+  ConnectionCreator(ConnectionPoolManager pool, int threadCount) {
+    this.pool = pool;
+    final String name = ConnectionCreator.class.getSimpleName() + "-" + pool.getCfgVO().getName();
+    this.executor = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          private final AtomicInteger count = new AtomicInteger();
+
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable);
+            thread.setName(name + "-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * 异步新建<tt>num</tt>个连接，调用前<tt>poolSize</tt>已经预占
+   *
+   * @param num 新建连接数
+   * @param engine 新建的连接放入的借还引擎
+   */
+  void create(int num, final BorrowEngine engine) {
+    for (int i = 0; i < num; i++) {
+      try {
+        this.executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            ConnectionCreator.this.createOne(engine);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // 连接池已关闭
+        this.pool.releasePoolSize(num - i);
+        return;
+      }
+    }
+  }
+
+  /**
+   * 异步关闭失效的连接并新建一个连接代替它，失效连接占用的<tt>poolSize</tt>直接留给新连接
+   *
+   * @param conProxy 失效的连接
+   * @param engine 新建的连接放入的借还引擎
+   */
+  void replenish(final ConnectionProxy conProxy, final BorrowEngine engine) {
+    try {
+      this.executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          ConnectionCreator.this.pool.closeConnection(conProxy);
+          ConnectionCreator.this.createOne(engine);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // 连接池已关闭
+      this.pool.closeConnection(conProxy);
+      this.pool.releasePoolSize(1);
+    }
+  }
+
+  /**
+   * 异步做借出前检测，异步借用时使用，借用线程不阻塞在检测上；<br>
+   * 有效的连接放回连接池，交给排队的{@link ConnectionFuture ConnectionFuture}，无效的连接关闭并补充新连接
+   *
+   * @param conProxy 异步借出的空闲连接
+   * @param engine 新建的连接放入的借还引擎
+   */
+  void validate(final ConnectionProxy conProxy, final BorrowEngine engine) {
+    try {
+      this.executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          ConnectionCreator.this.validateOne(conProxy, engine);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // 连接池已关闭
+      this.pool.closeConnection(conProxy);
+      this.pool.releasePoolSize(1);
+    }
+  }
+
+  private void validateOne(ConnectionProxy conProxy, BorrowEngine engine) {
+    if (this.pool.validateBeforeUse(conProxy)) {
+      this.pool.putBack(conProxy);
+      return;
+    }
+    this.pool.closeConnection(conProxy);
+    this.createOne(engine);
+  }
+
+  /**
+   * 异步退役连接：连接数多于<tt>corePoolSize</tt>时直接关闭，否则先新建一个连接放入借还引擎再关闭旧连接；<br>
+   * 新建失败时旧连接放回连接池继续使用，退避一段时间后再退役
+   *
+   * @param conProxy 退役的连接，已经不在空闲链中
+   * @param engine 新建的连接放入的借还引擎
+   */
+  void retire(final ConnectionProxy conProxy, final BorrowEngine engine) {
+    try {
+      this.executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          ConnectionCreator.this.retireOne(conProxy, engine);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // 连接池已关闭
+      this.pool.closeConnection(conProxy);
+    }
+  }
+
+  private void retireOne(ConnectionProxy conProxy, BorrowEngine engine) {
+    // 先预占减少的连接数再关闭，并发退役时连接数不会低于corePoolSize
+    if (this.pool.tryDecrementPoolSize()) {
+      this.pool.closeConnection(conProxy);
+      return;
+    }
+    ConnectionProxy newProxy;
+    try {
+      newProxy = this.pool.createConnection();
+    } catch (Throwable t) {
+      LOGGER.error("create connection to replace retired one error: ", t);
+      this.pool.retireFailed(conProxy);
+      return;
+    }
+    if (this.pool.isClosed()) {
+      this.pool.remove();
+      return;
+    }
+    // 旧连接占用的poolSize直接留给新连接
+    engine.publish(newProxy);
+    this.pool.closeConnection(conProxy);
+  }
+
+  private void createOne(BorrowEngine engine) {
+    ConnectionProxy conProxy;
+    try {
+      conProxy = this.pool.createConnection();
+    } catch (Throwable t) {
+      LOGGER.error("create connection error: ", t);
+      this.pool.releasePoolSize(1);
+      engine.createFailed();
+      this.pool.createFailed(t);
+      return;
+    }
+    if (this.pool.isClosed()) {
+      this.pool.remove();
+      return;
+    }
+    engine.publish(conProxy);
+  }
+
+  void shutdown() {
+    this.executor.shutdownNow();
+  }
+}
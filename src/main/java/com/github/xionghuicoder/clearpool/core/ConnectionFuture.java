@@ -0,0 +1,232 @@
+package com.github.xionghuicoder.clearpool.core;
+
+import java.sql.Connection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.PooledConnection;
+
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+import com.github.xionghuicoder.clearpool.logging.PoolLogger;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+/**
+ * 异步获取连接的结果
+ *
+ * <p>
+ * 连接池没有空闲连接时，{@link ConnectionFuture ConnectionFuture}在连接池中排队，不占用任何线程；<br>
+ * 有连接归还时由归还连接的线程直接完成，超时由所有连接池共用的一个定时线程完成。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ConnectionFuture implements Future<Connection> {
+  private static final PoolLogger LOGGER = PoolLoggerFactory.getLogger(ConnectionFuture.class);
+
+  private static final int WAITING = 0;
+  private static final int DONE = 1;
+  private static final int CANCELLED = 2;
+
+  private final ConnectionPoolManager pool;
+  private final ConnectionCallback callback;
+  // 最大等待时间(ms)，小于等于0时一直等待
+  private final long maxWait;
+
+  // 发起请求的时间(ns)
+  private final long beginNanos = System.nanoTime();
+
+  private final AtomicInteger state = new AtomicInteger(WAITING);
+  private final CountDownLatch doneLatch = new CountDownLatch(1);
+
+  // 以下两个字段只由把state变成DONE的线程写入，在doneLatch释放之前，读取者只在doneLatch释放之后读取
+  private volatile Connection connection;
+  private volatile Exception exception;
+
+  private volatile ScheduledFuture<?> timeoutTask;
+
+  ConnectionFuture(ConnectionPoolManager pool, long maxWait, ConnectionCallback callback) {
+    this.pool = pool;
+    this.maxWait = maxWait;
+    this.callback = callback;
+  }
+
+  long getBeginNanos() {
+    return this.beginNanos;
+  }
+
+  long getMaxWait() {
+    return this.maxWait;
+  }
+
+  /**
+   * 超时后以<tt>null</tt>完成
+   */
+  void scheduleTimeout(long maxWait) {
+    this.timeoutTask = TimerHolder.TIMER.schedule(new Runnable() {
+      @Override
+      public void run() {
+        ConnectionFuture.this.timeout();
+      }
+    }, maxWait, TimeUnit.MILLISECONDS);
+    if (this.isDone()) {
+      this.cancelTimeout();
+    }
+  }
+
+  private void timeout() {
+    if (this.state.compareAndSet(WAITING, DONE)) {
+      this.pool.removeConnectionFuture(this);
+      this.done();
+    }
+  }
+
+  /**
+   * 使用连接完成
+   *
+   * @return 是否完成，已被完成或取消时返回<tt>false</tt>，此时连接仍归调用者所有
+   */
+  boolean complete(ConnectionProxy conProxy) {
+    if (this.state.get() != WAITING) {
+      return false;
+    }
+    Connection con;
+    try {
+      PooledConnection pooledConnection =
+          this.pool.getCfgVO().getAbstractDataSource().createPooledConnection(conProxy);
+      con = pooledConnection.getConnection();
+    } catch (Exception e) {
+      this.fail(e);
+      return false;
+    }
+    // 先抢到完成权再发布连接，超时或取消的一方不会看到这个连接
+    if (!this.state.compareAndSet(WAITING, DONE)) {
+      return false;
+    }
+    this.connection = con;
+    this.done();
+    return true;
+  }
+
+  /**
+   * 以异常完成
+   *
+   * @return 是否完成，已被完成或取消时返回<tt>false</tt>
+   */
+  boolean fail(Exception e) {
+    if (!this.state.compareAndSet(WAITING, DONE)) {
+      return false;
+    }
+    this.exception = e;
+    this.pool.removeConnectionFuture(this);
+    this.done();
+    return true;
+  }
+
+  private void done() {
+    this.cancelTimeout();
+    this.doneLatch.countDown();
+    if (this.callback == null) {
+      return;
+    }
+    try {
+      if (this.exception != null) {
+        this.callback.onError(this.exception);
+      } else {
+        this.callback.onConnection(this.connection);
+      }
+    } catch (Throwable t) {
+      LOGGER.error("callback error: ", t);
+    }
+  }
+
+  private void cancelTimeout() {
+    ScheduledFuture<?> task = this.timeoutTask;
+    if (task != null && task.cancel(false)) {
+      // 及时从队列中移除，避免队列中堆积已取消的任务
+      TimerHolder.TIMER.remove((Runnable) task);
+    }
+  }
+
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    if (!this.state.compareAndSet(WAITING, CANCELLED)) {
+      return false;
+    }
+    this.pool.removeConnectionFuture(this);
+    this.cancelTimeout();
+    this.doneLatch.countDown();
+    return true;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return this.state.get() == CANCELLED;
+  }
+
+  @Override
+  public boolean isDone() {
+    return this.state.get() != WAITING;
+  }
+
+  /**
+   * @return 数据库连接，超时时返回<tt>null</tt>
+   */
+  @Override
+  public Connection get() throws InterruptedException, ExecutionException {
+    this.doneLatch.await();
+    return this.report();
+  }
+
+  /**
+   * @return 数据库连接，连接池中等待超时(<tt>maxWait</tt>)时返回<tt>null</tt>
+   * @throws TimeoutException 在<tt>timeout</tt>内没有完成
+   */
+  @Override
+  public Connection get(long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    if (!this.doneLatch.await(timeout, unit)) {
+      throw new TimeoutException();
+    }
+    return this.report();
+  }
+
+  private Connection report() throws ExecutionException {
+    if (this.state.get() == CANCELLED) {
+      throw new CancellationException();
+    }
+    if (this.exception != null) {
+      throw new ExecutionException(this.exception);
+    }
+    return this.connection;
+  }
+
+  /**
+   * 所有连接池共用的超时线程，第一次使用时才创建
+   *
+   * @author xionghui
+   * @version 1.0.0
+   * @since 1.0.0
+   */
+  private static class TimerHolder {
+    static final ScheduledThreadPoolExecutor TIMER =
+        new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable);
+            thread.setName(ConnectionFuture.class.getSimpleName() + "-Timer");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+  }
+}
@@ -10,12 +10,13 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.sql.PooledConnection;
 
 import com.github.xionghuicoder.clearpool.ConnectionPoolException;
 import com.github.xionghuicoder.clearpool.console.MBeanFacade;
-import com.github.xionghuicoder.clearpool.core.hook.IdleCheckHook;
+import com.github.xionghuicoder.clearpool.core.hook.MaintenanceScheduler;
 import com.github.xionghuicoder.clearpool.core.hook.ShutdownHook;
 import com.github.xionghuicoder.clearpool.logging.PoolLogger;
 import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
@@ -31,12 +32,16 @@ class ConnectionPoolContainer {
   private static final PoolLogger LOGGER =
       PoolLoggerFactory.getLogger(ConnectionPoolContainer.class);
 
-  private volatile Thread idleCheckHookThread;
+  private volatile MaintenanceScheduler maintenanceScheduler;
 
   private final Map<String, ConnectionPoolManager> poolMap =
       new HashMap<String, ConnectionPoolManager>();
 
-  void load(MBeanFacade mbeanFacade, List<ConfigurationVO> voList) {
+  /**
+   * @param sharedRateLimiter 所有连接池共享的新建物理连接限速，不限速时为<tt>null</tt>
+   */
+  void load(MBeanFacade mbeanFacade, List<ConfigurationVO> voList,
+      CreationRateLimiter sharedRateLimiter) {
     List<ConfigurationVO> cfgVOList = new ArrayList<ConfigurationVO>();
     Set<String> nameSet = new HashSet<String>();
     for (ConfigurationVO vo : voList) {
@@ -51,7 +56,7 @@ class ConnectionPoolContainer {
       }
     }
     try {
-      this.initPool(mbeanFacade, cfgVOList);
+      this.initPool(mbeanFacade, cfgVOList, sharedRateLimiter);
     } catch (Throwable e) {
       for (ConnectionPoolManager pool : this.poolMap.values()) {
         pool.remove();
@@ -63,14 +68,12 @@ class ConnectionPoolContainer {
   }
 
   private void startHooks(MBeanFacade mbeanFacade) {
-    CountDownLatch startLatch = new CountDownLatch(2);
+    CountDownLatch startLatch = new CountDownLatch(1);
     MBeanFacade.start(mbeanFacade, startLatch);
-    if (this.idleCheckHookThread == null) {
+    if (this.maintenanceScheduler == null) {
       Collection<ConnectionPoolManager> poolCollection = this.poolMap.values();
       ShutdownHook.registerHook(poolCollection);
-      this.idleCheckHookThread = IdleCheckHook.startHook(poolCollection, startLatch);
-    } else {
-      startLatch.countDown();
+      this.maintenanceScheduler = MaintenanceScheduler.start(poolCollection);
     }
     try {
       startLatch.await();
@@ -79,54 +82,135 @@ class ConnectionPoolContainer {
     }
   }
 
-  private void initPool(MBeanFacade mbeanFacade, List<ConfigurationVO> cfgVOList) {
-    String packageName = this.getClass().getPackage().getName();
+  /**
+   * sync模式的连接池并行预热，全部预热完成后才返回；async模式的连接池在后台预热
+   */
+  private void initPool(MBeanFacade mbeanFacade, List<ConfigurationVO> cfgVOList,
+      CreationRateLimiter sharedRateLimiter) {
+    long begin = System.currentTimeMillis();
+    List<ConnectionPoolManager> syncPoolList = new ArrayList<ConnectionPoolManager>();
     for (ConfigurationVO cfgVO : cfgVOList) {
-      long begin = System.currentTimeMillis();
-      ConnectionPoolManager pool = new ConnectionPoolManager(cfgVO);
-      try {
-        pool.initPool();
-      } catch (Throwable t) {
-        pool.remove();
-        throw new ConnectionPoolException(t);
+      ConnectionPoolManager pool = new ConnectionPoolManager(cfgVO, sharedRateLimiter);
+      this.poolMap.put(cfgVO.getName(), pool);
+      if (cfgVO.isAsyncStartup()) {
+        this.registerMBean(mbeanFacade, pool);
+        pool.initPoolAsync();
+        LOGGER.info("init pool " + cfgVO.getName() + " async");
+      } else {
+        syncPoolList.add(pool);
+      }
+    }
+    this.warmUp(syncPoolList);
+    for (ConnectionPoolManager pool : syncPoolList) {
+      this.registerMBean(mbeanFacade, pool);
+      LOGGER.info("init pool " + pool.getCfgVO().getName() + " success, cost "
+          + pool.getStartupMillis() + "ms");
+    }
+    if (syncPoolList.size() > 1) {
+      LOGGER.info("init " + syncPoolList.size() + " pools success, cost "
+          + (System.currentTimeMillis() - begin) + "ms");
+    }
+  }
+
+  /**
+   * 每个连接池使用一个线程并行预热
+   */
+  private void warmUp(List<ConnectionPoolManager> poolList) {
+    if (poolList.size() == 1) {
+      poolList.get(0).initPool();
+      return;
+    }
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    List<Thread> threadList = new ArrayList<Thread>();
+    for (final ConnectionPoolManager pool : poolList) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            pool.initPool();
+          } catch (Throwable t) {
+            error.compareAndSet(null, t);
+          }
+        }
+      };
+      thread.setName("WarmUp-" + pool.getCfgVO().getName());
+      thread.setDaemon(true);
+      thread.start();
+      threadList.add(thread);
+    }
+    try {
+      for (Thread thread : threadList) {
+        thread.join();
       }
-      String poolName = cfgVO.getName();
-      this.poolMap.put(poolName, pool);
-      String mbeanName = packageName + ":type=Pool" + (poolName == null ? "" : ",name=" + poolName);
-      MBeanFacade.registerMBean(mbeanFacade, pool, mbeanName, poolName);
-      LOGGER.info("init pool " + poolName + " success, cost " + (System.currentTimeMillis() - begin)
-          + "ms");
+    } catch (InterruptedException e) {
+      throw new ConnectionPoolException(e);
+    }
+    if (error.get() != null) {
+      throw new ConnectionPoolException(error.get());
     }
   }
 
+  private void registerMBean(MBeanFacade mbeanFacade, ConnectionPoolManager pool) {
+    String packageName = this.getClass().getPackage().getName();
+    String poolName = pool.getCfgVO().getName();
+    String mbeanName = packageName + ":type=Pool" + (poolName == null ? "" : ",name=" + poolName);
+    MBeanFacade.registerMBean(mbeanFacade, pool, mbeanName, poolName);
+  }
+
   /**
    * 多个连接池时不支持{@link #getConnection getConnection}；<br>
    * 此时使用{@link #getConnection(String) getConnection(String)}来获取连接；
    *
    * @see #getConnection(String)
    */
-  PooledConnection getConnection(long maxWait) throws SQLException {
+  PooledConnection getConnection(long maxWait, ConnectionState state, String sql)
+      throws SQLException {
     if (this.poolMap.size() != 1) {
       throw new UnsupportedOperationException(
           "not supported, poolMap's size is " + this.poolMap.size());
     }
     PooledConnection pooledConnection = null;
     for (ConnectionPoolManager pool : this.poolMap.values()) {
-      pooledConnection = pool.exitPool(maxWait);
+      pooledConnection = pool.exitPool(maxWait, state, sql);
       break;
     }
     return pooledConnection;
   }
 
-  PooledConnection getConnection(String name, long maxWait) throws SQLException {
+  PooledConnection getConnection(String name, long maxWait, ConnectionState state, String sql)
+      throws SQLException {
     ConnectionPoolManager pool = this.poolMap.get(name);
     if (pool == null) {
       return null;
     }
-    PooledConnection pooledConnection = pool.exitPool(maxWait);
+    PooledConnection pooledConnection = pool.exitPool(maxWait, state, sql);
     return pooledConnection;
   }
 
+  /**
+   * 多个连接池时不支持，此时使用{@link #getConnectionAsync(String, long, ConnectionCallback)}
+   */
+  ConnectionFuture getConnectionAsync(long maxWait, ConnectionCallback callback) {
+    if (this.poolMap.size() != 1) {
+      throw new UnsupportedOperationException(
+          "not supported, poolMap's size is " + this.poolMap.size());
+    }
+    ConnectionFuture future = null;
+    for (ConnectionPoolManager pool : this.poolMap.values()) {
+      future = pool.exitPoolAsync(maxWait, callback);
+      break;
+    }
+    return future;
+  }
+
+  ConnectionFuture getConnectionAsync(String name, long maxWait, ConnectionCallback callback) {
+    ConnectionPoolManager pool = this.poolMap.get(name);
+    if (pool == null) {
+      return null;
+    }
+    return pool.exitPoolAsync(maxWait, callback);
+  }
+
   void close(MBeanFacade mbeanFacade, String name) {
     ConnectionPoolManager realPool = this.poolMap.remove(name);
     if (realPool != null) {
@@ -136,8 +220,8 @@ class ConnectionPoolContainer {
   }
 
   void close(MBeanFacade mbeanFacade) {
-    if (this.idleCheckHookThread != null) {
-      this.idleCheckHookThread.interrupt();
+    if (this.maintenanceScheduler != null) {
+      this.maintenanceScheduler.stop();
     }
     for (Entry<String, ConnectionPoolManager> e : this.poolMap.entrySet()) {
       String poolName = e.getKey();
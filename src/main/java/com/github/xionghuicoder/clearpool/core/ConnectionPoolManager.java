@@ -1,23 +1,29 @@
 package com.github.xionghuicoder.clearpool.core;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
+import java.lang.ref.WeakReference;
 import java.sql.SQLException;
-import java.util.IdentityHashMap;
-import java.util.Map;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.sql.PooledConnection;
 
+import com.github.xionghuicoder.clearpool.ConnectionPoolCircuitOpenException;
 import com.github.xionghuicoder.clearpool.ConnectionPoolException;
 import com.github.xionghuicoder.clearpool.ConnectionPoolUselessConnectionException;
-import com.github.xionghuicoder.clearpool.core.chain.BinaryHeap;
+import com.github.xionghuicoder.clearpool.core.chain.ConnectionMatcher;
+import com.github.xionghuicoder.clearpool.core.hook.MaintenanceScheduler;
 import com.github.xionghuicoder.clearpool.datasource.CommonConnection;
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionDefaults;
 import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+import com.github.xionghuicoder.clearpool.datasource.proxy.SqlFingerprintSet;
 import com.github.xionghuicoder.clearpool.logging.PoolLogger;
 import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
 
@@ -35,142 +41,700 @@ import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
 public class ConnectionPoolManager {
   private static final PoolLogger LOGGER = PoolLoggerFactory.getLogger(ConnectionPoolManager.class);
 
-  private Lock lock = new ReentrantLock();
-  private Condition notEmpty = this.lock.newCondition();
+  private final BorrowEngine borrowEngine;
 
-  private final BinaryHeap connectionChain = new BinaryHeap();;
+  // value表示是否已经安排了维护任务
+  private final ConcurrentMap<ConnectionProxy, Boolean> connectionProxyMap =
+      new ConcurrentHashMap<ConnectionProxy, Boolean>();
 
-  private volatile Map<ConnectionProxy, Boolean> connectionProxyMap =
-      new IdentityHashMap<ConnectionProxy, Boolean>();
+  private volatile MaintenanceScheduler maintenanceScheduler;
 
   private volatile boolean closed;
 
   private final ConfigurationVO cfgVO;
 
-  private AtomicInteger poolSize = new AtomicInteger();
+  private final AtomicInteger poolSize = new AtomicInteger();
 
   // 数据库连接的最高峰值
-  private int peakPoolSize;
+  private final AtomicInteger peakPoolSize = new AtomicInteger();
 
-  ConnectionPoolManager(ConfigurationVO cfgVO) {
+  /**
+   * 线程亲和缓存，记录当前线程最近归还的连接；使用弱引用，避免连接池关闭后线程仍持有连接
+   */
+  private final ThreadLocal<WeakReference<ConnectionProxy>> affinityHolder;
+  private final AtomicLong affinityHitCount = new AtomicLong();
+  private final AtomicLong affinityMissCount = new AtomicLong();
+
+  // 并行新建连接，并在后台关闭和补充失效的连接
+  private final ConnectionCreator connectionCreator;
+
+  // 预热耗时(ms)，预热完成前为-1
+  private volatile long startupMillis = -1;
+
+  // 开启adaptive时按需调整连接池大小，否则为null
+  private final AdaptiveSizer adaptiveSizer;
+
+  // 异步获取连接时排队的ConnectionFuture，归还的连接优先交给它们
+  private final Queue<ConnectionFuture> connectionFutureQueue =
+      new ConcurrentLinkedQueue<ConnectionFuture>();
+
+  private final ConnectionValidator validator;
+
+  // 开启optimisticValidation时，换连接重试第一条sql的次数
+  private final AtomicLong optimisticRetryCount = new AtomicLong();
+
+  private final CreationCircuitBreaker circuitBreaker;
+
+  // maxLifetime的随机提前比例，避免同时新建的连接同时退役
+  private static final double LIFETIME_JITTER = 0.1;
+  private final Random random = new Random();
+  private final AtomicLong retiredCount = new AtomicLong();
+  // 退役时新建替代连接失败后，推迟退役的时间(ms)，每次失败翻倍
+  private static final long RETIRE_BACKOFF_MIN = 1000L;
+  private static final long RETIRE_BACKOFF_MAX = 60 * 1000L;
+
+  // 驱动给新连接的默认属性，从第一个连接读取
+  private volatile ConnectionDefaults connectionDefaults;
+  private volatile ConnectionState defaultState;
+  private volatile ConnectionMatcher defaultMatcher;
+
+  // 有连接按ConnectionState借出过之后为true，之后普通借用也优先借出处于默认状态的连接
+  private volatile boolean stateAware;
+  // 按状态借出时，借到的连接已经处于该状态和需要修改状态的次数
+  private final AtomicLong stateMatchCount = new AtomicLong();
+  private final AtomicLong stateSwitchCount = new AtomicLong();
+
+  // 按sql借出时，借到的连接执行过该sql和没有执行过的次数
+  private final AtomicLong sqlAffinityHitCount = new AtomicLong();
+  private final AtomicLong sqlAffinityMissCount = new AtomicLong();
+
+  // 所有连接缓存的statement估算占用的内存(byte)，只在限制statementCacheMemory时统计
+  private final AtomicLong statementCacheBytes = new AtomicLong();
+  private final AtomicLong statementCacheHitCount = new AtomicLong();
+  private final AtomicLong statementCacheMissCount = new AtomicLong();
+
+  // 本连接池和所有连接池共享的新建物理连接限速，不限速时为null
+  private final CreationRateLimiter rateLimiter;
+  private final CreationRateLimiter sharedRateLimiter;
+
+  ConnectionPoolManager(ConfigurationVO cfgVO, CreationRateLimiter sharedRateLimiter) {
     this.cfgVO = cfgVO;
+    if (cfgVO.isLockFree()) {
+      this.borrowEngine = new LockFreeBorrowEngine(this);
+    } else {
+      this.borrowEngine =
+          new LockBorrowEngine(this, cfgVO.isStriped() ? cfgVO.getStripeCount() : 1,
+              cfgVO.isFair());
+    }
+    if (cfgVO.isThreadAffinity()) {
+      this.affinityHolder = new ThreadLocal<WeakReference<ConnectionProxy>>();
+    } else {
+      this.affinityHolder = null;
+    }
+    this.connectionCreator =
+        new ConnectionCreator(this, Math.max(cfgVO.getAcquireIncrement() - 1, 1));
+    this.adaptiveSizer = cfgVO.isAdaptive() ? new AdaptiveSizer(this) : null;
+    this.validator = new ConnectionValidator(cfgVO);
+    this.circuitBreaker = new CreationCircuitBreaker(cfgVO);
+    this.rateLimiter = cfgVO.getCreateRate() > 0
+        ? new CreationRateLimiter(cfgVO.getCreateRate(), cfgVO.getCreateBurst()) : null;
+    this.sharedRateLimiter = sharedRateLimiter;
   }
 
+  /**
+   * 预热连接池，最多使用<tt>warmUpThreads</tt>个线程并行新建<tt>corePoolSize</tt>个连接；<br>
+   * 每个连接新建好后立即可以借出
+   */
   void initPool() {
-    this.fillPool(this.cfgVO.getCorePoolSize());
+    long begin = System.currentTimeMillis();
+    final int corePoolSize = this.cfgVO.getCorePoolSize();
+    final AtomicInteger remain = new AtomicInteger(corePoolSize);
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    Runnable warmUp = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          while (remain.getAndDecrement() > 0
+              && ConnectionPoolManager.this.growOne(corePoolSize)) {
+            // continue
+          }
+        } catch (Throwable t) {
+          error.compareAndSet(null, t);
+          remain.set(0);
+        }
+      }
+    };
+    int threadCount = Math.min(corePoolSize, this.cfgVO.getWarmUpThreads());
+    Thread[] threads = new Thread[Math.max(threadCount - 1, 0)];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = this.startThread(warmUp, "WarmUp-" + this.cfgVO.getName() + "-" + (i + 1));
+    }
+    warmUp.run();
+    try {
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException e) {
+      throw new ConnectionPoolException(e);
+    }
+    if (error.get() != null) {
+      throw new ConnectionPoolException(error.get());
+    }
+    this.startupMillis = System.currentTimeMillis() - begin;
+    LOGGER.info("warm up pool " + this.cfgVO.getName() + " success, " + this.poolSize.get()
+        + " connections, cost " + this.startupMillis + "ms");
+  }
+
+  /**
+   * 后台预热连接池，预热失败时借用线程仍会自己新建连接
+   */
+  void initPoolAsync() {
+    this.startThread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          ConnectionPoolManager.this.initPool();
+        } catch (Throwable t) {
+          LOGGER.error("warm up pool " + ConnectionPoolManager.this.cfgVO.getName() + " error: ",
+              t);
+        }
+      }
+    }, "WarmUp-" + this.cfgVO.getName());
+  }
+
+  private Thread startThread(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable);
+    thread.setName(name);
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * 在连接数小于<tt>limit</tt>时新建一个连接；<br>
+   * 预热时<tt>limit</tt>是<tt>corePoolSize</tt>，async模式下借用线程可能已经新建了连接，所以连接数达到后不再预热
+   *
+   * @return 是否新建了连接
+   */
+  private boolean growOne(int limit) {
+    if (this.poolSize.get() >= limit || this.reservePoolSize(1) == 0) {
+      return false;
+    }
+    ConnectionProxy conProxy;
+    try {
+      conProxy = this.createConnection();
+    } catch (RuntimeException e) {
+      this.releasePoolSize(1);
+      throw e;
+    }
+    if (this.closed) {
+      this.remove();
+      return false;
+    }
+    this.borrowEngine.publish(conProxy);
+    return true;
   }
 
   public void entryPool(ConnectionProxy conProxy) {
     if (conProxy == null) {
       throw new NullPointerException();
     }
-    this.lock.lock();
-    try {
-      this.connectionChain.add(conProxy);
-      this.notEmpty.signal();
-    } finally {
-      this.lock.unlock();
+    if (this.adaptiveSizer != null) {
+      this.adaptiveSizer.recordReturn(System.nanoTime() - conProxy.getBorrowNanos());
+    }
+    if (this.isExpired(conProxy)) {
+      this.retire(conProxy);
+      return;
+    }
+    this.requite(conProxy);
+  }
+
+  /**
+   * @return 连接是否达到<tt>maxLifetime</tt>或<tt>maxUses</tt>
+   */
+  private boolean isExpired(ConnectionProxy conProxy) {
+    int maxUses = this.cfgVO.getMaxUses();
+    return maxUses > 0 && conProxy.getUseCount() >= maxUses
+        || conProxy.getRetireTime() <= System.currentTimeMillis();
+  }
+
+  private void retire(ConnectionProxy conProxy) {
+    this.retiredCount.incrementAndGet();
+    this.connectionCreator.retire(conProxy, this.borrowEngine);
+  }
+
+  /**
+   * 空闲连接达到<tt>maxLifetime</tt>后退役，由{@link MaintenanceScheduler MaintenanceScheduler}调用；<br>
+   * 正在使用的连接不退役，归还时再退役
+   *
+   * @return 下次检查的延迟(ms)，不需要再检查时返回-1
+   */
+  public long retireIdle(ConnectionProxy conProxy) {
+    if (this.closed || !this.connectionProxyMap.containsKey(conProxy)) {
+      return -1;
+    }
+    if (conProxy.compareAndSetState(ConnectionProxy.STATE_IDLE,
+        ConnectionProxy.STATE_RESERVED)) {
+      this.retire(conProxy);
+      return -1;
+    }
+    // 正在保活检测的连接稍后再试
+    return conProxy.getState() == ConnectionProxy.STATE_IN_USE ? -1 : 0;
+  }
+
+  /**
+   * 退役时新建替代连接失败，旧连接放回连接池继续使用；<br>
+   * 退役时间推迟<tt>RETIRE_BACKOFF_MIN * 2^(n-1)</tt>(ms)，不超过<tt>RETIRE_BACKOFF_MAX</tt>，到期后重新安排退役任务
+   */
+  void retireFailed(ConnectionProxy conProxy) {
+    int failures = conProxy.incrementRetireFailures();
+    long backoff =
+        Math.min(RETIRE_BACKOFF_MIN << Math.min(failures - 1, 6), RETIRE_BACKOFF_MAX);
+    conProxy.setRetireTime(System.currentTimeMillis() + backoff);
+    this.putBack(conProxy);
+    MaintenanceScheduler scheduler = this.maintenanceScheduler;
+    if (scheduler != null) {
+      scheduler.scheduleRetire(this, conProxy);
+    }
+  }
+
+  /**
+   * 把被保留的连接放回连接池，不做退役检查
+   */
+  void putBack(ConnectionProxy conProxy) {
+    conProxy.setState(ConnectionProxy.STATE_IN_USE);
+    if (!this.handoffAsync(conProxy)) {
+      this.borrowEngine.requite(conProxy);
+    }
+  }
+
+  private void requite(ConnectionProxy conProxy) {
+    if (this.handoffAsync(conProxy)) {
+      return;
+    }
+    if (this.affinityHolder != null) {
+      this.affinityHolder.set(new WeakReference<ConnectionProxy>(conProxy));
+    }
+    this.borrowEngine.requite(conProxy);
+  }
+
+  /**
+   * 检测空闲超过<tt>keepTestPeriod</tt>的连接，由{@link MaintenanceScheduler MaintenanceScheduler}调用；<br>
+   * 检测期间连接是{@link ConnectionProxy#STATE_RESERVED STATE_RESERVED}状态，借用线程会跳过它，不需要持有连接池的锁
+   *
+   * @return 下次检测的延迟(ms)，连接已关闭时返回-1
+   */
+  public long keepAlive(ConnectionProxy conProxy) {
+    if (this.closed || !this.connectionProxyMap.containsKey(conProxy)) {
+      return -1;
+    }
+    long period = this.cfgVO.getKeepTestPeriod();
+    long idle = System.currentTimeMillis() - conProxy.getEntryTime();
+    if (idle < period) {
+      return period - idle;
+    }
+    if (!conProxy.compareAndSetState(ConnectionProxy.STATE_IDLE,
+        ConnectionProxy.STATE_RESERVED)) {
+      // 正在使用，归还后重新计时
+      return period;
+    }
+    if (this.testConnection(conProxy)) {
+      this.putBack(conProxy);
+      return period;
+    }
+    this.discard(conProxy);
+    return -1;
+  }
+
+  /**
+   * 回收空闲超过<tt>limitIdleTime</tt>的多余连接，由{@link MaintenanceScheduler MaintenanceScheduler}调用
+   */
+  public void evictIdle() {
+    long period = this.cfgVO.getLimitIdleTime();
+    while (this.isNeedCollected()) {
+      ConnectionProxy conProxy = this.exitPoolIdle(period);
+      if (conProxy == null) {
+        break;
+      }
+      if (!this.tryDecrementPoolSize()) {
+        // 并发退役的连接已经把连接数减到corePoolSize
+        this.putBack(conProxy);
+        break;
+      }
+      this.closeConnection(conProxy);
+    }
+  }
+
+  /**
+   * 设置维护任务的调度器，并为已有的连接安排维护任务
+   */
+  public void setMaintenanceScheduler(MaintenanceScheduler maintenanceScheduler) {
+    this.maintenanceScheduler = maintenanceScheduler;
+    for (ConnectionProxy conProxy : this.connectionProxyMap.keySet()) {
+      this.scheduleMaintenance(conProxy);
+    }
+  }
+
+  /**
+   * 每个连接只安排一次维护任务
+   */
+  private void scheduleMaintenance(ConnectionProxy conProxy) {
+    MaintenanceScheduler scheduler = this.maintenanceScheduler;
+    if (scheduler != null && this.connectionProxyMap.replace(conProxy, false, true)) {
+      scheduler.connectionCreated(this, conProxy);
+    }
+  }
+
+  /**
+   * 连接借出后调用，记录调用方的等待期限，开启adaptive时统计借用次数和等待时间
+   */
+  private void onBorrowed(ConnectionProxy conProxy, long beginNanos, long maxWait) {
+    conProxy.incrementUseCount();
+    conProxy.setBorrowDeadline(maxWait > 0, beginNanos + TimeUnit.MILLISECONDS.toNanos(maxWait));
+    if (this.adaptiveSizer != null) {
+      long now = System.nanoTime();
+      this.adaptiveSizer.recordBorrow(now - beginNanos);
+      conProxy.setBorrowNanos(now);
     }
   }
 
   public PooledConnection exitPool(long maxWait) throws SQLException {
-    long nanos = TimeUnit.MILLISECONDS.toNanos(maxWait);
+    return this.exitPool(maxWait, null);
+  }
+
+  /**
+   * 借出处于<tt>state</tt>状态的连接，优先借出已经处于该状态的空闲连接，没有时借出其它连接再修改它的属性
+   *
+   * @param state 期望的连接状态，为<tt>null</tt>时借出驱动默认状态的连接
+   */
+  public PooledConnection exitPool(long maxWait, ConnectionState state) throws SQLException {
+    return this.exitPool(maxWait, state, null);
+  }
+
+  /**
+   * 借出处于<tt>state</tt>状态的连接，并优先借出执行过<tt>sql</tt>的空闲连接
+   *
+   * @param state 期望的连接状态，为<tt>null</tt>时借出驱动默认状态的连接
+   * @param sql 借出后将要执行的sql，为<tt>null</tt>时不关心
+   */
+  public PooledConnection exitPool(long maxWait, ConnectionState state, String sql)
+      throws SQLException {
+    ConnectionMatcher stateMatcher = null;
+    if (state != null) {
+      this.stateAware = true;
+      stateMatcher = new StateMatcher(state);
+    } else if (this.stateAware) {
+      state = this.defaultState;
+      stateMatcher = this.defaultMatcher;
+    }
+    ConnectionMatcher sqlMatcher = sql == null ? null : new SqlMatcher(sql, state);
+    boolean timed = maxWait > 0;
+    long begin = System.nanoTime();
+    long deadline = begin + TimeUnit.MILLISECONDS.toNanos(maxWait);
+    ConnectionProxy conProxy = this.borrow(timed, deadline, sqlMatcher, stateMatcher);
+    if (conProxy == null) {
+      return null;
+    }
+    if (sql != null) {
+      if (conProxy.hasStatement(sql)) {
+        this.sqlAffinityHitCount.incrementAndGet();
+      } else {
+        this.sqlAffinityMissCount.incrementAndGet();
+      }
+    }
+    if (state != null) {
+      this.switchState(conProxy, state);
+    }
+    this.onBorrowed(conProxy, begin, maxWait);
+    PooledConnection pooledConnection =
+        this.cfgVO.getAbstractDataSource().createPooledConnection(conProxy);
+    return pooledConnection;
+  }
+
+  /**
+   * 把借出的连接修改成<tt>state</tt>，失败时丢弃该连接
+   */
+  private void switchState(ConnectionProxy conProxy, ConnectionState state) throws SQLException {
+    boolean changed;
+    try {
+      changed = conProxy.applyState(state);
+    } catch (SQLFeatureNotSupportedException e) {
+      this.requite(conProxy);
+      throw e;
+    } catch (SQLException e) {
+      this.discard(conProxy);
+      throw e;
+    }
+    if (changed) {
+      this.stateSwitchCount.incrementAndGet();
+    } else {
+      this.stateMatchCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * 异步获取连接，没有空闲连接时{@link ConnectionFuture ConnectionFuture}排队等待，不占用线程；<br>
+   * 调用线程只取空闲连接，新建连接和借出前检测都交给{@link ConnectionCreator ConnectionCreator}，由它完成排队的future
+   *
+   * @param maxWait 最大等待时间，<tt>maxWait</tt>小于等于0时一直等待，超过<tt>maxWait</tt>(ms)后以null完成
+   * @param callback 完成时的回调，可以为<tt>null</tt>
+   * @return 异步获取连接的结果
+   */
+  public ConnectionFuture exitPoolAsync(long maxWait, ConnectionCallback callback) {
+    ConnectionFuture future = new ConnectionFuture(this, maxWait, callback);
+    if (this.closed) {
+      future.fail(new ConnectionPoolException("pool is closed"));
+      return future;
+    }
+    boolean validate = this.cfgVO.isTestBeforeUse() && !this.cfgVO.isOptimisticValidation();
+    ConnectionProxy conProxy = this.borrowEngine.poll();
+    if (conProxy != null && !validate) {
+      if (future.complete(conProxy)) {
+        this.onBorrowed(conProxy, future.getBeginNanos(), future.getMaxWait());
+      } else {
+        this.requite(conProxy);
+      }
+      return future;
+    }
+    // 没有空闲连接时预占一个连接数，由创建线程池新建后交给排队的future
+    boolean create = conProxy == null && this.reservePoolSize(1) == 1;
+    if (conProxy == null && !create && maxWait <= 0
+        && this.cfgVO.isUselessConnectionException()) {
+      future.fail(new ConnectionPoolUselessConnectionException(
+          "there is no connection left in the pool, the maxPoolSize is: "
+              + this.cfgVO.getMaxPoolSize()));
+      return future;
+    }
+    this.connectionFutureQueue.offer(future);
+    if (maxWait > 0) {
+      future.scheduleTimeout(maxWait);
+    }
+    if (conProxy != null) {
+      this.connectionCreator.validate(conProxy, this.borrowEngine);
+    } else if (create) {
+      this.createAsync(1);
+    } else {
+      // 排队之前归还的连接不会交给future，所以排队之后再检查一遍
+      conProxy = this.borrowEngine.poll();
+      if (conProxy != null) {
+        if (validate) {
+          this.connectionCreator.validate(conProxy, this.borrowEngine);
+        } else {
+          this.requite(conProxy);
+        }
+      }
+    }
+    if (this.closed) {
+      this.failConnectionFutures();
+    }
+    return future;
+  }
+
+  /**
+   * 把连接直接交给排队最久的{@link ConnectionFuture ConnectionFuture}
+   *
+   * @return 是否交出
+   */
+  boolean handoffAsync(ConnectionProxy conProxy) {
+    if (this.connectionFutureQueue.isEmpty()) {
+      return false;
+    }
+    ConnectionFuture future;
+    while ((future = this.connectionFutureQueue.poll()) != null) {
+      if (future.complete(conProxy)) {
+        this.onBorrowed(conProxy, future.getBeginNanos(), future.getMaxWait());
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 创建线程池新建连接失败时调用，排队最久的{@link ConnectionFuture ConnectionFuture}以该异常完成；<br>
+   * 与同步借用一致：新建失败时等待的借用线程会自己新建连接并得到异常
+   */
+  void createFailed(Throwable t) {
+    if (this.connectionFutureQueue.isEmpty()) {
+      return;
+    }
+    Exception e = t instanceof Exception ? (Exception) t : new ConnectionPoolException(t);
+    ConnectionFuture future;
+    while ((future = this.connectionFutureQueue.poll()) != null) {
+      if (future.fail(e)) {
+        return;
+      }
+    }
+  }
+
+  void removeConnectionFuture(ConnectionFuture future) {
+    this.connectionFutureQueue.remove(future);
+  }
+
+  private void failConnectionFutures() {
+    ConnectionFuture future;
+    while ((future = this.connectionFutureQueue.poll()) != null) {
+      future.fail(new ConnectionPoolException("pool is closed"));
+    }
+  }
+
+  /**
+   * 借出连接，<tt>testBeforeUse</tt>为true时连接无效会丢弃后重新借
+   *
+   * @param timed 是否限时等待
+   * @param deadline 限时等待的截止时间(ns)
+   * @param sqlMatcher 不为<tt>null</tt>时最优先借出执行过该sql的空闲连接
+   * @param stateMatcher 不为<tt>null</tt>时其次借出已经处于该状态的空闲连接
+   * @return 连接，限时等待超时后返回<tt>null</tt>
+   */
+  private ConnectionProxy borrow(boolean timed, long deadline, ConnectionMatcher sqlMatcher,
+      ConnectionMatcher stateMatcher) {
+    boolean validate = this.cfgVO.isTestBeforeUse() && !this.cfgVO.isOptimisticValidation();
+    return this.borrow(timed, deadline, validate, false, sqlMatcher, stateMatcher);
+  }
+
+  /**
+   * @param validate 是否检测连接
+   * @param force 是否忽略<tt>validationWindow</tt>强制检测
+   */
+  private ConnectionProxy borrow(boolean timed, long deadline, boolean validate, boolean force,
+      ConnectionMatcher sqlMatcher, ConnectionMatcher stateMatcher) {
     ConnectionProxy conProxy = null;
     for (;;) {
-      this.lock.lock();
-      try {
-        do {
-          conProxy = this.connectionChain.removeFirst();
-          if (conProxy == null) {
-            int maxIncrement = this.cfgVO.getMaxPoolSize() - this.poolSize.get();
-            if (maxIncrement == 0) {
-              if (maxWait > 0) {
-                // wait
-                while (this.connectionChain.size() == 0) {
-                  nanos = this.notEmpty.awaitNanos(nanos);
-                  if (nanos <= 0) {
-                    return null;
-                  }
-                }
-              } else if (this.cfgVO.isUselessConnectionException()) {
-                throw new ConnectionPoolUselessConnectionException(
-                    "there is no connection left in the pool, the maxPoolSize is: "
-                        + this.cfgVO.getMaxPoolSize());
-              } else {
-                // wait
-                while (this.connectionChain.size() == 0) {
-                  this.notEmpty.await();
-                }
-              }
-            } else {
-              int increment = this.cfgVO.getAcquireIncrement();
-              if (increment > maxIncrement) {
-                increment = maxIncrement;
-              }
-              this.fillPool(increment);
-            }
-          }
-        } while (conProxy == null);
-      } catch (InterruptedException e) {
-        throw new ConnectionPoolException(e);
-      } finally {
-        this.lock.unlock();
+      conProxy = sqlMatcher == null ? null : this.borrowEngine.pollMatching(sqlMatcher);
+      if (conProxy == null && stateMatcher != null) {
+        conProxy = this.borrowEngine.pollMatching(stateMatcher);
+      }
+      if (conProxy == null) {
+        conProxy = this.claimAffinity();
+      }
+      if (conProxy == null) {
+        try {
+          conProxy = this.borrowEngine.borrow(timed, deadline - System.nanoTime());
+        } catch (InterruptedException e) {
+          throw new ConnectionPoolException(e);
+        }
+        if (conProxy == null) {
+          return null;
+        }
       }
-      if (this.cfgVO.isTestBeforeUse()) {
-        boolean isValid = this.testConnection(conProxy);
+      if (validate) {
+        boolean isValid = force ? this.validator.validate(conProxy)
+            : this.validator.validateBeforeUse(conProxy);
         if (!isValid) {
-          this.decrementPoolSize();
-          this.closeConnection(conProxy);
-          this.incrementOneConnection();
+          // 不等待补充的新连接，直接借下一个空闲连接或者排队等待
+          this.discard(conProxy);
           continue;
         }
       }
-      break;
+      return conProxy;
     }
-    PooledConnection pooledConnection =
-        this.cfgVO.getAbstractDataSource().createPooledConnection(conProxy);
-    return pooledConnection;
   }
 
-  public ConnectionProxy exitPoolIdle(long period) {
-    this.lock.lock();
+  /**
+   * 丢弃借出后发现失效的连接，再借出一个检测过的连接代替它，开启<tt>optimisticValidation</tt>时使用；<br>
+   * 失效连接交给{@link #discard discard}在创建线程池中关闭，借出新连接仍然以原来借出时的<tt>maxWait</tt>为期限
+   *
+   * @return 新的连接，失败或超时时返回<tt>null</tt>
+   */
+  public ConnectionProxy replace(ConnectionProxy conProxy) {
+    this.discard(conProxy);
+    this.optimisticRetryCount.incrementAndGet();
+    ConnectionProxy newProxy;
     try {
-      return this.connectionChain.removeIdle(period);
-    } finally {
-      this.lock.unlock();
+      newProxy = this.borrow(conProxy.isBorrowTimed(), conProxy.getBorrowDeadline(), true, true,
+          null, null);
+    } catch (RuntimeException e) {
+      LOGGER.error("replace connection error: ", e);
+      return null;
+    }
+    if (newProxy == null) {
+      LOGGER.error("replace connection timeout");
+      return null;
     }
+    newProxy.setBorrowNanos(conProxy.getBorrowNanos());
+    newProxy.setBorrowDeadline(conProxy.isBorrowTimed(), conProxy.getBorrowDeadline());
+    return newProxy;
   }
 
-  public void incrementOneConnection() {
-    this.lock.lock();
-    try {
-      this.fillPool(1);
-    } finally {
-      this.lock.unlock();
+  /**
+   * 不加锁地取回当前线程最近归还的连接；该连接仍在借还引擎中，如果已被其它线程取走则CAS失败
+   *
+   * @return 取回的连接，未开启线程亲和或取回失败时返回<tt>null</tt>
+   */
+  private ConnectionProxy claimAffinity() {
+    if (this.affinityHolder == null) {
+      return null;
+    }
+    WeakReference<ConnectionProxy> reference = this.affinityHolder.get();
+    if (reference != null) {
+      ConnectionProxy conProxy = reference.get();
+      if (conProxy != null && conProxy.compareAndSetState(ConnectionProxy.STATE_IDLE,
+          ConnectionProxy.STATE_IN_USE)) {
+        this.affinityHitCount.incrementAndGet();
+        return conProxy;
+      }
     }
+    this.affinityMissCount.incrementAndGet();
+    return null;
   }
 
-  private void fillPool(int poolNum) {
-    int retryTimes = this.cfgVO.getAcquireRetryTimes();
-    for (int i = 0; i < poolNum; i++) {
-      ConnectionProxy conProxy = this.tryGetConnection(retryTimes);
-      if (this.closed) {
-        this.remove();
-        return;
-      }
-      this.connectionChain.add(conProxy);
-      this.handlePeakPoolSize(i + 1);
+  public ConnectionProxy exitPoolIdle(long period) {
+    return this.borrowEngine.pollIdle(period);
+  }
+
+  /**
+   * 丢弃失效的连接，物理连接的关闭和新连接的补充都交给{@link ConnectionCreator ConnectionCreator}；<br>
+   * 失效连接占用的<tt>poolSize</tt>直接留给新连接，所以连接池满时借用线程会排队等待新连接，而不是自己新建
+   */
+  public void discard(ConnectionProxy conProxy) {
+    this.connectionCreator.replenish(conProxy, this.borrowEngine);
+  }
+
+  /**
+   * 在创建线程池中异步新建<tt>num</tt>个连接，调用前<tt>poolSize</tt>已经预占
+   */
+  void createAsync(int num) {
+    if (num <= 0) {
+      return;
     }
-    this.poolSize.addAndGet(poolNum);
+    this.connectionCreator.create(num, this.borrowEngine);
+  }
+
+  ConnectionProxy createConnection() {
+    return this.createConnection(false, 0);
+  }
+
+  /**
+   * 借用线程新建连接，限时借用时等待新建令牌不超过借用的截止时间
+   *
+   * @param timed 是否限时借用
+   * @param deadline 限时借用的截止时间({@link System#nanoTime()})
+   * @return 新建的连接，截止前拿不到新建令牌时返回<tt>null</tt>
+   */
+  ConnectionProxy createConnection(boolean timed, long deadline) {
+    return this.tryGetConnection(this.cfgVO.getAcquireRetryTimes(), timed, deadline);
   }
 
-  private ConnectionProxy tryGetConnection(int retryTimes) {
+  /**
+   * 新建连接，失败时重试<tt>retryTimes</tt>次；每次新建前先按<tt>createRate</tt>限速，再经过熔断器，熔断期间直接抛出
+   * {@link ConnectionPoolCircuitOpenException ConnectionPoolCircuitOpenException}；<br>
+   * 熔断器放行探测之后必须以onSuccess或onFailure结束，所以等待令牌(可能被中断)要在它之前
+   */
+  private ConnectionProxy tryGetConnection(int retryTimes, boolean timed, long deadline) {
     int count = 0;
     CommonConnection cmnCon = null;
     do {
+      if (!this.acquireCreatePermit(timed, deadline)) {
+        return null;
+      }
+      this.circuitBreaker.acquire();
       try {
         cmnCon = this.cfgVO.getAbstractDataSource().getCommonConnection();
+      } catch (RuntimeException e) {
+        this.circuitBreaker.onFailure();
+        throw e;
       } catch (SQLException e) {
+        this.circuitBreaker.onFailure();
         LOGGER.error("try connect error(" + count + " times): ", e);
         count++;
         if (count > retryTimes) {
@@ -178,13 +742,116 @@ public class ConnectionPoolManager {
         }
       }
     } while (cmnCon == null);
+    this.circuitBreaker.onSuccess();
     ConnectionProxy conProxy = new ConnectionProxy(this, cmnCon);
-    this.connectionProxyMap.put(conProxy, true);
+    long maxLifetime = this.cfgVO.getMaxLifetime();
+    if (maxLifetime > 0) {
+      conProxy.setRetireTime(System.currentTimeMillis() + lifetime(maxLifetime, this.random));
+    }
+    this.connectionProxyMap.put(conProxy, false);
+    this.scheduleMaintenance(conProxy);
     return conProxy;
   }
 
-  public BinaryHeap getConnectionChain() {
-    return this.connectionChain;
+  /**
+   * 新建连接的实际寿命：<tt>maxLifetime</tt>随机提前最多{@link #LIFETIME_JITTER LIFETIME_JITTER}，不会超过<tt>maxLifetime</tt>
+   *
+   * @param random 随机数来源，测试时可以传入固定种子
+   * @return (maxLifetime * (1 - LIFETIME_JITTER), maxLifetime]之间的寿命(ms)
+   */
+  public static long lifetime(long maxLifetime, Random random) {
+    return maxLifetime - (long) (random.nextDouble() * maxLifetime * LIFETIME_JITTER);
+  }
+
+  /**
+   * 依次获取本连接池和共享的新建物理连接令牌，没有令牌时等待
+   *
+   * @return 是否获取到令牌，限时获取时截止前轮不到返回<tt>false</tt>
+   */
+  private boolean acquireCreatePermit(boolean timed, long deadline) {
+    try {
+      if (this.rateLimiter != null && !this.rateLimiter.acquire(timed, deadline)) {
+        return false;
+      }
+      if (this.sharedRateLimiter != null && !this.sharedRateLimiter.acquire(timed, deadline)) {
+        return false;
+      }
+    } catch (InterruptedException e) {
+      throw new ConnectionPoolException(e);
+    }
+    return true;
+  }
+
+  /**
+   * 借用线程新建连接时的连接数；开启adaptive时不超过目标连接数，避免突发时过度新建
+   */
+  int getGrowIncrement() {
+    int acquireIncrement = this.cfgVO.getAcquireIncrement();
+    if (this.adaptiveSizer == null) {
+      return acquireIncrement;
+    }
+    int increment = this.adaptiveSizer.getTargetPoolSize() - this.poolSize.get();
+    return Math.max(1, Math.min(acquireIncrement, increment));
+  }
+
+  /**
+   * 按需调整连接池大小，由{@link MaintenanceScheduler MaintenanceScheduler}定时调用
+   */
+  public void adjustPoolSize() {
+    if (this.adaptiveSizer != null && !this.closed) {
+      this.adaptiveSizer.adjust();
+    }
+  }
+
+  /**
+   * 提前新建连接直到连接数达到<tt>target</tt>
+   *
+   * @return 新建的连接数
+   */
+  int preGrow(int target) {
+    int grown = 0;
+    try {
+      while (this.growOne(target)) {
+        grown++;
+      }
+    } catch (ConnectionPoolException e) {
+      LOGGER.error("pre-grow connection error: ", e);
+    }
+    return grown;
+  }
+
+  /**
+   * 关闭最多<tt>num</tt>个空闲连接，连接数不会低于<tt>corePoolSize</tt>
+   *
+   * @return 关闭的连接数
+   */
+  int shrink(int num) {
+    int shrunk = 0;
+    while (shrunk < num && this.isNeedCollected()) {
+      ConnectionProxy conProxy = this.exitPoolIdle(0);
+      if (conProxy == null) {
+        break;
+      }
+      if (!this.tryDecrementPoolSize()) {
+        this.putBack(conProxy);
+        break;
+      }
+      this.closeConnection(conProxy);
+      shrunk++;
+    }
+    return shrunk;
+  }
+
+  public int getIdleSize() {
+    return this.borrowEngine.idleSize();
+  }
+
+  public int getWaiterSize() {
+    return this.borrowEngine.waiterSize();
+  }
+
+  public long getOldestWaitMillis() {
+    return this.borrowEngine.oldestWaitMillis();
   }
 
   public ConfigurationVO getCfgVO() {
@@ -199,10 +866,55 @@ public class ConnectionPoolManager {
     return this.poolSize.get() > this.cfgVO.getCorePoolSize();
   }
 
-  private void handlePeakPoolSize(int poolNum) {
-    int size = this.poolSize.get() + poolNum;
-    if (size > this.peakPoolSize) {
-      this.peakPoolSize = size;
+  /**
+   * 在不超过<tt>maxPoolSize</tt>的前提下预占最多<tt>num</tt>个连接数
+   *
+   * @param num 期望新建的连接数
+   * @return 实际预占的连接数，已达到<tt>maxPoolSize</tt>时返回0
+   */
+  int reservePoolSize(int num) {
+    for (;;) {
+      int size = this.poolSize.get();
+      int maxIncrement = this.cfgVO.getMaxPoolSize() - size;
+      if (maxIncrement <= 0) {
+        return 0;
+      }
+      int increment = num > maxIncrement ? maxIncrement : num;
+      if (this.poolSize.compareAndSet(size, size + increment)) {
+        this.handlePeakPoolSize(size + increment);
+        return increment;
+      }
+    }
+  }
+
+  /**
+   * 连接数多于<tt>corePoolSize</tt>时减少一个连接数；检查和减少是原子的，并发回收时连接数不会低于<tt>corePoolSize</tt>
+   *
+   * @return 是否减少
+   */
+  boolean tryDecrementPoolSize() {
+    int corePoolSize = this.cfgVO.getCorePoolSize();
+    for (;;) {
+      int size = this.poolSize.get();
+      if (size <= corePoolSize) {
+        return false;
+      }
+      if (this.poolSize.compareAndSet(size, size - 1)) {
+        return true;
+      }
+    }
+  }
+
+  void releasePoolSize(int num) {
+    this.poolSize.addAndGet(-num);
+  }
+
+  private void handlePeakPoolSize(int size) {
+    for (;;) {
+      int peak = this.peakPoolSize.get();
+      if (size <= peak || this.peakPoolSize.compareAndSet(peak, size)) {
+        return;
+      }
     }
   }
 
@@ -215,34 +927,184 @@ public class ConnectionPoolManager {
   }
 
   public int getPeakPoolSize() {
-    return this.peakPoolSize;
+    return this.peakPoolSize.get();
   }
 
-  public boolean testConnection(ConnectionProxy conProxy) {
-    PreparedStatement queryPreparedStatement = null;
-    try {
-      PooledConnection pooledConnection =
-          this.cfgVO.getAbstractDataSource().createPooledConnection(conProxy);
-      Connection con = pooledConnection.getConnection();
-      queryPreparedStatement = con.prepareStatement(this.cfgVO.getTestQuerySql());
-      queryPreparedStatement.execute();
-    } catch (SQLException e) {
-      LOGGER.error(this.cfgVO.getTestQuerySql() + " error: ", e);
-      return false;
-    } finally {
-      if (queryPreparedStatement != null) {
-        try {
-          queryPreparedStatement.close();
-        } catch (SQLException e) {
-          // swallow
-        }
+  public long getStartupMillis() {
+    return this.startupMillis;
+  }
+
+  public int getTargetPoolSize() {
+    return this.adaptiveSizer == null ? -1 : this.adaptiveSizer.getTargetPoolSize();
+  }
+
+  public double getBorrowRate() {
+    return this.adaptiveSizer == null ? 0 : this.adaptiveSizer.getBorrowRate();
+  }
+
+  public double getHoldMillis() {
+    return this.adaptiveSizer == null ? 0 : this.adaptiveSizer.getHoldMillis();
+  }
+
+  public double getWaitMillis() {
+    return this.adaptiveSizer == null ? 0 : this.adaptiveSizer.getWaitMillis();
+  }
+
+  public String getLastSizingDecision() {
+    return this.adaptiveSizer == null ? "-" : this.adaptiveSizer.getLastDecision();
+  }
+
+  public long getAffinityHitCount() {
+    return this.affinityHitCount.get();
+  }
+
+  public long getAffinityMissCount() {
+    return this.affinityMissCount.get();
+  }
+
+  public long getValidationCount() {
+    return this.validator.getValidationCount();
+  }
+
+  public long getValidationSkipCount() {
+    return this.validator.getSkipCount();
+  }
+
+  public long getValidationFailCount() {
+    return this.validator.getFailCount();
+  }
+
+  public long getOptimisticRetryCount() {
+    return this.optimisticRetryCount.get();
+  }
+
+  public String getCircuitState() {
+    return this.circuitBreaker.getStateName();
+  }
+
+  public int getConsecutiveCreateFailures() {
+    return this.circuitBreaker.getConsecutiveFailures();
+  }
+
+  public long getCircuitRetryAfterMillis() {
+    return this.circuitBreaker.getRetryAfterMillis();
+  }
+
+  public long getCircuitOpenCount() {
+    return this.circuitBreaker.getOpenCount();
+  }
+
+  public long getCircuitRejectCount() {
+    return this.circuitBreaker.getRejectCount();
+  }
+
+  /**
+   * @return 本连接池的新建物理连接限速(个/s)，不限速时返回0
+   */
+  public double getCreateRate() {
+    return this.rateLimiter == null ? 0 : this.rateLimiter.getRate();
+  }
+
+  /**
+   * @return 新建物理连接时因为限速而等待的次数，包括共享限速
+   */
+  public long getCreateThrottledCount() {
+    long count = this.rateLimiter == null ? 0 : this.rateLimiter.getThrottledCount();
+    if (this.sharedRateLimiter != null) {
+      count += this.sharedRateLimiter.getThrottledCount();
+    }
+    return count;
+  }
+
+  public ConnectionDefaults getConnectionDefaults() {
+    return this.connectionDefaults;
+  }
+
+  public void setConnectionDefaults(ConnectionDefaults connectionDefaults) {
+    this.defaultState = connectionDefaults.toState();
+    this.defaultMatcher = new StateMatcher(this.defaultState);
+    this.connectionDefaults = connectionDefaults;
+  }
+
+  public long getStateMatchCount() {
+    return this.stateMatchCount.get();
+  }
+
+  public long getStateSwitchCount() {
+    return this.stateSwitchCount.get();
+  }
+
+  public long getSqlAffinityHitCount() {
+    return this.sqlAffinityHitCount.get();
+  }
+
+  public long getSqlAffinityMissCount() {
+    return this.sqlAffinityMissCount.get();
+  }
+
+  /**
+   * 缓存statement前预占连接池的statementCacheMemory
+   *
+   * @return 是否预占成功，超过上限时返回<tt>false</tt>
+   */
+  public boolean reserveStatementMemory(long bytes) {
+    long budget = this.cfgVO.getStatementCacheMemory();
+    if (budget <= 0) {
+      return true;
+    }
+    for (;;) {
+      long current = this.statementCacheBytes.get();
+      long next = current + bytes;
+      if (next > budget) {
+        return false;
+      }
+      if (this.statementCacheBytes.compareAndSet(current, next)) {
+        return true;
       }
     }
-    return true;
+  }
+
+  /**
+   * statement从缓存中取出或被关闭时释放预占的内存
+   */
+  public void releaseStatementMemory(long bytes) {
+    if (this.cfgVO.getStatementCacheMemory() > 0) {
+      this.statementCacheBytes.addAndGet(-bytes);
+    }
+  }
+
+  public void countStatementCache(boolean hit) {
+    if (hit) {
+      this.statementCacheHitCount.incrementAndGet();
+    } else {
+      this.statementCacheMissCount.incrementAndGet();
+    }
+  }
+
+  public long getStatementCacheHitCount() {
+    return this.statementCacheHitCount.get();
+  }
+
+  public long getStatementCacheMissCount() {
+    return this.statementCacheMissCount.get();
+  }
+
+  public long getRetiredCount() {
+    return this.retiredCount.get();
+  }
+
+  boolean validateBeforeUse(ConnectionProxy conProxy) {
+    return this.validator.validateBeforeUse(conProxy);
+  }
+
+  public boolean testConnection(ConnectionProxy conProxy) {
+    return this.validator.validate(conProxy);
   }
 
   public void remove() {
     this.closed = true;
+    this.connectionCreator.shutdown();
+    this.failConnectionFutures();
     for (ConnectionProxy conProxy : this.connectionProxyMap.keySet()
         .toArray(new ConnectionProxy[0])) {
       this.closeConnection(conProxy);
@@ -251,12 +1113,51 @@ public class ConnectionPoolManager {
 
   public void closeConnection(ConnectionProxy conProxy) {
     if (conProxy != null) {
+      conProxy.clearStatementCache();
       try {
         conProxy.getConnection().close();
       } catch (SQLException e) {
         LOGGER.error("close connection error: ", e);
       }
       this.connectionProxyMap.remove(conProxy);
+      this.borrowEngine.remove(conProxy);
+    }
+  }
+
+  /**
+   * 已经处于<tt>state</tt>状态的连接
+   */
+  private static class StateMatcher implements ConnectionMatcher {
+    private final ConnectionState state;
+
+    StateMatcher(ConnectionState state) {
+      this.state = state;
+    }
+
+    @Override
+    public boolean matches(ConnectionProxy conProxy) {
+      return conProxy.matches(this.state);
+    }
+  }
+
+  /**
+   * 执行过<tt>sql</tt>的连接；<tt>state</tt>不为<tt>null</tt>时还要求连接已经处于该状态，避免借出后再修改属性
+   */
+  private static class SqlMatcher implements ConnectionMatcher {
+    private final String sql;
+    private final long fingerprint;
+    private final ConnectionState state;
+
+    SqlMatcher(String sql, ConnectionState state) {
+      this.sql = sql;
+      this.fingerprint = SqlFingerprintSet.fingerprint(sql);
+      this.state = state;
+    }
+
+    @Override
+    public boolean matches(ConnectionProxy conProxy) {
+      return (this.state == null || conProxy.matches(this.state))
+          && conProxy.hasStatement(this.sql, this.fingerprint);
     }
   }
 }
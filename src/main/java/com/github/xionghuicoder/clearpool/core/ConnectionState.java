@@ -0,0 +1,63 @@
+package com.github.xionghuicoder.clearpool.core;
+
+/**
+ * 借用连接时期望的连接状态
+ *
+ * <p>
+ * 为<tt>null</tt>的属性表示不关心；连接池优先借出已经处于该状态的空闲连接，没有时才修改连接的属性；<br>
+ * 连接归还时保持该状态，不恢复成驱动的默认值，所以下一个需要同样状态的借用线程不需要再访问数据库。
+ * </p>
+ *
+ * <p>
+ * 借用期间不要修改同一个ConnectionState对象。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ClearpoolDataSource#getConnection(ConnectionState)
+ */
+public class ConnectionState {
+  private Boolean readOnly;
+  private Integer transactionIsolation;
+  private String catalog;
+  private String schema;
+
+  public Boolean getReadOnly() {
+    return this.readOnly;
+  }
+
+  public void setReadOnly(Boolean readOnly) {
+    this.readOnly = readOnly;
+  }
+
+  public Integer getTransactionIsolation() {
+    return this.transactionIsolation;
+  }
+
+  public void setTransactionIsolation(Integer transactionIsolation) {
+    this.transactionIsolation = transactionIsolation;
+  }
+
+  public String getCatalog() {
+    return this.catalog;
+  }
+
+  public void setCatalog(String catalog) {
+    this.catalog = catalog;
+  }
+
+  public String getSchema() {
+    return this.schema;
+  }
+
+  public void setSchema(String schema) {
+    this.schema = schema;
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionState [readOnly=" + this.readOnly + ", transactionIsolation="
+        + this.transactionIsolation + ", catalog=" + this.catalog + ", schema=" + this.schema + "]";
+  }
+}
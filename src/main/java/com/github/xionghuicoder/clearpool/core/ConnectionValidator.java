@@ -0,0 +1,159 @@
+package com.github.xionghuicoder.clearpool.core;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+import com.github.xionghuicoder.clearpool.logging.PoolLogger;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+import com.github.xionghuicoder.clearpool.util.JdbcUtils;
+import com.github.xionghuicoder.clearpool.util.MysqlUtils;
+import com.github.xionghuicoder.clearpool.util.OracleUtils;
+
+/**
+ * 检测连接是否有效
+ *
+ * <p>
+ * 按url前缀优先使用驱动自带的ping；其次执行配置的<tt>testQuerySql</tt>；
+ * 都没有时使用{@link Connection#isValid Connection.isValid}；<br>
+ * 都直接作用在物理连接上，不经过代理层，也不预编译sql。
+ * </p>
+ *
+ * <p>
+ * 借出前检测时，连接在最近<tt>validationWindow</tt>(ms)内成功使用过则跳过检测。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class ConnectionValidator {
+  private static final PoolLogger LOGGER = PoolLoggerFactory.getLogger(ConnectionValidator.class);
+
+  private static final int TIMEOUT_SECONDS = 5;
+
+  private static final int METHOD_UNKNOWN = 0;
+  private static final int METHOD_MYSQL_PING = 1;
+  private static final int METHOD_ORACLE_PING = 2;
+  private static final int METHOD_IS_VALID = 3;
+  private static final int METHOD_QUERY = 4;
+  private static final int METHOD_NONE = 5;
+
+  private final ConfigurationVO cfgVO;
+
+  // 检测方式由第一个检测的连接决定
+  private volatile int method = METHOD_UNKNOWN;
+
+  private final AtomicLong validationCount = new AtomicLong();
+  private final AtomicLong skipCount = new AtomicLong();
+  private final AtomicLong failCount = new AtomicLong();
+
+  ConnectionValidator(ConfigurationVO cfgVO) {
+    this.cfgVO = cfgVO;
+  }
+
+  /**
+   * 借出前检测，最近<tt>validationWindow</tt>(ms)内成功使用过的连接跳过检测
+   */
+  boolean validateBeforeUse(ConnectionProxy conProxy) {
+    long window = this.cfgVO.getValidationWindow();
+    if (window > 0 && System.currentTimeMillis() - conProxy.getLastValidTime() < window) {
+      this.skipCount.incrementAndGet();
+      return true;
+    }
+    this.validationCount.incrementAndGet();
+    return this.validate(conProxy);
+  }
+
+  boolean validate(ConnectionProxy conProxy) {
+    boolean isValid;
+    try {
+      isValid = this.ping(conProxy.getConnection());
+    } catch (SQLException e) {
+      LOGGER.error("validate connection error: ", e);
+      isValid = false;
+    }
+    if (isValid) {
+      conProxy.setLastValidTime(System.currentTimeMillis());
+    } else {
+      this.failCount.incrementAndGet();
+    }
+    return isValid;
+  }
+
+  private boolean ping(Connection con) throws SQLException {
+    int method = this.method;
+    if (method == METHOD_UNKNOWN) {
+      method = this.method = this.chooseMethod(con);
+    }
+    switch (method) {
+      case METHOD_MYSQL_PING:
+        MysqlUtils.ping(con);
+        return true;
+      case METHOD_ORACLE_PING:
+        return OracleUtils.ping(con, TIMEOUT_SECONDS);
+      case METHOD_IS_VALID:
+        try {
+          return con.isValid(TIMEOUT_SECONDS);
+        } catch (AbstractMethodError e) {
+          // JDBC4之前的驱动
+          LOGGER.warn("driver does not support isValid, please set testQuerySql");
+          this.method = METHOD_NONE;
+          return true;
+        }
+      case METHOD_QUERY:
+        return this.query(con);
+      default:
+        return true;
+    }
+  }
+
+  private int chooseMethod(Connection con) {
+    String url = null;
+    try {
+      url = con.getMetaData().getURL();
+    } catch (SQLException e) {
+      // swallow
+    } catch (RuntimeException e) {
+      // swallow
+    }
+    if (url != null) {
+      try {
+        if (url.startsWith(JdbcUtils.MYSQL_PREFIX) && MysqlUtils.isMysqlConnection(con)) {
+          return METHOD_MYSQL_PING;
+        }
+        if ((url.startsWith(JdbcUtils.ORACLE_ONE_PREFIX)
+            || url.startsWith(JdbcUtils.ORACLE_ANO_PREFIX)) && OracleUtils.isOracleConnection(con)) {
+          return METHOD_ORACLE_PING;
+        }
+      } catch (LinkageError e) {
+        // 其它驱动使用了相同的url前缀
+      }
+    }
+    return this.cfgVO.getTestQuerySql() != null ? METHOD_QUERY : METHOD_IS_VALID;
+  }
+
+  private boolean query(Connection con) throws SQLException {
+    Statement statement = con.createStatement();
+    try {
+      statement.execute(this.cfgVO.getTestQuerySql());
+    } finally {
+      statement.close();
+    }
+    return true;
+  }
+
+  long getValidationCount() {
+    return this.validationCount.get();
+  }
+
+  long getSkipCount() {
+    return this.skipCount.get();
+  }
+
+  long getFailCount() {
+    return this.failCount.get();
+  }
+}
@@ -0,0 +1,138 @@
+package com.github.xionghuicoder.clearpool.core;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.xionghuicoder.clearpool.ConnectionPoolCircuitOpenException;
+
+/**
+ * 新建连接的熔断器
+ *
+ * <p>
+ * 连续<tt>circuitBreakerThreshold</tt>次新建连接失败后熔断，熔断期间新建连接直接抛出
+ * {@link ConnectionPoolCircuitOpenException ConnectionPoolCircuitOpenException}，不再访问数据库；<br>
+ * 退避时间到了之后只放行一次探测，探测成功则恢复，失败则退避时间加倍(不超过<tt>circuitBreakerMaxBackoff</tt>)；<br>
+ * 实际退避时间在[backoff / 2, backoff)之间随机，避免多个连接池同时探测。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class CreationCircuitBreaker {
+  static final int STATE_CLOSED = 0;
+  static final int STATE_OPEN = 1;
+  static final int STATE_HALF_OPEN = 2;
+
+  private static final String[] STATE_NAMES = {"CLOSED", "OPEN", "HALF_OPEN"};
+
+  private final String name;
+  private final int threshold;
+  private final long initialBackoff;
+  private final long maxBackoff;
+
+  private final Random random = new Random();
+
+  private final AtomicInteger state = new AtomicInteger(STATE_CLOSED);
+
+  // 以下两个字段的修改由this锁保护
+  private volatile int consecutiveFailures;
+  private long backoff;
+
+  // 熔断后允许探测的时间(ms)
+  private volatile long retryTime;
+
+  private final AtomicLong openCount = new AtomicLong();
+  private final AtomicLong rejectCount = new AtomicLong();
+
+  CreationCircuitBreaker(ConfigurationVO cfgVO) {
+    this.name = cfgVO.getName();
+    this.threshold = cfgVO.getCircuitBreakerThreshold();
+    this.initialBackoff = cfgVO.getCircuitBreakerBackoff();
+    this.maxBackoff = Math.max(cfgVO.getCircuitBreakerMaxBackoff(), this.initialBackoff);
+    this.backoff = this.initialBackoff;
+  }
+
+  /**
+   * 新建连接前调用，熔断期间只有一个线程可以作为探测通过
+   *
+   * @throws ConnectionPoolCircuitOpenException 熔断期间且没有轮到探测
+   */
+  void acquire() {
+    int current = this.state.get();
+    if (current == STATE_CLOSED) {
+      return;
+    }
+    long remain = this.retryTime - System.currentTimeMillis();
+    if (current == STATE_OPEN && remain <= 0
+        && this.state.compareAndSet(STATE_OPEN, STATE_HALF_OPEN)) {
+      return;
+    }
+    this.rejectCount.incrementAndGet();
+    throw new ConnectionPoolCircuitOpenException("creating connection for pool " + this.name
+        + " is rejected because the circuit is open, retry after " + Math.max(remain, 0) + "ms");
+  }
+
+  void onSuccess() {
+    if (this.consecutiveFailures == 0 && this.state.get() == STATE_CLOSED) {
+      return;
+    }
+    synchronized (this) {
+      this.consecutiveFailures = 0;
+      this.backoff = this.initialBackoff;
+      this.state.set(STATE_CLOSED);
+    }
+  }
+
+  void onFailure() {
+    if (this.threshold <= 0) {
+      return;
+    }
+    synchronized (this) {
+      this.consecutiveFailures++;
+      int current = this.state.get();
+      if (current == STATE_HALF_OPEN) {
+        this.backoff = Math.min(this.backoff * 2, this.maxBackoff);
+        this.open();
+      } else if (current == STATE_CLOSED && this.consecutiveFailures >= this.threshold) {
+        this.backoff = this.initialBackoff;
+        this.open();
+      }
+    }
+  }
+
+  private void open() {
+    long half = this.backoff / 2;
+    long delay = half + (long) (this.random.nextDouble() * (this.backoff - half));
+    this.retryTime = System.currentTimeMillis() + delay;
+    this.state.set(STATE_OPEN);
+    this.openCount.incrementAndGet();
+  }
+
+  String getStateName() {
+    return STATE_NAMES[this.state.get()];
+  }
+
+  int getConsecutiveFailures() {
+    return this.consecutiveFailures;
+  }
+
+  /**
+   * @return 熔断后距离允许探测的时间(ms)，未熔断时返回-1
+   */
+  long getRetryAfterMillis() {
+    if (this.state.get() == STATE_CLOSED) {
+      return -1;
+    }
+    return Math.max(this.retryTime - System.currentTimeMillis(), 0);
+  }
+
+  long getOpenCount() {
+    return this.openCount.get();
+  }
+
+  long getRejectCount() {
+    return this.rejectCount.get();
+  }
+}
@@ -0,0 +1,83 @@
+package com.github.xionghuicoder.clearpool.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 新建物理连接的令牌桶限速
+ *
+ * <p>
+ * 令牌以<tt>rate</tt>(个/s)的速度放入桶中，桶中最多<tt>burst</tt>个令牌，每新建一个物理连接消耗一个令牌；<br>
+ * 没有令牌时预支后面的令牌，按预支的顺序在锁外等待，所以新建连接的线程只会变慢，不会失败；<br>
+ * 限时获取时，如果截止时间前轮不到则不预支，直接返回。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class CreationRateLimiter {
+  private final double rate;
+  private final int burst;
+
+  // 以下两个字段由this锁保护，tokens为负数表示已经预支的令牌
+  private double tokens;
+  private long lastNanos = System.nanoTime();
+
+  private final AtomicLong throttledCount = new AtomicLong();
+
+  CreationRateLimiter(double rate, int burst) {
+    this.rate = rate;
+    this.burst = Math.max(burst, 1);
+    this.tokens = this.burst;
+  }
+
+  /**
+   * 获取一个令牌，没有令牌时等待
+   *
+   * @param timed 是否限时获取
+   * @param deadline 限时获取的截止时间({@link System#nanoTime()})
+   * @return 是否获取到令牌，只有限时获取时才会返回<tt>false</tt>
+   * @throws InterruptedException 等待时被中断
+   */
+  boolean acquire(boolean timed, long deadline) throws InterruptedException {
+    long waitNanos = this.reserve(timed, deadline);
+    if (waitNanos != 0) {
+      this.throttledCount.incrementAndGet();
+    }
+    if (waitNanos < 0) {
+      return false;
+    }
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+    return true;
+  }
+
+  /**
+   * @return 获取到令牌前需要等待的时间(ns)，限时获取时截止前轮不到则返回-1，不预支令牌
+   */
+  private synchronized long reserve(boolean timed, long deadline) {
+    long now = System.nanoTime();
+    this.tokens = Math.min(this.burst, this.tokens + (now - this.lastNanos) * this.rate / 1e9);
+    this.lastNanos = now;
+    long waitNanos = this.tokens >= 1 ? 0 : (long) ((1 - this.tokens) * 1e9 / this.rate);
+    if (timed && waitNanos > deadline - now) {
+      return -1;
+    }
+    this.tokens -= 1;
+    return waitNanos;
+  }
+
+  double getRate() {
+    return this.rate;
+  }
+
+  int getBurst() {
+    return this.burst;
+  }
+
+  long getThrottledCount() {
+    return this.throttledCount.get();
+  }
+}
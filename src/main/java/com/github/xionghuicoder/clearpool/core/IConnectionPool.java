@@ -70,6 +70,55 @@ public interface IConnectionPool {
    */
   Connection getConnection(String name, long maxWait) throws SQLException;
 
+  /**
+   * 获取处于<tt>state</tt>状态的数据库连接
+   *
+   * <p>
+   * 优先借出已经处于该状态的空闲连接，没有时修改连接的属性；连接归还后保持该状态。
+   * </p>
+   *
+   * @param state 期望的连接状态，为<tt>null</tt>的属性表示不关心
+   * @return 数据库连接
+   * @throws SQLException SQL异常
+   */
+  Connection getConnection(ConnectionState state) throws SQLException;
+
+  /**
+   * 从名称为<tt>name</tt>的数据库连接池内获取处于<tt>state</tt>状态的连接
+   *
+   * @param name 数据库连接池名称
+   * @param state 期望的连接状态，为<tt>null</tt>的属性表示不关心
+   * @return 数据库连接
+   * @throws SQLException SQL异常
+   * @see #getConnection(ConnectionState)
+   */
+  Connection getConnection(String name, ConnectionState state) throws SQLException;
+
+  /**
+   * 获取将要执行<tt>sql</tt>的数据库连接
+   *
+   * <p>
+   * 优先借出执行过该sql或者缓存了它的statement的空闲连接，使数据库端已经准备好的语句可以复用；<br>
+   * 没有这样的空闲连接时按正常的顺序借出。
+   * </p>
+   *
+   * @param sql 借出后将要执行的sql
+   * @return 数据库连接
+   * @throws SQLException SQL异常
+   */
+  Connection getConnectionForSql(String sql) throws SQLException;
+
+  /**
+   * 从名称为<tt>name</tt>的数据库连接池内获取将要执行<tt>sql</tt>的连接
+   *
+   * @param name 数据库连接池名称
+   * @param sql 借出后将要执行的sql
+   * @return 数据库连接
+   * @throws SQLException SQL异常
+   * @see #getConnectionForSql(String)
+   */
+  Connection getConnectionForSql(String name, String sql) throws SQLException;
+
   /**
    * 获取数据库连接池连接
    *
@@ -106,6 +155,29 @@ public interface IConnectionPool {
    */
   PooledConnection getPooledConnection(String name, long maxWait) throws SQLException;
 
+  /**
+   * 异步获取数据库连接
+   *
+   * <p>
+   * 没有空闲连接时在连接池中排队，不占用调用线程；有连接归还时由归还连接的线程完成。
+   * </p>
+   *
+   * @param maxWait 最大等待时间，<tt>maxWait</tt>小于等于0时一直等待，超过<tt>maxWait</tt>(ms)后以null完成
+   * @param callback 完成时的回调，可以为<tt>null</tt>
+   * @return 异步获取连接的结果，可以取消
+   */
+  ConnectionFuture getConnectionAsync(long maxWait, ConnectionCallback callback);
+
+  /**
+   * 从名称为<tt>name</tt>的数据库连接池内异步获取连接
+   *
+   * @param name 数据库连接池名称
+   * @param maxWait 最大等待时间，<tt>maxWait</tt>小于等于0时一直等待，超过<tt>maxWait</tt>(ms)后以null完成
+   * @param callback 完成时的回调，可以为<tt>null</tt>
+   * @return 异步获取连接的结果，可以取消；连接池不存在时返回<tt>null</tt>
+   */
+  ConnectionFuture getConnectionAsync(String name, long maxWait, ConnectionCallback callback);
+
   /**
    * 根据数据库用户名和密码获取连接池连接
    *
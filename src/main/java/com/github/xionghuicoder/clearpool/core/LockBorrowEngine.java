@@ -0,0 +1,545 @@
+package com.github.xionghuicoder.clearpool.core;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.xionghuicoder.clearpool.ConnectionPoolUselessConnectionException;
+import com.github.xionghuicoder.clearpool.core.chain.BinaryHeap;
+import com.github.xionghuicoder.clearpool.core.chain.ConnectionMatcher;
+import com.github.xionghuicoder.clearpool.core.chain.FifoChain;
+import com.github.xionghuicoder.clearpool.core.chain.IdleChain;
+import com.github.xionghuicoder.clearpool.core.chain.LifoChain;
+import com.github.xionghuicoder.clearpool.core.chain.ValidationHeap;
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+
+/**
+ * 使用锁保护{@link IdleChain IdleChain}的借还引擎
+ *
+ * <p>
+ * 连接池被分成一到多个{@link Stripe Stripe}，每个{@link Stripe Stripe}有自己的锁和{@link IdleChain IdleChain}；<br>
+ * {@link IdleChain IdleChain}的实现由<tt>idleOrder</tt>决定，默认是{@link BinaryHeap BinaryHeap}；<br>
+ * 借用线程按线程id选择自己的{@link Stripe Stripe}，为空时再从其它{@link Stripe Stripe}窃取连接；<br>
+ * <tt>poolSize</tt>通过CAS全局预占，所以<tt>maxPoolSize</tt>对所有{@link Stripe Stripe}都是硬上限。
+ * </p>
+ *
+ * <p>
+ * 开启线程亲和时，连接可能在不加锁的情况下被归还它的线程直接取走，此时它仍留在{@link IdleChain IdleChain}中；<br>
+ * 所以从{@link IdleChain IdleChain}取出连接后需要通过CAS修改连接状态，失败则说明连接已被取走，直接丢弃该节点。
+ * </p>
+ *
+ * <p>
+ * 公平模式下，有借用线程在{@link #waiterQueue waiterQueue}中排队时新的借用线程不会插队；<br>
+ * 归还和新建的连接直接交给等待最久的借用线程，不经过{@link IdleChain IdleChain}。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class LockBorrowEngine extends BorrowEngine {
+  // 公平模式下每次最多等待的时间，醒来后会检查连接池是否有空位
+  private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final Stripe[] stripes;
+
+  // 公平模式下的等待队列，非公平模式下为null
+  private final Queue<Waiter> waiterQueue;
+  private final AtomicInteger waiterQueueSize = new AtomicInteger();
+
+  // 新建连接的次数，新建的连接只放在一个Stripe里，等待者通过它判断是否有其它Stripe新建了连接
+  private final AtomicInteger fillCount = new AtomicInteger();
+
+  // 没有等待者时新建的连接轮流放入各个Stripe
+  private final AtomicInteger publishCount = new AtomicInteger();
+
+  LockBorrowEngine(ConnectionPoolManager pool, int stripeCount, boolean fair) {
+    super(pool);
+    this.stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      this.stripes[i] = new Stripe(i);
+    }
+    this.waiterQueue = fair ? new ConcurrentLinkedQueue<Waiter>() : null;
+  }
+
+  private int homeIndex() {
+    if (this.stripes.length == 1) {
+      return 0;
+    }
+    return (int) (Thread.currentThread().getId() % this.stripes.length);
+  }
+
+  @Override
+  ConnectionProxy borrow(boolean timed, long nanos) throws InterruptedException {
+    ConfigurationVO cfgVO = this.pool.getCfgVO();
+    int homeIndex = this.homeIndex();
+    Stripe home = this.stripes[homeIndex];
+    long deadline = System.nanoTime() + nanos;
+    for (;;) {
+      ConnectionProxy conProxy;
+      // 公平模式下有借用线程在排队时不插队
+      if (this.waiterQueue == null || this.waiterQueueSize.get() == 0) {
+        conProxy = this.pollAll(homeIndex);
+        if (conProxy != null) {
+          return conProxy;
+        }
+      }
+      conProxy = this.grow(timed, deadline);
+      if (conProxy != null) {
+        return conProxy;
+      }
+      if (!timed && cfgVO.isUselessConnectionException()) {
+        throw new ConnectionPoolUselessConnectionException(
+            "there is no connection left in the pool, the maxPoolSize is: "
+                + cfgVO.getMaxPoolSize());
+      }
+      if (this.waiterQueue != null) {
+        conProxy = this.awaitHandoff(homeIndex, timed, deadline);
+        if (conProxy != null) {
+          return conProxy;
+        }
+        if (timed && deadline - System.nanoTime() <= 0) {
+          return null;
+        }
+        continue;
+      }
+      // 先登记为等待者再检查一遍，保证之后归还的连接会放到等待者所在的Stripe
+      home.waiters.incrementAndGet();
+      try {
+        int fillCount = this.fillCount.get();
+        conProxy = this.pollAll(homeIndex);
+        if (conProxy != null) {
+          return conProxy;
+        }
+        home.lock.lock();
+        try {
+          if (home.connectionChain.size() == 0 && this.fillCount.get() == fillCount) {
+            if (timed) {
+              nanos = deadline - System.nanoTime();
+              if (nanos <= 0) {
+                return null;
+              }
+              home.notEmpty.awaitNanos(nanos);
+            } else {
+              home.notEmpty.await();
+            }
+          }
+        } finally {
+          home.lock.unlock();
+        }
+      } finally {
+        home.waiters.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * 公平模式下在{@link #waiterQueue waiterQueue}中排队，等待归还的连接直接交给自己
+   *
+   * @return 连接；超时或连接池有了空位时返回<tt>null</tt>
+   */
+  private ConnectionProxy awaitHandoff(int homeIndex, boolean timed, long deadline)
+      throws InterruptedException {
+    Waiter waiter = new Waiter();
+    this.waiterQueue.offer(waiter);
+    this.waiterQueueSize.incrementAndGet();
+    try {
+      // 排队之前放回IdleChain的连接不会交给等待者，所以排队之后再检查一遍
+      ConnectionProxy conProxy = this.pollAll(homeIndex);
+      if (conProxy != null) {
+        if (this.cancel(waiter)) {
+          return conProxy;
+        }
+        this.requite(conProxy);
+        return waiter.conProxy;
+      }
+      int maxPoolSize = this.pool.getCfgVO().getMaxPoolSize();
+      while (waiter.state.get() == Waiter.WAITING) {
+        long waitNanos = WAIT_SLICE_NANOS;
+        if (timed) {
+          long nanos = deadline - System.nanoTime();
+          if (nanos <= 0) {
+            break;
+          }
+          if (nanos < waitNanos) {
+            waitNanos = nanos;
+          }
+        }
+        LockSupport.parkNanos(this, waitNanos);
+        if (Thread.interrupted()) {
+          if (!this.cancel(waiter)) {
+            this.requite(waiter.conProxy);
+          }
+          throw new InterruptedException();
+        }
+        if (this.pool.getPoolSize() < maxPoolSize) {
+          // 有连接被关闭，重新尝试新建连接
+          break;
+        }
+      }
+      return this.cancel(waiter) ? null : waiter.conProxy;
+    } finally {
+      this.waiterQueueSize.decrementAndGet();
+    }
+  }
+
+  /**
+   * 取消排队
+   *
+   * @return 是否取消成功，失败说明已经有连接交给了<tt>waiter</tt>
+   */
+  private boolean cancel(Waiter waiter) {
+    if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.CANCELLED)) {
+      this.waiterQueue.remove(waiter);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * 公平模式下把连接直接交给等待最久的借用线程
+   *
+   * @return 是否交出
+   */
+  private boolean handoff(ConnectionProxy conProxy) {
+    if (this.waiterQueue == null) {
+      return false;
+    }
+    Waiter waiter;
+    while ((waiter = this.waiterQueue.poll()) != null) {
+      if (waiter.fulfill(conProxy)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 先从自己的{@link Stripe Stripe}获取连接，没有再依次从其它{@link Stripe Stripe}窃取
+   */
+  private ConnectionProxy pollAll(int homeIndex) {
+    int length = this.stripes.length;
+    for (int i = 0; i < length; i++) {
+      Stripe stripe = this.stripes[(homeIndex + i) % length];
+      if (i > 0 && stripe.connectionChain.size() == 0) {
+        continue;
+      }
+      stripe.lock.lock();
+      try {
+        ConnectionProxy conProxy = stripe.poll();
+        if (conProxy != null) {
+          return conProxy;
+        }
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  ConnectionProxy poll() {
+    // 公平模式下有借用线程在排队时不插队
+    if (this.waiterQueue != null && this.waiterQueueSize.get() > 0) {
+      return null;
+    }
+    return this.pollAll(this.homeIndex());
+  }
+
+  @Override
+  ConnectionProxy pollMatching(ConnectionMatcher matcher) {
+    int homeIndex = this.homeIndex();
+    int length = this.stripes.length;
+    for (int i = 0; i < length; i++) {
+      Stripe stripe = this.stripes[(homeIndex + i) % length];
+      if (stripe.connectionChain.size() == 0) {
+        continue;
+      }
+      stripe.lock.lock();
+      try {
+        ConnectionProxy conProxy = stripe.pollMatching(matcher);
+        if (conProxy != null) {
+          return conProxy;
+        }
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  void publish(ConnectionProxy conProxy) {
+    conProxy.setEntryTime(System.currentTimeMillis());
+    conProxy.setState(ConnectionProxy.STATE_IN_USE);
+    if (this.pool.handoffAsync(conProxy) || this.handoff(conProxy)) {
+      return;
+    }
+    conProxy.setState(ConnectionProxy.STATE_IDLE);
+    int index = (this.publishCount.getAndIncrement() & Integer.MAX_VALUE) % this.stripes.length;
+    Stripe stripe = this.selectStripe(this.stripes[index]);
+    stripe.lock.lock();
+    try {
+      stripe.add(conProxy);
+      stripe.notEmpty.signal();
+    } finally {
+      stripe.lock.unlock();
+    }
+    this.signalWaiters(stripe);
+  }
+
+  @Override
+  void createFailed() {
+    this.signalWaiters(null);
+  }
+
+  /**
+   * 唤醒其它{@link Stripe Stripe}的等待者来窃取新建的连接
+   */
+  private void signalWaiters(Stripe filled) {
+    this.fillCount.incrementAndGet();
+    for (Stripe stripe : this.stripes) {
+      if (stripe != filled && stripe.waiters.get() > 0) {
+        stripe.lock.lock();
+        try {
+          stripe.notEmpty.signal();
+        } finally {
+          stripe.lock.unlock();
+        }
+      }
+    }
+  }
+
+  @Override
+  void requite(ConnectionProxy conProxy) {
+    conProxy.setEntryTime(System.currentTimeMillis());
+    if (this.handoff(conProxy)) {
+      return;
+    }
+    Stripe stripe;
+    for (;;) {
+      int chainIndex = conProxy.getChainIndex();
+      stripe = chainIndex >= 0 ? this.stripes[chainIndex]
+          : this.selectStripe(this.stripes[this.homeIndex()]);
+      stripe.lock.lock();
+      try {
+        if (conProxy.getChainIndex() != chainIndex) {
+          // 已被其它线程从IdleChain中移除，重新选择
+          continue;
+        }
+        if (chainIndex < 0) {
+          stripe.add(conProxy);
+        }
+        conProxy.setState(ConnectionProxy.STATE_IDLE);
+        stripe.notEmpty.signal();
+        break;
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    // 亲和连接只能回到原来的Stripe，选择Stripe之后才登记的等待者也可能在其它Stripe上；
+    // 放入之后再检查，其它Stripe有等待者时唤醒它们来窃取，否则不加锁
+    if (this.hasOtherWaiters(stripe)) {
+      this.signalWaiters(stripe);
+    }
+  }
+
+  private boolean hasOtherWaiters(Stripe filled) {
+    for (Stripe stripe : this.stripes) {
+      if (stripe != filled && stripe.waiters.get() > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 连接优先放到<tt>home</tt>，如果<tt>home</tt>没有等待者，而其它{@link Stripe Stripe}有，则放到其它的
+   */
+  private Stripe selectStripe(Stripe home) {
+    if (this.stripes.length == 1 || home.waiters.get() > 0) {
+      return home;
+    }
+    for (Stripe stripe : this.stripes) {
+      if (stripe.waiters.get() > 0) {
+        return stripe;
+      }
+    }
+    return home;
+  }
+
+  @Override
+  ConnectionProxy pollIdle(long period) {
+    for (Stripe stripe : this.stripes) {
+      stripe.lock.lock();
+      try {
+        ConnectionProxy conProxy = stripe.pollIdle(period);
+        if (conProxy != null) {
+          return conProxy;
+        }
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 开启线程亲和时包含已被取走但还留在{@link IdleChain IdleChain}中的连接，是一个近似值
+   */
+  @Override
+  int idleSize() {
+    int size = 0;
+    for (Stripe stripe : this.stripes) {
+      size += stripe.connectionChain.size();
+    }
+    return size;
+  }
+
+  private IdleChain createIdleChain() {
+    String idleOrder = this.pool.getCfgVO().getIdleOrder();
+    if (ConfigurationVO.IDLE_ORDER_LIFO.equals(idleOrder)) {
+      return new LifoChain();
+    }
+    if (ConfigurationVO.IDLE_ORDER_FIFO.equals(idleOrder)) {
+      return new FifoChain();
+    }
+    if (ConfigurationVO.IDLE_ORDER_VALIDATED.equals(idleOrder)) {
+      return new ValidationHeap();
+    }
+    return new BinaryHeap();
+  }
+
+  @Override
+  int waiterSize() {
+    if (this.waiterQueue != null) {
+      return this.waiterQueueSize.get();
+    }
+    int size = 0;
+    for (Stripe stripe : this.stripes) {
+      size += stripe.waiters.get();
+    }
+    return size;
+  }
+
+  @Override
+  long oldestWaitMillis() {
+    if (this.waiterQueue == null) {
+      return 0;
+    }
+    for (Waiter waiter : this.waiterQueue) {
+      if (waiter.state.get() == Waiter.WAITING) {
+        return System.currentTimeMillis() - waiter.since;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * 连接池的一个分片，以下方法都需要在持有{@link #lock lock}时调用
+   *
+   * @author xionghui
+   * @version 1.0.0
+   * @since 1.0.0
+   */
+  private final class Stripe {
+    final int index;
+
+    final Lock lock = new ReentrantLock();
+    final Condition notEmpty = this.lock.newCondition();
+
+    final IdleChain connectionChain = LockBorrowEngine.this.createIdleChain();
+
+    final AtomicInteger waiters = new AtomicInteger();
+
+    Stripe(int index) {
+      this.index = index;
+    }
+
+    void add(ConnectionProxy conProxy) {
+      this.connectionChain.add(conProxy);
+      conProxy.setChainIndex(this.index);
+    }
+
+    ConnectionProxy poll() {
+      for (;;) {
+        ConnectionProxy conProxy = this.connectionChain.removeFirst();
+        if (conProxy == null) {
+          return null;
+        }
+        conProxy.setChainIndex(-1);
+        if (conProxy.compareAndSetState(ConnectionProxy.STATE_IDLE,
+            ConnectionProxy.STATE_IN_USE)) {
+          return conProxy;
+        }
+      }
+    }
+
+    ConnectionProxy pollMatching(ConnectionMatcher matcher) {
+      for (;;) {
+        ConnectionProxy conProxy = this.connectionChain.removeMatching(matcher);
+        if (conProxy == null) {
+          return null;
+        }
+        conProxy.setChainIndex(-1);
+        if (conProxy.compareAndSetState(ConnectionProxy.STATE_IDLE,
+            ConnectionProxy.STATE_IN_USE)) {
+          return conProxy;
+        }
+      }
+    }
+
+    ConnectionProxy pollIdle(long period) {
+      for (;;) {
+        ConnectionProxy conProxy = this.connectionChain.removeIdle(period);
+        if (conProxy == null) {
+          return null;
+        }
+        conProxy.setChainIndex(-1);
+        if (System.currentTimeMillis() - conProxy.getEntryTime() < period) {
+          // 通过线程亲和被重新使用过，放回去
+          this.add(conProxy);
+          continue;
+        }
+        if (conProxy.compareAndSetState(ConnectionProxy.STATE_IDLE,
+            ConnectionProxy.STATE_RESERVED)) {
+          return conProxy;
+        }
+      }
+    }
+  }
+
+  /**
+   * 公平模式下排队等待的借用线程
+   *
+   * @author xionghui
+   * @version 1.0.0
+   * @since 1.0.0
+   */
+  private static final class Waiter {
+    static final int WAITING = 0;
+    static final int FULFILLED = 1;
+    static final int CANCELLED = 2;
+
+    final Thread thread = Thread.currentThread();
+    final long since = System.currentTimeMillis();
+    final AtomicInteger state = new AtomicInteger(WAITING);
+
+    // 交给当前等待者的连接，在state变成FULFILLED之前写入
+    volatile ConnectionProxy conProxy;
+
+    boolean fulfill(ConnectionProxy conProxy) {
+      this.conProxy = conProxy;
+      if (this.state.compareAndSet(WAITING, FULFILLED)) {
+        LockSupport.unpark(this.thread);
+        return true;
+      }
+      return false;
+    }
+  }
+}
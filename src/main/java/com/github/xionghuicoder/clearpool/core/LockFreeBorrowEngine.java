@@ -0,0 +1,202 @@
+package com.github.xionghuicoder.clearpool.core;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.xionghuicoder.clearpool.ConnectionPoolException;
+import com.github.xionghuicoder.clearpool.ConnectionPoolUselessConnectionException;
+import com.github.xionghuicoder.clearpool.core.chain.ConnectionMatcher;
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+
+/**
+ * 无锁的借还引擎
+ *
+ * <p>
+ * 所有连接都放在{@link #sharedList sharedList}里，通过CAS修改连接的状态来借出和归还连接；<br>
+ * 只有在没有空闲连接且连接数达到<tt>maxPoolSize</tt>时，借用线程才会在{@link #handoffQueue handoffQueue}上等待，
+ * 归还连接的线程会把连接直接交给等待的线程。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class LockFreeBorrowEngine extends BorrowEngine {
+  // 每次最多等待的时间，醒来后会重新检查能否新建连接
+  private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  // 归还线程最多尝试交出连接的次数，之后连接留在sharedList中，等待者下次扫描时取走
+  private static final int MAX_HANDOFF_TRIES = 64;
+
+  private final CopyOnWriteArrayList<ConnectionProxy> sharedList =
+      new CopyOnWriteArrayList<ConnectionProxy>();
+
+  private final SynchronousQueue<ConnectionProxy> handoffQueue =
+      new SynchronousQueue<ConnectionProxy>(true);
+
+  private final AtomicInteger waiters = new AtomicInteger();
+
+  LockFreeBorrowEngine(ConnectionPoolManager pool) {
+    super(pool);
+  }
+
+  @Override
+  ConnectionProxy borrow(boolean timed, long nanos) throws InterruptedException {
+    ConnectionProxy conProxy = this.scan();
+    if (conProxy != null) {
+      return conProxy;
+    }
+    long deadline = System.nanoTime() + nanos;
+    // 先登记为等待者再扫描，保证扫描之后归还的连接一定会交给等待者
+    this.waiters.incrementAndGet();
+    try {
+      for (;;) {
+        if (this.pool.isClosed()) {
+          throw new ConnectionPoolException("pool is closed");
+        }
+        conProxy = this.scan();
+        if (conProxy != null) {
+          return conProxy;
+        }
+        // 新建连接时不算作等待者，避免归还线程空转
+        this.waiters.decrementAndGet();
+        try {
+          conProxy = this.grow(timed, deadline);
+        } finally {
+          this.waiters.incrementAndGet();
+        }
+        if (conProxy != null) {
+          return conProxy;
+        }
+        long waitNanos = WAIT_SLICE_NANOS;
+        if (timed) {
+          nanos = deadline - System.nanoTime();
+          if (nanos <= 0) {
+            return null;
+          }
+          if (nanos < waitNanos) {
+            waitNanos = nanos;
+          }
+        } else if (this.pool.getCfgVO().isUselessConnectionException()) {
+          throw new ConnectionPoolUselessConnectionException(
+              "there is no connection left in the pool, the maxPoolSize is: "
+                  + this.pool.getCfgVO().getMaxPoolSize());
+        }
+        conProxy = this.handoffQueue.poll(waitNanos, TimeUnit.NANOSECONDS);
+        if (conProxy != null
+            && conProxy.compareAndSetState(ConnectionProxy.STATE_IDLE, ConnectionProxy.STATE_IN_USE)) {
+          return conProxy;
+        }
+      }
+    } finally {
+      this.waiters.decrementAndGet();
+    }
+  }
+
+  private ConnectionProxy scan() {
+    for (ConnectionProxy conProxy : this.sharedList) {
+      if (conProxy.getState() == ConnectionProxy.STATE_IDLE
+          && conProxy.compareAndSetState(ConnectionProxy.STATE_IDLE, ConnectionProxy.STATE_IN_USE)) {
+        return conProxy;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 借用线程新建的连接直接借出，也要放入{@link #sharedList sharedList}，归还后才能被其它线程借到
+   */
+  @Override
+  ConnectionProxy grow(boolean timed, long deadline) {
+    ConnectionProxy conProxy = super.grow(timed, deadline);
+    if (conProxy != null) {
+      this.sharedList.add(conProxy);
+    }
+    return conProxy;
+  }
+
+  @Override
+  ConnectionProxy poll() {
+    return this.scan();
+  }
+
+  @Override
+  ConnectionProxy pollMatching(ConnectionMatcher matcher) {
+    for (ConnectionProxy conProxy : this.sharedList) {
+      if (conProxy.getState() == ConnectionProxy.STATE_IDLE && matcher.matches(conProxy)
+          && conProxy.compareAndSetState(ConnectionProxy.STATE_IDLE, ConnectionProxy.STATE_IN_USE)) {
+        return conProxy;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  void requite(ConnectionProxy conProxy) {
+    conProxy.setEntryTime(System.currentTimeMillis());
+    conProxy.setState(ConnectionProxy.STATE_IDLE);
+    this.handoff(conProxy);
+  }
+
+  @Override
+  void publish(ConnectionProxy conProxy) {
+    conProxy.setEntryTime(System.currentTimeMillis());
+    conProxy.setState(ConnectionProxy.STATE_IN_USE);
+    this.sharedList.add(conProxy);
+    if (this.pool.handoffAsync(conProxy)) {
+      return;
+    }
+    conProxy.setState(ConnectionProxy.STATE_IDLE);
+    this.handoff(conProxy);
+  }
+
+  /**
+   * 有等待者时把空闲连接直接交给等待者，直到连接被别的线程取走为止；<br>
+   * 最多尝试{@link #MAX_HANDOFF_TRIES MAX_HANDOFF_TRIES}次，等待者可能正在新建连接或还没开始等待，
+   * 归还线程不在<tt>close</tt>中一直空转，连接已经是空闲状态，等待者最晚在下一个等待周期扫描到它
+   */
+  private void handoff(ConnectionProxy conProxy) {
+    for (int i = 0; i < MAX_HANDOFF_TRIES && this.waiters.get() > 0; i++) {
+      if (conProxy.getState() != ConnectionProxy.STATE_IDLE || this.handoffQueue.offer(conProxy)) {
+        return;
+      }
+      Thread.yield();
+    }
+  }
+
+  @Override
+  ConnectionProxy pollIdle(long period) {
+    long now = System.currentTimeMillis();
+    for (ConnectionProxy conProxy : this.sharedList) {
+      if (conProxy.getState() == ConnectionProxy.STATE_IDLE
+          && now - conProxy.getEntryTime() >= period && conProxy
+              .compareAndSetState(ConnectionProxy.STATE_IDLE, ConnectionProxy.STATE_RESERVED)) {
+        return conProxy;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  void remove(ConnectionProxy conProxy) {
+    this.sharedList.remove(conProxy);
+  }
+
+  @Override
+  int idleSize() {
+    int size = 0;
+    for (ConnectionProxy conProxy : this.sharedList) {
+      if (conProxy.getState() == ConnectionProxy.STATE_IDLE) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  @Override
+  int waiterSize() {
+    return this.waiters.get();
+  }
+}
@@ -0,0 +1,123 @@
+package com.github.xionghuicoder.clearpool.core.chain;
+
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+
+/**
+ * 使用环形数组存储连接，按放入的顺序排列，头部是最早放入的元素
+ *
+ * <p>
+ * 两端的放入和移除都是O(1)，不为每个元素分配节点；<br>
+ * 放入时间保存在并列的long数组中，所以{@link #removeIdle removeIdle}只需要检查头部。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+abstract class ArrayDequeChain extends IdleChain {
+  private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+  private ConnectionProxy[] elements = new ConnectionProxy[DEFAULT_INITIAL_CAPACITY];
+  private long[] entryTimes = new long[DEFAULT_INITIAL_CAPACITY];
+  // 最早放入的元素的下标
+  private int head;
+
+  @Override
+  public void add(ConnectionProxy e) {
+    if (this.size == this.elements.length) {
+      this.grow();
+    }
+    int index = this.index(this.size);
+    this.elements[index] = e;
+    this.entryTimes[index] = System.currentTimeMillis();
+    this.size++;
+  }
+
+  /**
+   * 容量加倍，同时把元素移到数组开头
+   */
+  private void grow() {
+    int capacity = this.elements.length;
+    ConnectionProxy[] elements = new ConnectionProxy[capacity << 1];
+    long[] entryTimes = new long[capacity << 1];
+    int front = capacity - this.head;
+    System.arraycopy(this.elements, this.head, elements, 0, front);
+    System.arraycopy(this.elements, 0, elements, front, this.head);
+    System.arraycopy(this.entryTimes, this.head, entryTimes, 0, front);
+    System.arraycopy(this.entryTimes, 0, entryTimes, front, this.head);
+    this.elements = elements;
+    this.entryTimes = entryTimes;
+    this.head = 0;
+  }
+
+  /**
+   * @param i 从头部开始的序号
+   * @return 在数组中的下标
+   */
+  private int index(int i) {
+    return (this.head + i) & (this.elements.length - 1);
+  }
+
+  /**
+   * 移除最早放入的元素
+   */
+  ConnectionProxy removeOldest() {
+    if (this.size == 0) {
+      return null;
+    }
+    ConnectionProxy e = this.elements[this.head];
+    this.elements[this.head] = null;
+    this.head = this.index(1);
+    this.size--;
+    return e;
+  }
+
+  /**
+   * 移除最近放入的元素
+   */
+  ConnectionProxy removeNewest() {
+    if (this.size == 0) {
+      return null;
+    }
+    int index = this.index(this.size - 1);
+    ConnectionProxy e = this.elements[index];
+    this.elements[index] = null;
+    this.size--;
+    return e;
+  }
+
+  @Override
+  public ConnectionProxy removeIdle(long period) {
+    if (this.size == 0 || System.currentTimeMillis() - this.entryTimes[this.head] < period) {
+      return null;
+    }
+    return this.removeOldest();
+  }
+
+  @Override
+  public ConnectionProxy removeMatching(ConnectionMatcher matcher) {
+    for (int i = this.size - 1; i >= 0; i--) {
+      ConnectionProxy e = this.elements[this.index(i)];
+      if (matcher.matches(e)) {
+        this.removeAt(i);
+        return e;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 移除第<tt>i</tt>个元素，之后的元素依次前移
+   */
+  private void removeAt(int i) {
+    int last = this.size - 1;
+    for (; i < last; i++) {
+      int index = this.index(i);
+      int next = this.index(i + 1);
+      this.elements[index] = this.elements[next];
+      this.entryTimes[index] = this.entryTimes[next];
+    }
+    this.elements[this.index(last)] = null;
+    this.size--;
+  }
+}
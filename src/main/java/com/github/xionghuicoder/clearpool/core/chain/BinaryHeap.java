@@ -11,19 +11,30 @@ import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
  * 使用LRU算法来获取数据库连接池，使得最常用的连接被用到的概率变大，以便提高性能
  * </p>
  *
+ * <p>
+ * 堆的顺序由{@link #compare compare}决定，默认按执行过的不同sql数排序，子类可以改变借出顺序。
+ * </p>
+ *
+ * <p>
+ * 另外用一个按<tt>entryTime</tt>排序的双向链表索引所有节点，链表头是最早放入的节点；<br>
+ * 所以{@link #removeIdle removeIdle}只需要检查链表头，移除一个超时节点的代价是O(log n)，不影响堆的借出顺序。
+ * </p>
+ *
  * @author xionghui
  * @version 1.0.0
  * @since 1.0.0
  * @see java.util.Timer
  */
-public class BinaryHeap {
+public class BinaryHeap extends IdleChain {
   private static final int MAXIMUM_CAPACITY = 1 << 30;
 
   private static final int DEFAULT_INITIAL_CAPACITY = 16;
 
   private ProxyNode[] queue;
 
-  private volatile int size;
+  // 按entryTime排序的双向链表，head最早放入
+  private ProxyNode head;
+  private ProxyNode tail;
 
   public BinaryHeap() {
     this(DEFAULT_INITIAL_CAPACITY);
@@ -42,12 +53,45 @@ public class BinaryHeap {
         : number > 1 ? Integer.highestOneBit(number - 1 << 1) : 1;
   }
 
+  @Override
   public void add(ConnectionProxy e) {
     if (this.size + 1 == this.queue.length) {
       this.queue = Arrays.copyOf(this.queue, 2 * this.queue.length);
     }
-    this.queue[++this.size] = new ProxyNode(e, System.currentTimeMillis());
+    ProxyNode node = new ProxyNode(e, System.currentTimeMillis());
+    this.set(++this.size, node);
     this.fixUp(this.size);
+    this.linkLast(node);
+  }
+
+  private void set(int i, ProxyNode node) {
+    this.queue[i] = node;
+    node.index = i;
+  }
+
+  private void linkLast(ProxyNode node) {
+    node.prev = this.tail;
+    node.next = null;
+    if (this.tail == null) {
+      this.head = node;
+    } else {
+      this.tail.next = node;
+    }
+    this.tail = node;
+  }
+
+  private void unlink(ProxyNode node) {
+    if (node.prev == null) {
+      this.head = node.next;
+    } else {
+      node.prev.next = node.next;
+    }
+    if (node.next == null) {
+      this.tail = node.prev;
+    } else {
+      node.next.prev = node.prev;
+    }
+    node.prev = node.next = null;
   }
 
   /**
@@ -61,16 +105,24 @@ public class BinaryHeap {
   private void fixUp(int k) {
     while (k > 1) {
       int j = k >> 1;
-      if (this.queue[j].element.compareTo(this.queue[k].element) > 0) {
+      if (this.compare(this.queue[j].element, this.queue[k].element) > 0) {
         break;
       }
       ProxyNode tmp = this.queue[j];
-      this.queue[j] = this.queue[k];
-      this.queue[k] = tmp;
+      this.set(j, this.queue[k]);
+      this.set(k, tmp);
       k = j;
     }
   }
 
+  /**
+   * 比较两个连接的借出优先级，大的先借出
+   */
+  protected int compare(ConnectionProxy a, ConnectionProxy b) {
+    return a.compareTo(b);
+  }
+
+  @Override
   public ConnectionProxy removeFirst() {
     return this.remove(1);
   }
@@ -80,9 +132,17 @@ public class BinaryHeap {
       return null;
     }
     ProxyNode removeProxyNode = this.queue[i];
-    this.queue[i] = this.queue[this.size];
+    ProxyNode last = this.queue[this.size];
     this.queue[this.size--] = null;
-    this.fixDown(i);
+    if (i <= this.size) {
+      this.set(i, last);
+      this.fixDown(i);
+      // 移除的不是堆顶时，被换上来的节点可能比父节点大
+      if (this.queue[i] == last) {
+        this.fixUp(i);
+      }
+    }
+    this.unlink(removeProxyNode);
     return removeProxyNode.element;
   }
 
@@ -98,41 +158,36 @@ public class BinaryHeap {
   private void fixDown(int k) {
     int j;
     while ((j = k << 1) <= this.size && j > 0) {
-      if (j < this.size && this.queue[j].element.compareTo(this.queue[j + 1].element) < 0) {
+      if (j < this.size && this.compare(this.queue[j].element, this.queue[j + 1].element) < 0) {
         j++;
       }
-      if (this.queue[k].element.compareTo(this.queue[j].element) >= 0) {
+      if (this.compare(this.queue[k].element, this.queue[j].element) >= 0) {
         break;
       }
       ProxyNode tmp = this.queue[j];
-      this.queue[j] = this.queue[k];
-      this.queue[k] = tmp;
+      this.set(j, this.queue[k]);
+      this.set(k, tmp);
       k = j;
     }
   }
 
-  /**
-   * 移除超时<tt>period</tt>(ms)的元素
-   *
-   * @param period 空闲时间大于等于<tt>period</tt>(ms)的元素会被移除掉
-   * @return 移除的元素，如果所有元素都为超时，则返回<tt>null</tt>
-   */
+  @Override
   public ConnectionProxy removeIdle(long period) {
-    for (int i = this.size; i > 0; i--) {
-      // double check
-      ProxyNode last = this.queue[i];
-      if (last != null) {
-        long now = System.currentTimeMillis();
-        if (now - last.entryTime >= period) {
-          return this.remove(i);
-        }
-      }
+    ProxyNode oldest = this.head;
+    if (oldest == null || System.currentTimeMillis() - oldest.entryTime < period) {
+      return null;
     }
-    return null;
+    return this.remove(oldest.index);
   }
 
-  public int size() {
-    return this.size;
+  @Override
+  public ConnectionProxy removeMatching(ConnectionMatcher matcher) {
+    for (ProxyNode node = this.tail; node != null; node = node.prev) {
+      if (matcher.matches(node.element)) {
+        return this.remove(node.index);
+      }
+    }
+    return null;
   }
 
   /**
@@ -147,6 +202,13 @@ public class BinaryHeap {
 
     long entryTime;
 
+    // 在堆数组中的下标
+    int index;
+
+    // entryTime链表中的前后节点
+    ProxyNode prev;
+    ProxyNode next;
+
     ProxyNode(ConnectionProxy element) {
       this.element = element;
     }
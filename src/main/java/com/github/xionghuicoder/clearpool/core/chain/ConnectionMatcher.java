@@ -0,0 +1,19 @@
+package com.github.xionghuicoder.clearpool.core.chain;
+
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+
+/**
+ * 按条件优先借出的空闲连接，如已经处于期望状态，或者执行过将要执行的sql
+ *
+ * <p>
+ * 在借还引擎遍历空闲连接时调用，连接此时没有被借出，不能修改连接。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface ConnectionMatcher {
+
+  boolean matches(ConnectionProxy conProxy);
+}
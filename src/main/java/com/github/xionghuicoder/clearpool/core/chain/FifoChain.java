@@ -0,0 +1,22 @@
+package com.github.xionghuicoder.clearpool.core.chain;
+
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+
+/**
+ * 先进先出：优先借出最早归还的连接
+ *
+ * <p>
+ * 所有连接被轮流使用，磨损均匀，也不容易因为长期空闲被数据库或防火墙断开；但空闲连接很难被<tt>limitIdleTime</tt>回收。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class FifoChain extends ArrayDequeChain {
+
+  @Override
+  public ConnectionProxy removeFirst() {
+    return this.removeOldest();
+  }
+}
@@ -0,0 +1,53 @@
+package com.github.xionghuicoder.clearpool.core.chain;
+
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+
+/**
+ * 存放空闲连接的容器，决定空闲连接的借出顺序
+ *
+ * <p>
+ * 每种借出顺序使用适合自己访问方式的数据结构，由<tt>idleOrder</tt>选择：<br>
+ * {@link BinaryHeap BinaryHeap}优先借出执行过最多不同sql的连接，{@link LifoChain LifoChain}优先借出最近放入的连接，<br>
+ * {@link FifoChain FifoChain}优先借出最早放入的连接，{@link ValidationHeap ValidationHeap}优先借出最久没有确认有效的连接。
+ * </p>
+ *
+ * <p>
+ * 方法都在借还引擎的锁内调用，只有{@link #size size}会在不加锁时读取。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public abstract class IdleChain {
+  protected volatile int size;
+
+  public abstract void add(ConnectionProxy e);
+
+  /**
+   * 按借出顺序移除第一个元素
+   *
+   * @return 移除的元素，没有元素时返回<tt>null</tt>
+   */
+  public abstract ConnectionProxy removeFirst();
+
+  /**
+   * 移除超时<tt>period</tt>(ms)的元素，每次移除放入最早的元素
+   *
+   * @param period 放入后超过<tt>period</tt>(ms)的元素会被移除掉
+   * @return 移除的元素，如果所有元素都没有超时，则返回<tt>null</tt>
+   */
+  public abstract ConnectionProxy removeIdle(long period);
+
+  /**
+   * 从最近放入的元素开始查找，移除第一个满足<tt>matcher</tt>的元素；代价是O(n)
+   *
+   * @param matcher 优先借出的条件
+   * @return 移除的元素，没有满足的元素时返回<tt>null</tt>
+   */
+  public abstract ConnectionProxy removeMatching(ConnectionMatcher matcher);
+
+  public int size() {
+    return this.size;
+  }
+}
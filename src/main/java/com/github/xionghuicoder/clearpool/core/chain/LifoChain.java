@@ -0,0 +1,22 @@
+package com.github.xionghuicoder.clearpool.core.chain;
+
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+
+/**
+ * 后进先出：优先借出最近归还的连接
+ *
+ * <p>
+ * 负载较低时总是复用少数几个连接，其余的连接一直空闲，可以被<tt>limitIdleTime</tt>回收，使连接池保持较小。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class LifoChain extends ArrayDequeChain {
+
+  @Override
+  public ConnectionProxy removeFirst() {
+    return this.removeNewest();
+  }
+}
@@ -0,0 +1,29 @@
+package com.github.xionghuicoder.clearpool.core.chain;
+
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+
+/**
+ * 优先借出最久没有确认有效的连接
+ *
+ * <p>
+ * 这些连接最可能已被数据库断开，先借出可以让借出前的检测尽早发现它们；最近确认过的连接留在池中，<br>
+ * 配合<tt>validationWindow</tt>时，被跳过检测的连接也是最近确认过的。
+ * </p>
+ *
+ * <p>
+ * <tt>lastValidTime</tt>在连接放入后仍可能被检测线程修改，堆不会因此重新排序，所以借出顺序是近似的。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ValidationHeap extends BinaryHeap {
+
+  @Override
+  protected int compare(ConnectionProxy a, ConnectionProxy b) {
+    long x = a.getLastValidTime();
+    long y = b.getLastValidTime();
+    return x < y ? 1 : x == y ? 0 : -1;
+  }
+}
@@ -0,0 +1,272 @@
+package com.github.xionghuicoder.clearpool.core.hook;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.xionghuicoder.clearpool.core.ConfigurationVO;
+import com.github.xionghuicoder.clearpool.core.ConnectionPoolManager;
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+import com.github.xionghuicoder.clearpool.logging.PoolLogger;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+import com.github.xionghuicoder.clearpool.util.HashedWheelTimer;
+
+/**
+ * 连接池维护任务调度
+ *
+ * <p>
+ * 使用{@link HashedWheelTimer HashedWheelTimer}管理所有维护任务的到期时间，到期的任务交给一个小线程池执行：<br>
+ * 1. 每个连接池一个回收任务，回收空闲超过<tt>limitIdleTime</tt>的多余连接；开启<tt>adaptive</tt>时改为每秒调整一次连接池大小；<br>
+ * 2. 每个连接一个保活任务，连接空闲超过<tt>keepTestPeriod</tt>时检测连接是否有效，无效则关闭并补充新连接；<br>
+ * 3. 配置了<tt>maxLifetime</tt>时每个连接一个退役任务，连接到期且空闲时先补充新连接再关闭它。
+ * </p>
+ *
+ * <p>
+ * 保活任务在工作线程中并行执行，检测期间连接是{@link ConnectionProxy#STATE_RESERVED STATE_RESERVED}状态，
+ * 借用线程不需要加锁就会跳过它；<br>
+ * 每次安排保活任务时加上最多<tt>keepTestPeriod * 20%</tt>的随机延迟，避免同时归还的大量连接同时检测。
+ * </p>
+ *
+ * <p>
+ * 某个连接池的检测很慢时只占用一个工作线程，不会影响其它连接池的维护。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class MaintenanceScheduler {
+  private static final PoolLogger LOGGER = PoolLoggerFactory.getLogger(MaintenanceScheduler.class);
+
+  private static final long TICK_MILLIS = 100L;
+  private static final int WHEEL_SIZE = 512;
+  private static final int WORKER_THREADS =
+      Math.min(4, Runtime.getRuntime().availableProcessors());
+
+  private static final long ADAPTIVE_PERIOD = 1000L;
+
+  private static final double KEEP_ALIVE_JITTER = 0.2;
+
+  private final Random random = new Random();
+
+  private final ThreadPoolExecutor workers;
+  private final HashedWheelTimer timer;
+
+  public static MaintenanceScheduler start(Collection<ConnectionPoolManager> poolCollection) {
+    MaintenanceScheduler scheduler = new MaintenanceScheduler();
+    scheduler.timer.start();
+    for (ConnectionPoolManager pool : poolCollection) {
+      scheduler.register(pool);
+    }
+    LOGGER.info("start " + MaintenanceScheduler.class.getSimpleName());
+    return scheduler;
+  }
+
+  private MaintenanceScheduler() {
+    final String name = MaintenanceScheduler.class.getSimpleName();
+    this.workers = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 0L,
+        TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          private final AtomicInteger count = new AtomicInteger();
+
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable);
+            thread.setName(name + "-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    this.timer = new HashedWheelTimer(name + "-Timer", TICK_MILLIS, WHEEL_SIZE, this.workers);
+  }
+
+  /**
+   * 注册连接池的维护任务，连接池已有的和之后新建的连接都会有保活任务
+   */
+  public void register(ConnectionPoolManager pool) {
+    if (pool.getCfgVO().isAdaptive()) {
+      this.schedule(new AdaptiveTask(pool), ADAPTIVE_PERIOD);
+    } else {
+      this.schedule(new EvictTask(pool), this.evictPeriod(pool.getCfgVO()));
+    }
+    pool.setMaintenanceScheduler(this);
+  }
+
+  /**
+   * 新建连接时由{@link ConnectionPoolManager ConnectionPoolManager}调用
+   */
+  public void connectionCreated(ConnectionPoolManager pool, ConnectionProxy conProxy) {
+    long period = pool.getCfgVO().getKeepTestPeriod();
+    if (period >= 0) {
+      this.schedule(new KeepAliveTask(pool, conProxy), keepAliveDelay(period, period, this.random));
+    }
+    this.scheduleRetire(pool, conProxy);
+  }
+
+  /**
+   * 按连接的<tt>retireTime</tt>安排退役任务，退役失败推迟<tt>retireTime</tt>后也由此重新安排
+   */
+  public void scheduleRetire(ConnectionPoolManager pool, ConnectionProxy conProxy) {
+    long retireTime = conProxy.getRetireTime();
+    if (retireTime != Long.MAX_VALUE) {
+      this.schedule(new RetireTask(pool, conProxy), retireTime - System.currentTimeMillis());
+    }
+  }
+
+  public void stop() {
+    this.timer.stop();
+    this.workers.shutdownNow();
+    LOGGER.info("stop " + MaintenanceScheduler.class.getSimpleName());
+  }
+
+  private void schedule(Runnable task, long delayMillis) {
+    this.timer.newTimeout(task, delayMillis);
+  }
+
+  /**
+   * 保活任务的延迟：<tt>delay</tt>加上[0, period * {@link #KEEP_ALIVE_JITTER KEEP_ALIVE_JITTER})之间的随机延迟
+   *
+   * @param delay 距离下次检测的时间(ms)，不小于一个tick
+   * @param period <tt>keepTestPeriod</tt>(ms)
+   * @param random 随机数来源，测试时可以传入固定种子
+   */
+  public static long keepAliveDelay(long delay, long period, Random random) {
+    delay = Math.max(delay, TICK_MILLIS);
+    long bound = (long) (period * KEEP_ALIVE_JITTER);
+    if (bound <= 0) {
+      return delay;
+    }
+    return delay + (long) (random.nextDouble() * bound);
+  }
+
+  /**
+   * 连接最晚在空闲<tt>limitIdleTime * 1.5</tt>(ms)后被回收
+   */
+  private long evictPeriod(ConfigurationVO cfgVO) {
+    return Math.max(cfgVO.getLimitIdleTime() / 2, TICK_MILLIS);
+  }
+
+  /**
+   * 回收空闲超过<tt>limitIdleTime</tt>的多余连接
+   *
+   * @author xionghui
+   * @version 1.0.0
+   * @since 1.0.0
+   */
+  private class EvictTask implements Runnable {
+    private final ConnectionPoolManager pool;
+
+    EvictTask(ConnectionPoolManager pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    public void run() {
+      if (this.pool.isClosed()) {
+        return;
+      }
+      try {
+        this.pool.evictIdle();
+      } catch (Throwable t) {
+        LOGGER.error(EvictTask.class.getSimpleName() + " error: ", t);
+      }
+      MaintenanceScheduler.this.schedule(this,
+          MaintenanceScheduler.this.evictPeriod(this.pool.getCfgVO()));
+    }
+  }
+
+  /**
+   * 按需调整连接池大小
+   *
+   * @author xionghui
+   * @version 1.0.0
+   * @since 1.0.0
+   */
+  private class AdaptiveTask implements Runnable {
+    private final ConnectionPoolManager pool;
+
+    AdaptiveTask(ConnectionPoolManager pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    public void run() {
+      if (this.pool.isClosed()) {
+        return;
+      }
+      try {
+        this.pool.adjustPoolSize();
+      } catch (Throwable t) {
+        LOGGER.error(AdaptiveTask.class.getSimpleName() + " error: ", t);
+      }
+      MaintenanceScheduler.this.schedule(this, ADAPTIVE_PERIOD);
+    }
+  }
+
+  /**
+   * 检测空闲超过<tt>keepTestPeriod</tt>的连接
+   *
+   * @author xionghui
+   * @version 1.0.0
+   * @since 1.0.0
+   */
+  private class KeepAliveTask implements Runnable {
+    private final ConnectionPoolManager pool;
+    private final ConnectionProxy conProxy;
+
+    KeepAliveTask(ConnectionPoolManager pool, ConnectionProxy conProxy) {
+      this.pool = pool;
+      this.conProxy = conProxy;
+    }
+
+    @Override
+    public void run() {
+      long period = this.pool.getCfgVO().getKeepTestPeriod();
+      long delay;
+      try {
+        delay = this.pool.keepAlive(this.conProxy);
+      } catch (Throwable t) {
+        LOGGER.error(KeepAliveTask.class.getSimpleName() + " error: ", t);
+        delay = period;
+      }
+      if (delay >= 0) {
+        MaintenanceScheduler.this.schedule(this,
+            keepAliveDelay(delay, period, MaintenanceScheduler.this.random));
+      }
+    }
+  }
+
+  /**
+   * 连接达到<tt>maxLifetime</tt>后退役
+   *
+   * @author xionghui
+   * @version 1.0.0
+   * @since 1.0.0
+   */
+  private class RetireTask implements Runnable {
+    private final ConnectionPoolManager pool;
+    private final ConnectionProxy conProxy;
+
+    RetireTask(ConnectionPoolManager pool, ConnectionProxy conProxy) {
+      this.pool = pool;
+      this.conProxy = conProxy;
+    }
+
+    @Override
+    public void run() {
+      long delay;
+      try {
+        delay = this.pool.retireIdle(this.conProxy);
+      } catch (Throwable t) {
+        LOGGER.error(RetireTask.class.getSimpleName() + " error: ", t);
+        delay = -1;
+      }
+      if (delay >= 0) {
+        MaintenanceScheduler.this.schedule(this, Math.max(delay, TICK_MILLIS));
+      }
+    }
+  }
+}
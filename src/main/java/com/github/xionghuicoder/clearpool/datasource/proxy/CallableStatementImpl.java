@@ -0,0 +1,1671 @@
+package com.github.xionghuicoder.clearpool.datasource.proxy;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * {@link CallableStatement CallableStatement}的包装类
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class CallableStatementImpl extends PreparedStatementImpl implements CallableStatement {
+  private CallableStatement callableStatement;
+
+  CallableStatementImpl(CallableStatement statement, PoolConnectionImpl pooledConnection,
+      String sql, Object[] createArgs, StatementCache.Key cacheKey) {
+    super(statement, pooledConnection, sql, createArgs, cacheKey);
+    this.callableStatement = statement;
+  }
+
+  @Override
+  void setStatement(Statement statement) {
+    super.setStatement(statement);
+    this.callableStatement = (CallableStatement) statement;
+  }
+
+  @Override
+  Statement recreate(Connection con, Object[] createArgs) throws SQLException {
+    String sql = (String) createArgs[0];
+    if (createArgs.length == 1) {
+      return con.prepareCall(sql);
+    }
+    int resultSetType = (Integer) createArgs[1];
+    int resultSetConcurrency = (Integer) createArgs[2];
+    if (createArgs.length == 3) {
+      return con.prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+    return con.prepareCall(sql, resultSetType, resultSetConcurrency, (Integer) createArgs[3]);
+  }
+
+  @Override
+  public void registerOutParameter(final int parameterIndex, final int sqlType)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.registerOutParameter(parameterIndex, sqlType);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).registerOutParameter(parameterIndex, sqlType);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void registerOutParameter(final int parameterIndex, final int sqlType, final int scale)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.registerOutParameter(parameterIndex, sqlType, scale);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).registerOutParameter(parameterIndex, sqlType, scale);
+        }
+      });
+    }
+  }
+
+  @Override
+  public boolean wasNull() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.wasNull();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public String getString(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getString(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public boolean getBoolean(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getBoolean(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public byte getByte(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getByte(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public short getShort(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getShort(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public int getInt(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getInt(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public long getLong(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getLong(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public float getFloat(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getFloat(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public double getDouble(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getDouble(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Deprecated
+  @Override
+  public BigDecimal getBigDecimal(int parameterIndex, int scale) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getBigDecimal(parameterIndex, scale);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public byte[] getBytes(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getBytes(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Date getDate(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getDate(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Time getTime(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getTime(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Timestamp getTimestamp(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getTimestamp(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Object getObject(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getObject(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getBigDecimal(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Object getObject(int parameterIndex, Map<String, Class<?>> map) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getObject(parameterIndex, map);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Ref getRef(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getRef(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Blob getBlob(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getBlob(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Clob getClob(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getClob(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Array getArray(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getArray(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Date getDate(int parameterIndex, Calendar cal) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getDate(parameterIndex, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Time getTime(int parameterIndex, Calendar cal) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getTime(parameterIndex, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Timestamp getTimestamp(int parameterIndex, Calendar cal) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getTimestamp(parameterIndex, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void registerOutParameter(final int parameterIndex, final int sqlType,
+      final String typeName) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.registerOutParameter(parameterIndex, sqlType, typeName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).registerOutParameter(parameterIndex, sqlType, typeName);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void registerOutParameter(final String parameterName, final int sqlType)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.registerOutParameter(parameterName, sqlType);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).registerOutParameter(parameterName, sqlType);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void registerOutParameter(final String parameterName, final int sqlType, final int scale)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.registerOutParameter(parameterName, sqlType, scale);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).registerOutParameter(parameterName, sqlType, scale);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void registerOutParameter(final String parameterName, final int sqlType,
+      final String typeName) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.registerOutParameter(parameterName, sqlType, typeName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).registerOutParameter(parameterName, sqlType, typeName);
+        }
+      });
+    }
+  }
+
+  @Override
+  public URL getURL(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getURL(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setURL(final String parameterName, final URL x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setURL(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setURL(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setNull(final String parameterName, final int sqlType) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setNull(parameterName, sqlType);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setNull(parameterName, sqlType);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setBoolean(final String parameterName, final boolean x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setBoolean(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setBoolean(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setByte(final String parameterName, final byte x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setByte(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setByte(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setShort(final String parameterName, final short x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setShort(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setShort(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setInt(final String parameterName, final int x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setInt(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setInt(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setLong(final String parameterName, final long x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setLong(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setLong(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setFloat(final String parameterName, final float x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setFloat(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setFloat(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setDouble(final String parameterName, final double x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setDouble(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setDouble(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setBigDecimal(final String parameterName, final BigDecimal x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setBigDecimal(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setBigDecimal(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setString(final String parameterName, final String x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setString(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setString(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setBytes(final String parameterName, final byte[] x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setBytes(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setBytes(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setDate(final String parameterName, final Date x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setDate(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setDate(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setTime(final String parameterName, final Time x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setTime(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setTime(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setTimestamp(final String parameterName, final Timestamp x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setTimestamp(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setTimestamp(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setAsciiStream(final String parameterName, final InputStream x, final int length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setAsciiStream(parameterName, x, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setAsciiStream(parameterName, x, length);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setBinaryStream(final String parameterName, final InputStream x, final int length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setBinaryStream(parameterName, x, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setBinaryStream(parameterName, x, length);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setObject(final String parameterName, final Object x, final int targetSqlType,
+      final int scaleOrLength) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setObject(parameterName, x, targetSqlType, scaleOrLength);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setObject(parameterName, x, targetSqlType, scaleOrLength);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setObject(final String parameterName, final Object x, final int targetSqlType)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setObject(parameterName, x, targetSqlType);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setObject(parameterName, x, targetSqlType);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setObject(final String parameterName, final Object x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setObject(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setObject(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setCharacterStream(final String parameterName, final Reader reader, final int length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setCharacterStream(parameterName, reader, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setCharacterStream(parameterName, reader, length);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setDate(final String parameterName, final Date x, final Calendar cal)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setDate(parameterName, x, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setDate(parameterName, x, cal);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setTime(final String parameterName, final Time x, final Calendar cal)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setTime(parameterName, x, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setTime(parameterName, x, cal);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setTimestamp(final String parameterName, final Timestamp x, final Calendar cal)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setTimestamp(parameterName, x, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setTimestamp(parameterName, x, cal);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setNull(final String parameterName, final int sqlType, final String typeName)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setNull(parameterName, sqlType, typeName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setNull(parameterName, sqlType, typeName);
+        }
+      });
+    }
+  }
+
+  @Override
+  public String getString(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getString(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public boolean getBoolean(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getBoolean(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public byte getByte(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getByte(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public short getShort(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getShort(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public int getInt(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getInt(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public long getLong(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getLong(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public float getFloat(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getFloat(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public double getDouble(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getDouble(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public byte[] getBytes(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getBytes(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Date getDate(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getDate(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Time getTime(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getTime(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Timestamp getTimestamp(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getTimestamp(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Object getObject(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getObject(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getBigDecimal(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Object getObject(String parameterName, Map<String, Class<?>> map) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getObject(parameterName, map);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Ref getRef(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getRef(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Blob getBlob(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getBlob(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Clob getClob(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getClob(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Array getArray(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getArray(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Date getDate(String parameterName, Calendar cal) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getDate(parameterName, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Time getTime(String parameterName, Calendar cal) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getTime(parameterName, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Timestamp getTimestamp(String parameterName, Calendar cal) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getTimestamp(parameterName, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public URL getURL(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getURL(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public RowId getRowId(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getRowId(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public RowId getRowId(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getRowId(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setRowId(final String parameterName, final RowId x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setRowId(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setRowId(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setNString(final String parameterName, final String x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setNString(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setNString(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setNCharacterStream(final String parameterName, final Reader reader,
+      final long length) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setNCharacterStream(parameterName, reader, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setNCharacterStream(parameterName, reader, length);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setNClob(final String parameterName, final NClob x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setNClob(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setNClob(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setClob(final String parameterName, final Reader reader, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setClob(parameterName, reader, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setClob(parameterName, reader, length);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setBlob(final String parameterName, final InputStream x, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setBlob(parameterName, x, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setBlob(parameterName, x, length);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setNClob(final String parameterName, final Reader reader, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setNClob(parameterName, reader, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setNClob(parameterName, reader, length);
+        }
+      });
+    }
+  }
+
+  @Override
+  public NClob getNClob(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getNClob(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public NClob getNClob(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getNClob(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setSQLXML(final String parameterName, final SQLXML x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setSQLXML(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setSQLXML(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public SQLXML getSQLXML(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getSQLXML(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public SQLXML getSQLXML(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getSQLXML(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public String getNString(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getNString(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public String getNString(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getNString(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Reader getNCharacterStream(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getNCharacterStream(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Reader getNCharacterStream(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getNCharacterStream(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Reader getCharacterStream(int parameterIndex) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getCharacterStream(parameterIndex);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Reader getCharacterStream(String parameterName) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getCharacterStream(parameterName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setBlob(final String parameterName, final Blob x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setBlob(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setBlob(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setClob(final String parameterName, final Clob x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setClob(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setClob(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setAsciiStream(final String parameterName, final InputStream x, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setAsciiStream(parameterName, x, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setAsciiStream(parameterName, x, length);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setBinaryStream(final String parameterName, final InputStream x, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setBinaryStream(parameterName, x, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setBinaryStream(parameterName, x, length);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setCharacterStream(final String parameterName, final Reader reader, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setCharacterStream(parameterName, reader, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setCharacterStream(parameterName, reader, length);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setAsciiStream(final String parameterName, final InputStream x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setAsciiStream(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setAsciiStream(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setBinaryStream(final String parameterName, final InputStream x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setBinaryStream(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setBinaryStream(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setCharacterStream(final String parameterName, final Reader reader)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setCharacterStream(parameterName, reader);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setCharacterStream(parameterName, reader);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setNCharacterStream(final String parameterName, final Reader reader)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setNCharacterStream(parameterName, reader);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setNCharacterStream(parameterName, reader);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setClob(final String parameterName, final Reader reader) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setClob(parameterName, reader);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setClob(parameterName, reader);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setBlob(final String parameterName, final InputStream x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setBlob(parameterName, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setBlob(parameterName, x);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setNClob(final String parameterName, final Reader reader) throws SQLException {
+    this.checkOpen();
+    try {
+      this.callableStatement.setNClob(parameterName, reader);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((CallableStatement) statement).setNClob(parameterName, reader);
+        }
+      });
+    }
+  }
+
+  public <T> T getObject(int parameterIndex, Class<T> type) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getObject(parameterIndex, type);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  public <T> T getObject(String parameterName, Class<T> type) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.callableStatement.getObject(parameterName, type);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.github.xionghuicoder.clearpool.datasource.proxy;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+import com.github.xionghuicoder.clearpool.core.ConnectionState;
+
+/**
+ * 驱动给新连接的默认属性
+ *
+ * <p>
+ * 连接池的第一个连接从驱动读取一次，之后新建的连接直接复用，不再访问数据库；<br>
+ * 驱动不支持JDBC4.1的schema时{@link #isSchemaSupported isSchemaSupported}为false。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ConnectionDefaults {
+  final boolean autoCommit;
+  final String catalog;
+  final int holdability;
+  final boolean readOnly;
+  final int transactionIsolation;
+  final String schema;
+  final boolean schemaSupported;
+
+  private ConnectionDefaults(Connection connection) throws SQLException {
+    this.autoCommit = connection.getAutoCommit();
+    this.catalog = connection.getCatalog();
+    this.holdability = connection.getHoldability();
+    this.readOnly = connection.isReadOnly();
+    this.transactionIsolation = connection.getTransactionIsolation();
+    String schema = null;
+    boolean schemaSupported;
+    try {
+      schema = connection.getSchema();
+      schemaSupported = true;
+    } catch (SQLFeatureNotSupportedException e) {
+      schemaSupported = false;
+    } catch (LinkageError e) {
+      // 驱动或者jdk不支持JDBC4.1
+      schemaSupported = false;
+    }
+    this.schema = schema;
+    this.schemaSupported = schemaSupported;
+  }
+
+  /**
+   * 从驱动读取<tt>connection</tt>的属性
+   */
+  public static ConnectionDefaults read(Connection connection) throws SQLException {
+    return new ConnectionDefaults(connection);
+  }
+
+  /**
+   * @return 默认属性对应的连接状态，驱动不支持schema时不关心schema
+   */
+  public ConnectionState toState() {
+    ConnectionState state = new ConnectionState();
+    state.setReadOnly(this.readOnly);
+    state.setTransactionIsolation(this.transactionIsolation);
+    state.setCatalog(this.catalog);
+    if (this.schemaSupported) {
+      state.setSchema(this.schema);
+    }
+    return state;
+  }
+
+  public boolean isSchemaSupported() {
+    return this.schemaSupported;
+  }
+}
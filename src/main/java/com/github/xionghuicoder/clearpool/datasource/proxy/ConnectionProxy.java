@@ -1,16 +1,18 @@
 package com.github.xionghuicoder.clearpool.datasource.proxy;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Savepoint;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import javax.sql.XAConnection;
 
 import com.github.xionghuicoder.clearpool.ConnectionPoolException;
 import com.github.xionghuicoder.clearpool.core.ConfigurationVO;
 import com.github.xionghuicoder.clearpool.core.ConnectionPoolManager;
+import com.github.xionghuicoder.clearpool.core.ConnectionState;
 import com.github.xionghuicoder.clearpool.datasource.CommonConnection;
 import com.github.xionghuicoder.clearpool.logging.PoolLogger;
 import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
@@ -25,80 +27,284 @@ import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
 public class ConnectionProxy implements Comparable<ConnectionProxy> {
   private static final PoolLogger LOGGER = PoolLoggerFactory.getLogger(ConnectionProxy.class);
 
-  private static final Object PRESENT = new Object();
+  /**
+   * 连接状态：空闲，使用中，被保留（如空闲检测时被取出）
+   */
+  public static final int STATE_IDLE = 0;
+  public static final int STATE_IN_USE = 1;
+  public static final int STATE_RESERVED = 2;
+
+  private static final AtomicIntegerFieldUpdater<ConnectionProxy> STATE_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(ConnectionProxy.class, "state");
 
   private final ConnectionPoolManager pool;
   private final Connection connection;
   private final XAConnection xaConnection;
 
-  private Map<String, Object> sqlMap = new WeakHashMap<String, Object>();
+  // 执行过的sql的指纹，借用线程写入，借还引擎遍历空闲连接时读取
+  private final SqlFingerprintSet sqlSet = new SqlFingerprintSet();
   private int sqlCount;
 
+  private volatile int state = STATE_IDLE;
+  // 最近一次放回连接池的时间
+  private volatile long entryTime = System.currentTimeMillis();
+  // 所在借还引擎空闲链的下标，不在空闲链中时为-1，由借还引擎的锁保护
+  private volatile int chainIndex = -1;
+  // 最近一次借出的时间(ns)，开启adaptive时用于统计连接持有时间
+  private long borrowNanos;
+  // 最近一次借出时调用方的等待期限(ns)，乐观检测失败后换连接也不超过这个期限
+  private boolean borrowTimed;
+  private long borrowDeadline;
+  // 最近一次确认连接有效的时间：新建，检测通过或正常归还
+  private volatile long lastValidTime = System.currentTimeMillis();
+  // 达到maxLifetime后退役的时间，不限制时为Long.MAX_VALUE；退役失败后会被推迟
+  private volatile long retireTime = Long.MAX_VALUE;
+  // 连续退役失败的次数，只在创建线程中修改
+  private int retireFailures;
+  // 借出次数，只在借用线程中修改
+  private int useCount;
+  // 没有开启statement缓存时为null
+  private final StatementCache statementCache;
+
+  // 归还时恢复到的属性：驱动的默认值，或者最近一次按ConnectionState借出时的状态
   boolean autoCommit;
   String catalog;
   int holdability;
   boolean readOnly;
   int transactionIsolation;
+  String schema;
+  // 驱动是否支持schema
+  boolean schemaSupported;
 
+  // 本次借出后的属性，getter直接返回这里缓存的值
   boolean newAutoCommit;
   String newCatalog;
   int newHoldability;
   boolean newReadOnly;
   int newTransactionIsolation;
+  String newSchema;
 
   Savepoint savepoint;
 
+  // 本次借出是否可能有未结束的事务：执行过sql或设置过保存点，commit或rollback后清除
+  boolean transactionDirty;
+  // 本次借出是否调用过可能产生警告的方法，clearWarnings后清除
+  boolean warningDirty;
+  // 本次借出时执行sql遇到了连接失效，归还时关闭而不是放回连接池
+  private volatile boolean broken;
+
   public ConnectionProxy(ConnectionPoolManager pool, CommonConnection cmnCon) {
     this.pool = pool;
     this.connection = cmnCon.getConnection();
     this.xaConnection = cmnCon.getXAConnection();
+    int statementCacheSize = pool.getCfgVO().getStatementCacheSize();
+    this.statementCache =
+        statementCacheSize > 0 ? new StatementCache(pool, statementCacheSize) : null;
     this.saveValue();
   }
 
   /**
-   * 使用connection前保存connection属性
+   * 使用connection前保存connection属性；只有连接池的第一个连接从驱动读取，之后的连接复用它的默认属性
    */
   private void saveValue() {
-    try {
-      this.newAutoCommit = this.autoCommit = this.connection.getAutoCommit();
-      this.newCatalog = this.catalog = this.connection.getCatalog();
-      this.newHoldability = this.holdability = this.connection.getHoldability();
-      this.newReadOnly = this.readOnly = this.connection.isReadOnly();
-      this.newTransactionIsolation =
-          this.transactionIsolation = this.connection.getTransactionIsolation();
-    } catch (SQLException e) {
-      throw new ConnectionPoolException(e);
+    ConnectionDefaults defaults = this.pool.getConnectionDefaults();
+    if (defaults == null) {
+      try {
+        defaults = ConnectionDefaults.read(this.connection);
+      } catch (SQLException e) {
+        throw new ConnectionPoolException(e);
+      }
+      this.pool.setConnectionDefaults(defaults);
     }
+    this.newAutoCommit = this.autoCommit = defaults.autoCommit;
+    this.newCatalog = this.catalog = defaults.catalog;
+    this.newHoldability = this.holdability = defaults.holdability;
+    this.newReadOnly = this.readOnly = defaults.readOnly;
+    this.newTransactionIsolation = this.transactionIsolation = defaults.transactionIsolation;
+    this.newSchema = this.schema = defaults.schema;
+    this.schemaSupported = defaults.schemaSupported;
   }
 
   /**
    * reset connection属性
+   *
+   * <p>
+   * 只做本次借出弄脏的部分：有未结束的事务才rollback，属性改过才恢复，可能有警告才clearWarnings；<br>
+   * 借出期间没有执行sql也没有修改属性时不访问数据库。<br>
+   * 恢复了catalog或schema时清空执行过的sql和缓存的statement，它们是在另一个catalog或schema下准备的。
+   * </p>
    */
   void reset() throws SQLException {
-    boolean autoCommit = this.connection.getAutoCommit();
-    if (!autoCommit) {
-      this.connection.rollback();
+    if (this.transactionDirty) {
+      if (!this.newAutoCommit) {
+        this.connection.rollback();
+      }
+      this.transactionDirty = false;
+      // 事务结束后保存点已经失效
+      this.savepoint = null;
     }
 
     if (this.newAutoCommit != this.autoCommit) {
       this.connection.setAutoCommit(this.autoCommit);
+      this.newAutoCommit = this.autoCommit;
+      this.warningDirty = true;
     }
-    if (this.newCatalog != this.catalog) {
+    if (isChanged(this.newCatalog, this.catalog)) {
       this.connection.setCatalog(this.catalog);
+      this.newCatalog = this.catalog;
+      this.warningDirty = true;
+      this.clearPrepared();
     }
     if (this.newHoldability != this.holdability) {
       this.connection.setHoldability(this.holdability);
+      this.newHoldability = this.holdability;
+      this.warningDirty = true;
     }
     if (this.newReadOnly != this.readOnly) {
       this.connection.setReadOnly(this.readOnly);
+      this.newReadOnly = this.readOnly;
+      this.warningDirty = true;
     }
     if (this.newTransactionIsolation != this.transactionIsolation) {
       this.connection.setTransactionIsolation(this.transactionIsolation);
+      this.newTransactionIsolation = this.transactionIsolation;
+      this.warningDirty = true;
+    }
+    if (isChanged(this.newSchema, this.schema)) {
+      this.connection.setSchema(this.schema);
+      this.newSchema = this.schema;
+      this.warningDirty = true;
+      this.clearPrepared();
+    }
+    if (this.warningDirty) {
+      this.connection.clearWarnings();
+      this.warningDirty = false;
+    }
+  }
+
+  private static boolean isChanged(String value, String original) {
+    return value == null ? original != null : !value.equals(original);
+  }
+
+  /**
+   * @return 连接归还后的状态是否满足<tt>state</tt>，<tt>state</tt>中为<tt>null</tt>的属性不比较
+   */
+  public boolean matches(ConnectionState state) {
+    Boolean readOnly = state.getReadOnly();
+    if (readOnly != null && readOnly.booleanValue() != this.readOnly) {
+      return false;
+    }
+    Integer transactionIsolation = state.getTransactionIsolation();
+    if (transactionIsolation != null
+        && transactionIsolation.intValue() != this.transactionIsolation) {
+      return false;
+    }
+    String catalog = state.getCatalog();
+    if (catalog != null && !catalog.equals(this.catalog)) {
+      return false;
+    }
+    String schema = state.getSchema();
+    return schema == null || schema.equals(this.schema);
+  }
+
+  /**
+   * 借出前把连接修改成<tt>state</tt>，之后归还时保持该状态；只修改不一样的属性；<br>
+   * 和{@link #reset() reset}一样，修改了catalog或schema时清空执行过的sql和缓存的statement
+   *
+   * @return 是否修改了连接的属性
+   */
+  public boolean applyState(ConnectionState state) throws SQLException {
+    String schema = state.getSchema();
+    if (schema != null && !this.schemaSupported) {
+      throw new SQLFeatureNotSupportedException("schema is not supported by the driver");
+    }
+    boolean changed = false;
+    Boolean readOnly = state.getReadOnly();
+    if (readOnly != null && readOnly.booleanValue() != this.readOnly) {
+      this.connection.setReadOnly(readOnly.booleanValue());
+      this.newReadOnly = this.readOnly = readOnly.booleanValue();
+      changed = true;
+    }
+    Integer transactionIsolation = state.getTransactionIsolation();
+    if (transactionIsolation != null
+        && transactionIsolation.intValue() != this.transactionIsolation) {
+      this.connection.setTransactionIsolation(transactionIsolation.intValue());
+      this.newTransactionIsolation = this.transactionIsolation = transactionIsolation.intValue();
+      changed = true;
+    }
+    String catalog = state.getCatalog();
+    if (catalog != null && !catalog.equals(this.catalog)) {
+      this.connection.setCatalog(catalog);
+      this.newCatalog = this.catalog = catalog;
+      changed = true;
+      this.clearPrepared();
+    }
+    if (schema != null && !schema.equals(this.schema)) {
+      this.connection.setSchema(schema);
+      this.newSchema = this.schema = schema;
+      changed = true;
+      this.clearPrepared();
+    }
+    if (changed) {
+      this.warningDirty = true;
+    }
+    return changed;
+  }
+
+  /**
+   * statement执行sql时调用，之后归还需要rollback未结束的事务并clearWarnings
+   */
+  public void markDirty() {
+    this.transactionDirty = true;
+    this.warningDirty = true;
+  }
+
+  /**
+   * 关闭当前失效的连接，换一个检测过的连接，并恢复本次借出时修改过的连接属性
+   *
+   * @return 新的连接，失败时返回<tt>null</tt>
+   */
+  ConnectionProxy reconnect() {
+    ConnectionProxy newProxy = this.pool.replace(this);
+    if (newProxy == null) {
+      return null;
     }
-    if (this.savepoint != null) {
-      this.connection.releaseSavepoint(this.savepoint);
+    try {
+      newProxy.restoreFrom(this);
+    } catch (SQLException e) {
+      LOGGER.error("restore connection error: ", e);
+      newProxy.close();
+      return null;
+    }
+    return newProxy;
+  }
+
+  private void restoreFrom(ConnectionProxy conProxy) throws SQLException {
+    this.warningDirty = true;
+    if (conProxy.newAutoCommit != this.newAutoCommit) {
+      this.connection.setAutoCommit(conProxy.newAutoCommit);
+      this.newAutoCommit = conProxy.newAutoCommit;
+    }
+    if (isChanged(conProxy.newCatalog, this.newCatalog)) {
+      this.connection.setCatalog(conProxy.newCatalog);
+      this.newCatalog = conProxy.newCatalog;
+    }
+    if (conProxy.newHoldability != this.newHoldability) {
+      this.connection.setHoldability(conProxy.newHoldability);
+      this.newHoldability = conProxy.newHoldability;
+    }
+    if (conProxy.newReadOnly != this.newReadOnly) {
+      this.connection.setReadOnly(conProxy.newReadOnly);
+      this.newReadOnly = conProxy.newReadOnly;
+    }
+    if (conProxy.newTransactionIsolation != this.newTransactionIsolation) {
+      this.connection.setTransactionIsolation(conProxy.newTransactionIsolation);
+      this.newTransactionIsolation = conProxy.newTransactionIsolation;
+    }
+    if (isChanged(conProxy.newSchema, this.newSchema)) {
+      this.connection.setSchema(conProxy.newSchema);
+      this.newSchema = conProxy.newSchema;
     }
-    this.connection.clearWarnings();
   }
 
   public Connection getConnection() {
@@ -110,28 +316,161 @@ public class ConnectionProxy implements Comparable<ConnectionProxy> {
   }
 
   public void close() {
+    if (this.broken) {
+      this.pool.discard(this);
+      return;
+    }
     try {
       this.reset();
     } catch (SQLException e) {
       LOGGER.error("reset error: ", e);
-      this.reallyClose();
+      this.pool.discard(this);
       return;
     }
+    this.lastValidTime = System.currentTimeMillis();
     this.pool.entryPool(this);
   }
 
-  private void reallyClose() {
-    this.pool.closeConnection(this);
-    this.pool.decrementPoolSize();
-    this.pool.incrementOneConnection();
+  /**
+   * 标记连接已失效，归还时交给{@link ConnectionPoolManager#discard discard}关闭并补充新连接
+   */
+  public void markBroken() {
+    this.broken = true;
+  }
+
+  public int getState() {
+    return this.state;
+  }
+
+  public void setState(int state) {
+    this.state = state;
+  }
+
+  public boolean compareAndSetState(int expect, int update) {
+    return STATE_UPDATER.compareAndSet(this, expect, update);
+  }
+
+  public long getEntryTime() {
+    return this.entryTime;
+  }
+
+  public void setEntryTime(long entryTime) {
+    this.entryTime = entryTime;
+  }
+
+  public long getBorrowNanos() {
+    return this.borrowNanos;
+  }
+
+  public void setBorrowNanos(long borrowNanos) {
+    this.borrowNanos = borrowNanos;
+  }
+
+  public boolean isBorrowTimed() {
+    return this.borrowTimed;
+  }
+
+  public long getBorrowDeadline() {
+    return this.borrowDeadline;
+  }
+
+  /**
+   * @param timed 调用方是否限制了等待时间
+   * @param deadline 等待期限(ns)，<tt>timed</tt>为false时忽略
+   */
+  public void setBorrowDeadline(boolean timed, long deadline) {
+    this.borrowTimed = timed;
+    this.borrowDeadline = deadline;
+  }
+
+  public long getLastValidTime() {
+    return this.lastValidTime;
+  }
+
+  public void setLastValidTime(long lastValidTime) {
+    this.lastValidTime = lastValidTime;
+  }
+
+  public long getRetireTime() {
+    return this.retireTime;
+  }
+
+  public void setRetireTime(long retireTime) {
+    this.retireTime = retireTime;
+  }
+
+  /**
+   * @return 加上本次之后连续退役失败的次数
+   */
+  public int incrementRetireFailures() {
+    return ++this.retireFailures;
+  }
+
+  public int getUseCount() {
+    return this.useCount;
+  }
+
+  public void incrementUseCount() {
+    this.useCount++;
+  }
+
+  public int getChainIndex() {
+    return this.chainIndex;
+  }
+
+  public void setChainIndex(int chainIndex) {
+    this.chainIndex = chainIndex;
   }
 
   public ConfigurationVO getCfgVO() {
     return this.pool.getCfgVO();
   }
 
+  /**
+   * @return statement缓存的key，没有开启statement缓存时返回<tt>null</tt>
+   */
+  StatementCache.Key statementKey(boolean callable, Object[] createArgs) {
+    if (this.statementCache == null || createArgs[0] == null) {
+      return null;
+    }
+    return new StatementCache.Key(callable, createArgs);
+  }
+
+  /**
+   * @return 缓存的statement，<tt>key</tt>为<tt>null</tt>或没有缓存时返回<tt>null</tt>
+   */
+  PreparedStatement takeStatement(StatementCache.Key key) {
+    if (key == null) {
+      return null;
+    }
+    return this.statementCache.take(key);
+  }
+
+  /**
+   * @return 是否放回缓存，返回<tt>false</tt>时由调用者关闭statement
+   */
+  boolean cacheStatement(StatementCache.Key key, PreparedStatement statement) {
+    return this.statementCache.put(key, statement);
+  }
+
+  /**
+   * 关闭物理连接前关闭缓存的statement
+   */
+  public void clearStatementCache() {
+    if (this.statementCache != null) {
+      this.statementCache.clear();
+    }
+  }
+
   public void dealSqlCount(String sql) {
-    if (this.sqlMap.put(sql, PRESENT) == null) {
+    this.dealSqlCount(SqlFingerprintSet.fingerprint(sql));
+  }
+
+  /**
+   * @param fingerprint {@link SqlFingerprintSet#fingerprint sql的指纹}，PreparedStatement只在新建时计算一次
+   */
+  void dealSqlCount(long fingerprint) {
+    if (this.sqlSet.add(fingerprint)) {
       int count = this.sqlCount;
       count++;
       if (count > 0) {
@@ -140,6 +479,35 @@ public class ConnectionProxy implements Comparable<ConnectionProxy> {
     }
   }
 
+  /**
+   * 修改catalog或schema后调用，在借还引擎之外调用，连接不在空闲链中，清空后不需要重新排序
+   */
+  private void clearPrepared() {
+    this.sqlSet.clear();
+    this.sqlCount = 0;
+    if (this.statementCache != null) {
+      this.statementCache.evictAll();
+    }
+  }
+
+  /**
+   * 连接是否执行过<tt>sql</tt>，或者缓存了它的statement；<br>
+   * 执行过的sql通常已经在驱动或数据库端准备好，再次执行时不需要重新解析
+   */
+  public boolean hasStatement(String sql) {
+    return this.hasStatement(sql, SqlFingerprintSet.fingerprint(sql));
+  }
+
+  /**
+   * @param fingerprint {@link SqlFingerprintSet#fingerprint sql的指纹}，遍历多个连接时只计算一次
+   */
+  public boolean hasStatement(String sql, long fingerprint) {
+    if (this.sqlSet.contains(fingerprint)) {
+      return true;
+    }
+    return this.statementCache != null && this.statementCache.contains(sql);
+  }
+
   @Override
   public int compareTo(ConnectionProxy anoConnProxy) {
     int x = this.sqlCount;
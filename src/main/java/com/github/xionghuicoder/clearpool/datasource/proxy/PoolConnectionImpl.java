@@ -34,7 +34,8 @@ import com.github.xionghuicoder.clearpool.datasource.proxy.dynamic.ProxyFactory;
 
 public class PoolConnectionImpl implements PooledConnection, Connection {
   private Connection connection;
-  protected final ConnectionProxy conProxy;
+  // 开启optimisticValidation时，第一条sql因为连接失效执行失败后会换成新的连接
+  protected ConnectionProxy conProxy;
 
   private List<ConnectionEventListener> connectionEventListeners;
   private List<StatementEventListener> statementEventListeners;
@@ -43,6 +44,9 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
 
   private volatile boolean isClosed;
 
+  // 本次借出是否已经执行过sql
+  private boolean executed;
+
   public PoolConnectionImpl(ConnectionProxy conProxy) {
     this.connection = conProxy.getConnection();
     this.conProxy = conProxy;
@@ -77,38 +81,46 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
     } catch (SQLException ex) {
       this.handleException(ex);
     }
-    Statement statementProxy = this.createProxyStatement(statement, null);
-    this.statementSet.add(statementProxy);
+    Statement statementProxy = new StatementImpl(statement, this, new Object[0]);
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
   @Override
   public PreparedStatement prepareStatement(String sql) throws SQLException {
     this.checkState();
-    PreparedStatement statement = null;
-    try {
-      statement = this.connection.prepareStatement(sql);
-    } catch (SQLException ex) {
-      this.handleException(ex);
+    Object[] createArgs = new Object[] {sql};
+    StatementCache.Key cacheKey = this.conProxy.statementKey(false, createArgs);
+    PreparedStatement statement = this.conProxy.takeStatement(cacheKey);
+    if (statement == null) {
+      try {
+        statement = this.connection.prepareStatement(sql);
+      } catch (SQLException ex) {
+        this.handleException(ex);
+      }
     }
     PreparedStatement statementProxy =
-        (PreparedStatement) this.createProxyStatement(statement, sql);
-    this.statementSet.add(statementProxy);
+        new PreparedStatementImpl(statement, this, sql, createArgs, cacheKey);
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
   @Override
   public CallableStatement prepareCall(String sql) throws SQLException {
     this.checkState();
-    CallableStatement statement = null;
-    try {
-      statement = this.connection.prepareCall(sql);
-    } catch (SQLException ex) {
-      this.handleException(ex);
+    Object[] createArgs = new Object[] {sql};
+    StatementCache.Key cacheKey = this.conProxy.statementKey(true, createArgs);
+    CallableStatement statement = (CallableStatement) this.conProxy.takeStatement(cacheKey);
+    if (statement == null) {
+      try {
+        statement = this.connection.prepareCall(sql);
+      } catch (SQLException ex) {
+        this.handleException(ex);
+      }
     }
     CallableStatement statementProxy =
-        (CallableStatement) this.createProxyStatement(statement, sql);
-    this.statementSet.add(statementProxy);
+        new CallableStatementImpl(statement, this, sql, createArgs, cacheKey);
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
@@ -126,13 +138,19 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
     } catch (SQLException ex) {
       this.handleException(ex);
     }
+    if (autoCommit && !this.conProxy.newAutoCommit) {
+      // 打开autoCommit时会提交当前事务
+      this.conProxy.transactionDirty = false;
+      this.conProxy.savepoint = null;
+    }
     this.conProxy.newAutoCommit = autoCommit;
+    this.conProxy.warningDirty = true;
   }
 
   @Override
   public boolean getAutoCommit() throws SQLException {
     this.checkState();
-    return this.connection.getAutoCommit();
+    return this.conProxy.newAutoCommit;
   }
 
   @Override
@@ -143,6 +161,7 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
     } catch (SQLException ex) {
       this.handleException(ex);
     }
+    this.endTransaction();
   }
 
   @Override
@@ -153,6 +172,15 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
     } catch (SQLException ex) {
       this.handleException(ex);
     }
+    this.endTransaction();
+  }
+
+  /**
+   * 事务已经结束，归还时不需要rollback
+   */
+  private void endTransaction() {
+    this.conProxy.transactionDirty = false;
+    this.conProxy.savepoint = null;
   }
 
   @Override
@@ -170,6 +198,8 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
     } catch (SQLException ex) {
       this.handleException(ex);
     }
+    // 有的驱动查询元数据时会执行sql
+    this.conProxy.markDirty();
     DatabaseMetaData metaDataProxy = ProxyFactory.createProxyDatabaseMetaData(this, metaData);
     return metaDataProxy;
   }
@@ -183,12 +213,13 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
       this.handleException(ex);
     }
     this.conProxy.newReadOnly = readOnly;
+    this.conProxy.warningDirty = true;
   }
 
   @Override
   public boolean isReadOnly() throws SQLException {
     this.checkState();
-    return this.connection.isReadOnly();
+    return this.conProxy.newReadOnly;
   }
 
   @Override
@@ -200,12 +231,13 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
       this.handleException(ex);
     }
     this.conProxy.newCatalog = catalog;
+    this.conProxy.warningDirty = true;
   }
 
   @Override
   public String getCatalog() throws SQLException {
     this.checkState();
-    return this.connection.getCatalog();
+    return this.conProxy.newCatalog;
   }
 
   @Override
@@ -217,12 +249,13 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
       this.handleException(ex);
     }
     this.conProxy.newTransactionIsolation = level;
+    this.conProxy.warningDirty = true;
   }
 
   @Override
   public int getTransactionIsolation() throws SQLException {
     this.checkState();
-    return this.connection.getTransactionIsolation();
+    return this.conProxy.newTransactionIsolation;
   }
 
   @Override
@@ -239,6 +272,7 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
     } catch (SQLException ex) {
       this.handleException(ex);
     }
+    this.conProxy.warningDirty = false;
   }
 
   @Override
@@ -251,8 +285,9 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
     } catch (SQLException ex) {
       this.handleException(ex);
     }
-    Statement statementProxy = this.createProxyStatement(statement, null);
-    this.statementSet.add(statementProxy);
+    Statement statementProxy =
+        new StatementImpl(statement, this, new Object[] {resultSetType, resultSetConcurrency});
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
@@ -260,15 +295,19 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
   public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
       throws SQLException {
     this.checkState();
-    PreparedStatement statement = null;
-    try {
-      statement = this.connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
-    } catch (SQLException ex) {
-      this.handleException(ex);
+    Object[] createArgs = new Object[] {sql, resultSetType, resultSetConcurrency};
+    StatementCache.Key cacheKey = this.conProxy.statementKey(false, createArgs);
+    PreparedStatement statement = this.conProxy.takeStatement(cacheKey);
+    if (statement == null) {
+      try {
+        statement = this.connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+      } catch (SQLException ex) {
+        this.handleException(ex);
+      }
     }
     PreparedStatement statementProxy =
-        (PreparedStatement) this.createProxyStatement(statement, sql);
-    this.statementSet.add(statementProxy);
+        new PreparedStatementImpl(statement, this, sql, createArgs, cacheKey);
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
@@ -276,15 +315,19 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
   public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
       throws SQLException {
     this.checkState();
-    CallableStatement statement = null;
-    try {
-      statement = this.connection.prepareCall(sql, resultSetType, resultSetConcurrency);
-    } catch (SQLException ex) {
-      this.handleException(ex);
+    Object[] createArgs = new Object[] {sql, resultSetType, resultSetConcurrency};
+    StatementCache.Key cacheKey = this.conProxy.statementKey(true, createArgs);
+    CallableStatement statement = (CallableStatement) this.conProxy.takeStatement(cacheKey);
+    if (statement == null) {
+      try {
+        statement = this.connection.prepareCall(sql, resultSetType, resultSetConcurrency);
+      } catch (SQLException ex) {
+        this.handleException(ex);
+      }
     }
     CallableStatement statementProxy =
-        (CallableStatement) this.createProxyStatement(statement, sql);
-    this.statementSet.add(statementProxy);
+        new CallableStatementImpl(statement, this, sql, createArgs, cacheKey);
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
@@ -302,6 +345,7 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
     } catch (SQLException ex) {
       this.handleException(ex);
     }
+    this.conProxy.warningDirty = true;
   }
 
   @Override
@@ -313,12 +357,13 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
       this.handleException(ex);
     }
     this.conProxy.newHoldability = holdability;
+    this.conProxy.warningDirty = true;
   }
 
   @Override
   public int getHoldability() throws SQLException {
     this.checkState();
-    return this.connection.getHoldability();
+    return this.conProxy.newHoldability;
   }
 
   @Override
@@ -331,6 +376,7 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
       this.handleException(ex);
     }
     this.conProxy.savepoint = savepoint;
+    this.conProxy.markDirty();
     return savepoint;
   }
 
@@ -344,6 +390,7 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
       this.handleException(ex);
     }
     this.conProxy.savepoint = savepoint;
+    this.conProxy.markDirty();
     return savepoint;
   }
 
@@ -351,7 +398,7 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
   public void rollback(Savepoint savepoint) throws SQLException {
     this.checkState();
     try {
-      this.connection.rollback();
+      this.connection.rollback(savepoint);
     } catch (SQLException ex) {
       this.handleException(ex);
     }
@@ -365,6 +412,9 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
     } catch (SQLException ex) {
       this.handleException(ex);
     }
+    if (this.conProxy.savepoint == savepoint) {
+      this.conProxy.savepoint = null;
+    }
   }
 
   @Override
@@ -378,8 +428,9 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
     } catch (SQLException ex) {
       this.handleException(ex);
     }
-    Statement statementProxy = this.createProxyStatement(statement, null);
-    this.statementSet.add(statementProxy);
+    Statement statementProxy = new StatementImpl(statement, this,
+        new Object[] {resultSetType, resultSetConcurrency, resultSetHoldability});
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
@@ -387,16 +438,21 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
   public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
       int resultSetHoldability) throws SQLException {
     this.checkState();
-    PreparedStatement statement = null;
-    try {
-      statement = this.connection.prepareStatement(sql, resultSetType, resultSetConcurrency,
-          resultSetHoldability);
-    } catch (SQLException ex) {
-      this.handleException(ex);
+    Object[] createArgs =
+        new Object[] {sql, resultSetType, resultSetConcurrency, resultSetHoldability};
+    StatementCache.Key cacheKey = this.conProxy.statementKey(false, createArgs);
+    PreparedStatement statement = this.conProxy.takeStatement(cacheKey);
+    if (statement == null) {
+      try {
+        statement = this.connection.prepareStatement(sql, resultSetType, resultSetConcurrency,
+            resultSetHoldability);
+      } catch (SQLException ex) {
+        this.handleException(ex);
+      }
     }
     PreparedStatement statementProxy =
-        (PreparedStatement) this.createProxyStatement(statement, sql);
-    this.statementSet.add(statementProxy);
+        new PreparedStatementImpl(statement, this, sql, createArgs, cacheKey);
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
@@ -404,68 +460,131 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
   public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
       int resultSetHoldability) throws SQLException {
     this.checkState();
-    CallableStatement statement = null;
-    try {
-      statement = this.connection.prepareCall(sql, resultSetType, resultSetConcurrency,
-          resultSetHoldability);
-    } catch (SQLException ex) {
-      this.handleException(ex);
+    Object[] createArgs =
+        new Object[] {sql, resultSetType, resultSetConcurrency, resultSetHoldability};
+    StatementCache.Key cacheKey = this.conProxy.statementKey(true, createArgs);
+    CallableStatement statement = (CallableStatement) this.conProxy.takeStatement(cacheKey);
+    if (statement == null) {
+      try {
+        statement = this.connection.prepareCall(sql, resultSetType, resultSetConcurrency,
+            resultSetHoldability);
+      } catch (SQLException ex) {
+        this.handleException(ex);
+      }
     }
     CallableStatement statementProxy =
-        (CallableStatement) this.createProxyStatement(statement, sql);
-    this.statementSet.add(statementProxy);
+        new CallableStatementImpl(statement, this, sql, createArgs, cacheKey);
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
   @Override
   public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
     this.checkState();
-    PreparedStatement statement = null;
-    try {
-      statement = this.connection.prepareStatement(sql, autoGeneratedKeys);
-    } catch (SQLException ex) {
-      this.handleException(ex);
+    Object[] createArgs = new Object[] {sql, autoGeneratedKeys};
+    StatementCache.Key cacheKey = this.conProxy.statementKey(false, createArgs);
+    PreparedStatement statement = this.conProxy.takeStatement(cacheKey);
+    if (statement == null) {
+      try {
+        statement = this.connection.prepareStatement(sql, autoGeneratedKeys);
+      } catch (SQLException ex) {
+        this.handleException(ex);
+      }
     }
     PreparedStatement statementProxy =
-        (PreparedStatement) this.createProxyStatement(statement, sql);
-    this.statementSet.add(statementProxy);
+        new PreparedStatementImpl(statement, this, sql, createArgs, cacheKey);
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
   @Override
   public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
     this.checkState();
-    PreparedStatement statement = null;
-    try {
-      statement = this.connection.prepareStatement(sql, columnIndexes);
-    } catch (SQLException ex) {
-      this.handleException(ex);
+    Object[] createArgs = new Object[] {sql, columnIndexes};
+    StatementCache.Key cacheKey = this.conProxy.statementKey(false, createArgs);
+    PreparedStatement statement = this.conProxy.takeStatement(cacheKey);
+    if (statement == null) {
+      try {
+        statement = this.connection.prepareStatement(sql, columnIndexes);
+      } catch (SQLException ex) {
+        this.handleException(ex);
+      }
     }
     PreparedStatement statementProxy =
-        (PreparedStatement) this.createProxyStatement(statement, sql);
-    this.statementSet.add(statementProxy);
+        new PreparedStatementImpl(statement, this, sql, createArgs, cacheKey);
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
   @Override
   public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
     this.checkState();
-    PreparedStatement statement = null;
-    try {
-      statement = this.connection.prepareStatement(sql, columnNames);
-    } catch (SQLException ex) {
-      this.handleException(ex);
+    Object[] createArgs = new Object[] {sql, columnNames};
+    StatementCache.Key cacheKey = this.conProxy.statementKey(false, createArgs);
+    PreparedStatement statement = this.conProxy.takeStatement(cacheKey);
+    if (statement == null) {
+      try {
+        statement = this.connection.prepareStatement(sql, columnNames);
+      } catch (SQLException ex) {
+        this.handleException(ex);
+      }
     }
     PreparedStatement statementProxy =
-        (PreparedStatement) this.createProxyStatement(statement, sql);
-    this.statementSet.add(statementProxy);
+        new PreparedStatementImpl(statement, this, sql, createArgs, cacheKey);
+    this.addStatement(statementProxy);
     return statementProxy;
   }
 
-  protected Statement createProxyStatement(Statement statement, String sql) {
-    Statement statementProxy =
-        ProxyFactory.createProxyStatement(statement, this, this.conProxy, sql);
-    return statementProxy;
+  private void addStatement(Statement statementProxy) {
+    this.statementSet.add(statementProxy);
+    this.conProxy.warningDirty = true;
+  }
+
+  /**
+   * 执行修改数据的sql前调用，{@link com.github.xionghuicoder.clearpool.jta.xa.XAConnectionImpl
+   * XAConnectionImpl}在这里加入全局事务
+   */
+  public void enlistTransaction() throws SQLException {
+    // do nothing
+  }
+
+  /**
+   * 本次借出是否还可以重试第一条sql：开启了<tt>optimisticValidation</tt>，还没有执行过sql，并且autoCommit为true
+   */
+  public boolean isRetryable() {
+    return !this.executed && this.conProxy.getCfgVO().isOptimisticValidation()
+        && this.conProxy.newAutoCommit;
+  }
+
+  /**
+   * 记录本次借出已经执行过sql，之后不再重试
+   */
+  public void markExecuted() {
+    this.executed = true;
+  }
+
+  /**
+   * 第一条sql因为连接失效(SQLState为08xxx)执行失败时，关闭失效的连接，换一个检测过的连接；<br>
+   * 只有当前statement是唯一打开的statement时才能换，否则其它statement仍绑定在失效的连接上
+   *
+   * @param e 第一条sql的异常
+   * @return 新的物理连接，不满足重试条件或换连接失败时返回<tt>null</tt>
+   */
+  public Connection reconnect(SQLException e) {
+    if (!this.isRetryable() || !isConnectionError(e) || this.statementSet.size() > 1) {
+      return null;
+    }
+    ConnectionProxy oldProxy = this.conProxy;
+    ConnectionProxy newProxy = oldProxy.reconnect();
+    if (newProxy == null) {
+      // 失效的连接已经关闭，不能再归还
+      this.isClosed = true;
+      this.connection = null;
+      return null;
+    }
+    this.conProxy = newProxy;
+    this.connection = newProxy.getConnection();
+    return this.connection;
   }
 
   @Override
@@ -575,11 +694,25 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
   }
 
   public void setSchema(String schema) throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    this.checkState();
+    if (!this.conProxy.schemaSupported) {
+      throw new SQLFeatureNotSupportedException();
+    }
+    try {
+      this.connection.setSchema(schema);
+    } catch (SQLException ex) {
+      this.handleException(ex);
+    }
+    this.conProxy.newSchema = schema;
+    this.conProxy.warningDirty = true;
   }
 
   public String getSchema() throws SQLException {
-    throw new SQLFeatureNotSupportedException();
+    this.checkState();
+    if (!this.conProxy.schemaSupported) {
+      throw new SQLFeatureNotSupportedException();
+    }
+    return this.conProxy.newSchema;
   }
 
   public void abort(Executor executor) throws SQLException {
@@ -605,7 +738,8 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
       return;
     }
     this.isClosed = true;
-    for (Statement stmt : this.statementSet) {
+    // 关闭statement时会从statementSet中移除
+    for (Statement stmt : this.statementSet.toArray(new Statement[this.statementSet.size()])) {
       stmt.close();
     }
     this.statementSet.clear();
@@ -673,6 +807,33 @@ public class PoolConnectionImpl implements PooledConnection, Connection {
     throw e;
   }
 
+  /**
+   * 是否是连接失效的异常，SQLState为08xxx
+   */
+  static boolean isConnectionError(SQLException e) {
+    String sqlState = e.getSQLState();
+    return sqlState != null && sqlState.startsWith("08");
+  }
+
+  /**
+   * statement执行时连接失效，标记连接归还时关闭，并通知连接的监听器
+   *
+   * @param e 连接失效的异常
+   */
+  void connectionError(SQLException e) {
+    this.conProxy.markBroken();
+    if (this.connectionEventListeners != null) {
+      ConnectionEvent event = new ConnectionEvent(this, e);
+      for (ConnectionEventListener listener : this.connectionEventListeners) {
+        listener.connectionErrorOccurred(event);
+      }
+    }
+  }
+
+  public ConnectionProxy getConProxy() {
+    return this.conProxy;
+  }
+
   public void removeStatement(Statement statement) {
     this.statementSet.remove(statement);
   }
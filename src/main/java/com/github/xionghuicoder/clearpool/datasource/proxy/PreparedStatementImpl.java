@@ -0,0 +1,1340 @@
+package com.github.xionghuicoder.clearpool.datasource.proxy;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+import com.github.xionghuicoder.clearpool.logging.PoolLogger;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+/**
+ * {@link PreparedStatement PreparedStatement}的包装类
+ *
+ * <p>
+ * 设置参数的方法直接调用驱动，只在打印sql时记录参数，开启<tt>optimisticValidation</tt>且还没有执行时记录重放。
+ * </p>
+ *
+ * <p>
+ * 开启<tt>statementCacheSize</tt>时，没有修改过statement级别设置(如maxRows,queryTimeout)的statement关闭后放回连接的缓存。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class PreparedStatementImpl extends StatementImpl implements PreparedStatement {
+  private static final PoolLogger LOGGER =
+      PoolLoggerFactory.getLogger(PreparedStatementImpl.class);
+
+  private PreparedStatement preparedStatement;
+  final String sql;
+  private final long sqlFingerprint;
+  // 开启statement缓存时关闭后放回缓存的key，否则为null
+  private final StatementCache.Key cacheKey;
+
+  PreparedStatementImpl(PreparedStatement statement, PoolConnectionImpl pooledConnection,
+      String sql, Object[] createArgs, StatementCache.Key cacheKey) {
+    super(statement, pooledConnection, createArgs);
+    this.preparedStatement = statement;
+    this.sql = sql;
+    this.sqlFingerprint = SqlFingerprintSet.fingerprint(sql);
+    this.cacheKey = cacheKey;
+  }
+
+  /**
+   * 开启statement缓存时关闭结果集，清空参数、batch和警告后放回缓存，清空失败或放不回时才关闭驱动的statement
+   */
+  @Override
+  void closeStatement() throws SQLException {
+    if (this.cacheKey != null && this.reusable) {
+      boolean cleared = false;
+      try {
+        ResultSet resultSet = this.preparedStatement.getResultSet();
+        if (resultSet != null) {
+          resultSet.close();
+        }
+        this.preparedStatement.clearParameters();
+        this.preparedStatement.clearBatch();
+        this.preparedStatement.clearWarnings();
+        cleared = true;
+      } catch (SQLException e) {
+        LOGGER.warn("clear statement error, close it: ", e);
+      }
+      if (cleared && this.conProxy.cacheStatement(this.cacheKey, this.preparedStatement)) {
+        return;
+      }
+    }
+    super.closeStatement();
+  }
+
+  @Override
+  void setStatement(Statement statement) {
+    super.setStatement(statement);
+    this.preparedStatement = (PreparedStatement) statement;
+  }
+
+  @Override
+  Statement recreate(Connection con, Object[] createArgs) throws SQLException {
+    String sql = (String) createArgs[0];
+    if (createArgs.length == 1) {
+      return con.prepareStatement(sql);
+    }
+    if (createArgs.length == 2) {
+      Object arg = createArgs[1];
+      if (arg instanceof int[]) {
+        return con.prepareStatement(sql, (int[]) arg);
+      }
+      if (arg instanceof String[]) {
+        return con.prepareStatement(sql, (String[]) arg);
+      }
+      return con.prepareStatement(sql, (Integer) arg);
+    }
+    int resultSetType = (Integer) createArgs[1];
+    int resultSetConcurrency = (Integer) createArgs[2];
+    if (createArgs.length == 3) {
+      return con.prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+    return con.prepareStatement(sql, resultSetType, resultSetConcurrency, (Integer) createArgs[3]);
+  }
+
+  @Override
+  public ResultSet executeQuery() throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(false);
+    SQLException error = null;
+    try {
+      ResultSet resultSet;
+      try {
+        resultSet = this.preparedStatement.executeQuery();
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        resultSet = this.preparedStatement.executeQuery();
+      }
+      this.conProxy.dealSqlCount(this.sqlFingerprint);
+      return resultSet;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(this.sql, begin, error);
+    }
+  }
+
+  @Override
+  public int executeUpdate() throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(true);
+    SQLException error = null;
+    try {
+      int count;
+      try {
+        count = this.preparedStatement.executeUpdate();
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        count = this.preparedStatement.executeUpdate();
+      }
+      this.conProxy.dealSqlCount(this.sqlFingerprint);
+      return count;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(this.sql, begin, error);
+    }
+  }
+
+  @Override
+  public boolean execute() throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(true);
+    SQLException error = null;
+    try {
+      boolean result;
+      try {
+        result = this.preparedStatement.execute();
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        result = this.preparedStatement.execute();
+      }
+      this.conProxy.dealSqlCount(this.sqlFingerprint);
+      return result;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(this.sql, begin, error);
+    }
+  }
+
+  @Override
+  void dealBatchSqlCount() {
+    super.dealBatchSqlCount();
+    this.conProxy.dealSqlCount(this.sqlFingerprint);
+  }
+
+  @Override
+  public void addBatch() throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.addBatch();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).addBatch();
+        }
+      });
+    }
+    if (this.showSql) {
+      this.appendToSqlLog(this.sql);
+    }
+  }
+
+  @Override
+  public void clearParameters() throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.clearParameters();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).clearParameters();
+        }
+      });
+    }
+    if (this.showSql) {
+      this.clearParameterLog();
+    }
+  }
+
+  @Override
+  public ResultSetMetaData getMetaData() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.preparedStatement.getMetaData();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public ParameterMetaData getParameterMetaData() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.preparedStatement.getParameterMetaData();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setNull(final int parameterIndex, final int sqlType) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setNull(parameterIndex, sqlType);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setNull(parameterIndex, sqlType);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, null);
+    }
+  }
+
+  @Override
+  public void setBoolean(final int parameterIndex, final boolean x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setBoolean(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setBoolean(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setByte(final int parameterIndex, final byte x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setByte(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setByte(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setShort(final int parameterIndex, final short x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setShort(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setShort(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setInt(final int parameterIndex, final int x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setInt(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setInt(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setLong(final int parameterIndex, final long x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setLong(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setLong(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setFloat(final int parameterIndex, final float x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setFloat(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setFloat(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setDouble(final int parameterIndex, final double x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setDouble(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setDouble(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setBigDecimal(final int parameterIndex, final BigDecimal x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setBigDecimal(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setBigDecimal(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setString(final int parameterIndex, final String x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setString(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setString(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setBytes(final int parameterIndex, final byte[] x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setBytes(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setBytes(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setDate(final int parameterIndex, final Date x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setDate(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setDate(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setTime(final int parameterIndex, final Time x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setTime(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setTime(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setTimestamp(final int parameterIndex, final Timestamp x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setTimestamp(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setTimestamp(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setAsciiStream(final int parameterIndex, final InputStream x, final int length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setAsciiStream(parameterIndex, x, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setAsciiStream(parameterIndex, x, length);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Deprecated
+  @Override
+  public void setUnicodeStream(final int parameterIndex, final InputStream x, final int length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setUnicodeStream(parameterIndex, x, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setUnicodeStream(parameterIndex, x, length);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setBinaryStream(final int parameterIndex, final InputStream x, final int length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setBinaryStream(parameterIndex, x, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setBinaryStream(parameterIndex, x, length);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setObject(final int parameterIndex, final Object x, final int targetSqlType)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setObject(parameterIndex, x, targetSqlType);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setObject(parameterIndex, x, targetSqlType);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setObject(final int parameterIndex, final Object x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setObject(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setObject(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setCharacterStream(final int parameterIndex, final Reader reader, final int length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setCharacterStream(parameterIndex, reader, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setCharacterStream(parameterIndex, reader, length);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, reader);
+    }
+  }
+
+  @Override
+  public void setRef(final int parameterIndex, final Ref x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setRef(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setRef(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setBlob(final int parameterIndex, final Blob x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setBlob(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setBlob(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setClob(final int parameterIndex, final Clob x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setClob(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setClob(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setArray(final int parameterIndex, final Array x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setArray(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setArray(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setDate(final int parameterIndex, final Date x, final Calendar cal)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setDate(parameterIndex, x, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setDate(parameterIndex, x, cal);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setTime(final int parameterIndex, final Time x, final Calendar cal)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setTime(parameterIndex, x, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setTime(parameterIndex, x, cal);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setTimestamp(final int parameterIndex, final Timestamp x, final Calendar cal)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setTimestamp(parameterIndex, x, cal);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setTimestamp(parameterIndex, x, cal);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setNull(final int parameterIndex, final int sqlType, final String typeName)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setNull(parameterIndex, sqlType, typeName);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setNull(parameterIndex, sqlType, typeName);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, null);
+    }
+  }
+
+  @Override
+  public void setURL(final int parameterIndex, final URL x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setURL(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setURL(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setRowId(final int parameterIndex, final RowId x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setRowId(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setRowId(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setNString(final int parameterIndex, final String x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setNString(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setNString(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setNCharacterStream(final int parameterIndex, final Reader reader, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setNCharacterStream(parameterIndex, reader, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setNCharacterStream(parameterIndex, reader, length);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, reader);
+    }
+  }
+
+  @Override
+  public void setNClob(final int parameterIndex, final NClob x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setNClob(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setNClob(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setClob(final int parameterIndex, final Reader reader, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setClob(parameterIndex, reader, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setClob(parameterIndex, reader, length);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, reader);
+    }
+  }
+
+  @Override
+  public void setBlob(final int parameterIndex, final InputStream x, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setBlob(parameterIndex, x, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setBlob(parameterIndex, x, length);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setNClob(final int parameterIndex, final Reader reader, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setNClob(parameterIndex, reader, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setNClob(parameterIndex, reader, length);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, reader);
+    }
+  }
+
+  @Override
+  public void setSQLXML(final int parameterIndex, final SQLXML x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setSQLXML(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setSQLXML(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setObject(final int parameterIndex, final Object x, final int targetSqlType,
+      final int scaleOrLength) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setObject(parameterIndex, x, targetSqlType,
+              scaleOrLength);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setAsciiStream(final int parameterIndex, final InputStream x, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setAsciiStream(parameterIndex, x, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setAsciiStream(parameterIndex, x, length);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setBinaryStream(final int parameterIndex, final InputStream x, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setBinaryStream(parameterIndex, x, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setBinaryStream(parameterIndex, x, length);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setCharacterStream(final int parameterIndex, final Reader reader, final long length)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setCharacterStream(parameterIndex, reader, length);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setCharacterStream(parameterIndex, reader, length);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, reader);
+    }
+  }
+
+  @Override
+  public void setAsciiStream(final int parameterIndex, final InputStream x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setAsciiStream(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setAsciiStream(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setBinaryStream(final int parameterIndex, final InputStream x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setBinaryStream(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setBinaryStream(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setCharacterStream(final int parameterIndex, final Reader reader)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setCharacterStream(parameterIndex, reader);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setCharacterStream(parameterIndex, reader);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, reader);
+    }
+  }
+
+  @Override
+  public void setNCharacterStream(final int parameterIndex, final Reader reader)
+      throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setNCharacterStream(parameterIndex, reader);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setNCharacterStream(parameterIndex, reader);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, reader);
+    }
+  }
+
+  @Override
+  public void setClob(final int parameterIndex, final Reader reader) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setClob(parameterIndex, reader);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setClob(parameterIndex, reader);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, reader);
+    }
+  }
+
+  @Override
+  public void setBlob(final int parameterIndex, final InputStream x) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setBlob(parameterIndex, x);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setBlob(parameterIndex, x);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, x);
+    }
+  }
+
+  @Override
+  public void setNClob(final int parameterIndex, final Reader reader) throws SQLException {
+    this.checkOpen();
+    try {
+      this.preparedStatement.setNClob(parameterIndex, reader);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          ((PreparedStatement) statement).setNClob(parameterIndex, reader);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.saveParameter(parameterIndex, reader);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.github.xionghuicoder.clearpool.datasource.proxy;
+
+import java.util.Arrays;
+
+/**
+ * 连接执行过的sql的64位指纹集合，用于统计<tt>sqlCount</tt>和按sql借出连接
+ *
+ * <p>
+ * 使用固定大小的long数组开放寻址（线性探测），第一次添加时才分配，每个连接最多占用{@link #CAPACITY CAPACITY}*8字节；<br>
+ * 不保存sql字符串，不使用弱引用，也不会扩容；存满{@link #MAX_SIZE MAX_SIZE}个后不再添加新的指纹，<tt>sqlCount</tt>停止增长；<br>
+ * 连接修改或恢复了catalog或schema时，之前记录的sql对应的是另一组对象，{@link #clear clear}后重新记录。
+ * </p>
+ *
+ * <p>
+ * 只有借用线程添加，借还引擎遍历空闲连接时可能同时读取；数组不会被替换，读到的旧值只影响借出的优先顺序，所以不加锁。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class SqlFingerprintSet {
+  private static final int CAPACITY = 512;
+  private static final int MASK = CAPACITY - 1;
+  private static final int MAX_SIZE = CAPACITY * 3 / 4;
+
+  // 0表示空槽，指纹为0时替换成1
+  private static final long EMPTY = 0;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private long[] table;
+  private int size;
+
+  /**
+   * 计算sql的64位FNV-1a指纹
+   */
+  public static long fingerprint(String sql) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0, length = sql.length(); i < length; i++) {
+      char c = sql.charAt(i);
+      hash ^= c & 0xff;
+      hash *= FNV_PRIME;
+      hash ^= c >>> 8;
+      hash *= FNV_PRIME;
+    }
+    return hash == EMPTY ? 1 : hash;
+  }
+
+  /**
+   * @return 是否是新的指纹；集合已满时返回<tt>false</tt>
+   */
+  boolean add(long fingerprint) {
+    long[] table = this.table;
+    if (table == null) {
+      table = this.table = new long[CAPACITY];
+    }
+    for (int i = index(fingerprint);; i = (i + 1) & MASK) {
+      long value = table[i];
+      if (value == fingerprint) {
+        return false;
+      }
+      if (value == EMPTY) {
+        if (this.size >= MAX_SIZE) {
+          return false;
+        }
+        table[i] = fingerprint;
+        this.size++;
+        return true;
+      }
+    }
+  }
+
+  boolean contains(long fingerprint) {
+    long[] table = this.table;
+    if (table == null) {
+      return false;
+    }
+    for (int i = index(fingerprint);; i = (i + 1) & MASK) {
+      long value = table[i];
+      if (value == fingerprint) {
+        return true;
+      }
+      if (value == EMPTY) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * 清空所有指纹，数组保留下来继续使用
+   */
+  void clear() {
+    if (this.table != null) {
+      Arrays.fill(this.table, EMPTY);
+    }
+    this.size = 0;
+  }
+
+  private static int index(long fingerprint) {
+    int hash = (int) (fingerprint ^ (fingerprint >>> 32));
+    return (hash ^ (hash >>> 16)) & MASK;
+  }
+}
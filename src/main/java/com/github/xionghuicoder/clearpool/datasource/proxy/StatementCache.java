@@ -0,0 +1,193 @@
+package com.github.xionghuicoder.clearpool.datasource.proxy;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.xionghuicoder.clearpool.core.ConnectionPoolManager;
+
+/**
+ * 连接的PreparedStatement缓存，按sql和新建statement的参数区分，LRU淘汰
+ *
+ * <p>
+ * 借出的statement从缓存中移除，逻辑关闭时清空参数和batch后放回；<br>
+ * 超过<tt>statementCacheSize</tt>或连接池的<tt>statementCacheMemory</tt>时关闭最久没有放回的statement。
+ * </p>
+ *
+ * <p>
+ * 通常只有借用线程访问，连接池关闭时会由其它线程清空，所以方法都加锁。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+class StatementCache {
+  // 估算statement占用的内存：sql每个字符2字节，加上驱动保存执行计划和元数据的固定开销
+  private static final int STATEMENT_OVERHEAD = 1024;
+
+  private final ConnectionPoolManager pool;
+  private final int maxSize;
+  // 按放回的顺序排列，第一个是最久没有使用的
+  private final LinkedHashMap<Key, PreparedStatement> cache =
+      new LinkedHashMap<Key, PreparedStatement>();
+  // 每条sql缓存的statement个数，同一条sql可能以不同的参数新建多个statement
+  private final Map<String, Integer> sqlCount = new HashMap<String, Integer>();
+
+  // 物理连接关闭后不再缓存
+  private boolean closed;
+
+  StatementCache(ConnectionPoolManager pool, int maxSize) {
+    this.pool = pool;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * 取出缓存的statement
+   *
+   * @return 缓存的statement，没有时返回<tt>null</tt>
+   */
+  synchronized PreparedStatement take(Key key) {
+    PreparedStatement statement = this.cache.remove(key);
+    if (statement != null) {
+      this.removeSql(key.sql);
+      this.pool.releaseStatementMemory(key.bytes);
+    }
+    this.pool.countStatementCache(statement != null);
+    return statement;
+  }
+
+  /**
+   * 放回statement，需要时先淘汰最久没有使用的statement
+   *
+   * @return 是否放回，返回<tt>false</tt>时由调用者关闭statement
+   */
+  synchronized boolean put(Key key, PreparedStatement statement) {
+    if (this.closed || this.cache.containsKey(key)) {
+      return false;
+    }
+    while (this.cache.size() >= this.maxSize) {
+      this.evictEldest();
+    }
+    while (!this.pool.reserveStatementMemory(key.bytes)) {
+      if (this.cache.isEmpty()) {
+        return false;
+      }
+      this.evictEldest();
+    }
+    this.cache.put(key, statement);
+    Integer count = this.sqlCount.get(key.sql);
+    this.sqlCount.put(key.sql, count == null ? 1 : count + 1);
+    return true;
+  }
+
+  /**
+   * 借还引擎按sql挑选空闲连接时对每个连接调用，所以不遍历缓存
+   *
+   * @return 是否缓存了<tt>sql</tt>的statement
+   */
+  synchronized boolean contains(String sql) {
+    return this.sqlCount.containsKey(sql);
+  }
+
+  private void removeSql(String sql) {
+    int count = this.sqlCount.get(sql);
+    if (count == 1) {
+      this.sqlCount.remove(sql);
+    } else {
+      this.sqlCount.put(sql, count - 1);
+    }
+  }
+
+  private void evictEldest() {
+    Iterator<Map.Entry<Key, PreparedStatement>> it = this.cache.entrySet().iterator();
+    Map.Entry<Key, PreparedStatement> eldest = it.next();
+    it.remove();
+    this.removeSql(eldest.getKey().sql);
+    this.close(eldest.getKey(), eldest.getValue());
+  }
+
+  /**
+   * 物理连接关闭前调用，关闭所有缓存的statement
+   */
+  synchronized void clear() {
+    this.closed = true;
+    this.evictAll();
+  }
+
+  /**
+   * 关闭所有缓存的statement，之后仍可以继续缓存
+   */
+  synchronized void evictAll() {
+    for (Map.Entry<Key, PreparedStatement> entry : this.cache.entrySet()) {
+      this.close(entry.getKey(), entry.getValue());
+    }
+    this.cache.clear();
+    this.sqlCount.clear();
+  }
+
+  private void close(Key key, PreparedStatement statement) {
+    this.pool.releaseStatementMemory(key.bytes);
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // swallow
+    }
+  }
+
+  /**
+   * 缓存的key：是否是CallableStatement，以及新建statement时的参数
+   */
+  static final class Key {
+    private final boolean callable;
+    private final String sql;
+    private final Object[] createArgs;
+    private final int hash;
+    final long bytes;
+
+    Key(boolean callable, Object[] createArgs) {
+      this.callable = callable;
+      this.sql = (String) createArgs[0];
+      this.createArgs = copy(createArgs);
+      this.hash = 31 * Arrays.deepHashCode(this.createArgs) + (callable ? 1 : 0);
+      this.bytes = this.sql.length() * 2L + STATEMENT_OVERHEAD;
+    }
+
+    /**
+     * columnIndexes和columnNames是调用者的数组，调用者之后修改它们不能影响缓存中的key
+     */
+    private static Object[] copy(Object[] createArgs) {
+      Object[] copy = createArgs.clone();
+      for (int i = 0; i < copy.length; i++) {
+        if (copy[i] instanceof int[]) {
+          copy[i] = ((int[]) copy[i]).clone();
+        } else if (copy[i] instanceof Object[]) {
+          copy[i] = ((Object[]) copy[i]).clone();
+        }
+      }
+      return copy;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return this.hash == other.hash && this.callable == other.callable
+          && Arrays.deepEquals(this.createArgs, other.createArgs);
+    }
+  }
+}
@@ -0,0 +1,1039 @@
+package com.github.xionghuicoder.clearpool.datasource.proxy;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.StatementEvent;
+import javax.sql.StatementEventListener;
+
+import com.github.xionghuicoder.clearpool.core.ConfigurationVO;
+import com.github.xionghuicoder.clearpool.logging.PoolLogger;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+/**
+ * {@link Statement Statement}的包装类，该类还会记录sql日志
+ *
+ * <p>
+ * 每个方法都直接调用驱动的statement，不经过反射，也不为参数分配数组；<br>
+ * 执行sql后统计sql，标记连接需要reset；加入全局事务由{@link PoolConnectionImpl#enlistTransaction
+ * enlistTransaction}负责。
+ * </p>
+ *
+ * <p>
+ * 开启<tt>optimisticValidation</tt>时，第一次执行前调用的设置方法记录在{@link #replayList replayList}中；<br>
+ * 本次借出的第一条sql因为连接失效执行失败时，换一个连接重新新建statement，重放设置方法后再执行一次。
+ * </p>
+ *
+ * <p>
+ * 关闭后驱动的statement可能已放回缓存交给其它借用者，所以关闭后不再持有它，除{@link #close close}和
+ * {@link #isClosed isClosed}外的方法都抛出异常。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class StatementImpl implements Statement {
+  private static final PoolLogger LOGGER = PoolLoggerFactory.getLogger(StatementImpl.class);
+
+  private Statement statement;
+  final PoolConnectionImpl pooledConnection;
+  ConnectionProxy conProxy;
+
+  private boolean closed;
+  // 没有修改过statement级别的设置，可以放回statement缓存
+  boolean reusable = true;
+
+  // 是否打印sql
+  final boolean showSql;
+  // 大于或等于该时间(ms)的sql才打印
+  private final long sqlTimeFilter;
+
+  private StringBuilder sqlLog;
+  private Map<Integer, Object> parameterMap;
+
+  // addBatch(String)加入的sql，executeBatch后统计
+  private List<String> batchSqlList;
+
+  // 新建statement时的参数，重试时用来在新的连接上重新新建
+  Object[] createArgs;
+  // 第一次执行前调用的设置方法，重试时按顺序重放；不能重试时为null
+  List<Replay> replayList;
+
+  StatementImpl(Statement statement, PoolConnectionImpl pooledConnection, Object[] createArgs) {
+    this.statement = statement;
+    this.pooledConnection = pooledConnection;
+    this.conProxy = pooledConnection.getConProxy();
+    ConfigurationVO cfgVO = this.conProxy.getCfgVO();
+    this.showSql = cfgVO.isShowSql();
+    this.sqlTimeFilter = cfgVO.getSqlTimeFilter();
+    if (createArgs != null && pooledConnection.isRetryable()) {
+      this.createArgs = createArgs;
+      this.replayList = new ArrayList<Replay>();
+    }
+  }
+
+  /**
+   * 执行sql前调用，修改数据的sql需要加入全局事务
+   *
+   * @return 开始执行的时间(ms)，不打印sql时为0
+   */
+  long beforeExecute(boolean update) throws SQLException {
+    if (update) {
+      this.pooledConnection.enlistTransaction();
+    }
+    return this.showSql ? System.currentTimeMillis() : 0;
+  }
+
+  /**
+   * 执行sql后调用，执行失败也可能已经开始了事务；换过连接时标记新的连接
+   *
+   * @param sql 执行的sql，executeBatch时为<tt>null</tt>，日志使用addBatch时记录的sql
+   * @param begin {@link #beforeExecute beforeExecute}返回的开始时间
+   * @param error 执行失败的异常，成功时为<tt>null</tt>
+   */
+  void afterExecute(String sql, long begin, SQLException error) {
+    this.conProxy.markDirty();
+    if (this.replayList != null) {
+      this.replayList = null;
+      this.createArgs = null;
+      this.pooledConnection.markExecuted();
+    }
+    if (this.showSql) {
+      if (sql != null) {
+        this.appendToSqlLog(sql);
+      }
+      this.trace(error != null, System.currentTimeMillis() - begin);
+    }
+  }
+
+  /**
+   * 执行失败时调用，满足重试条件时换一个连接，重新新建statement并重放设置方法
+   *
+   * @return 是否换了连接，换了连接时调用者在新的statement上再执行一次
+   */
+  boolean reconnect(SQLException e) throws SQLException {
+    if (this.replayList == null) {
+      return false;
+    }
+    Connection con = this.pooledConnection.reconnect(e);
+    if (con == null) {
+      return false;
+    }
+    LOGGER.warn("connection broken, retry on a new connection: " + e.getMessage());
+    Statement statement = this.recreate(con, this.createArgs);
+    for (Replay replay : this.replayList) {
+      replay.replay(statement);
+    }
+    try {
+      this.statement.close();
+    } catch (SQLException ex) {
+      LOGGER.error("close statement error: ", ex);
+    }
+    this.setStatement(statement);
+    this.conProxy = this.pooledConnection.getConProxy();
+    return true;
+  }
+
+  /**
+   * 按新建时的参数在<tt>con</tt>上重新新建statement
+   */
+  Statement recreate(Connection con, Object[] createArgs) throws SQLException {
+    if (createArgs.length == 0) {
+      return con.createStatement();
+    }
+    int resultSetType = (Integer) createArgs[0];
+    int resultSetConcurrency = (Integer) createArgs[1];
+    if (createArgs.length == 2) {
+      return con.createStatement(resultSetType, resultSetConcurrency);
+    }
+    return con.createStatement(resultSetType, resultSetConcurrency, (Integer) createArgs[2]);
+  }
+
+  void setStatement(Statement statement) {
+    this.statement = statement;
+  }
+
+  void checkOpen() throws SQLException {
+    if (this.closed) {
+      throw new SQLException("Statement is closed");
+    }
+  }
+
+  /**
+   * 记录第一次执行前调用的设置方法
+   */
+  void record(Replay replay) {
+    this.replayList.add(replay);
+  }
+
+  /**
+   * 通知监听器，返回<tt>e</tt>由调用者抛出；连接失效时交给连接池关闭该连接
+   */
+  SQLException handleException(SQLException e) {
+    if (PoolConnectionImpl.isConnectionError(e)) {
+      this.pooledConnection.connectionError(e);
+    }
+    if (this instanceof PreparedStatement) {
+      List<StatementEventListener> statementEventListeners =
+          this.pooledConnection.getStatementEventListeners();
+      if (statementEventListeners != null) {
+        StatementEvent event =
+            new StatementEvent(this.pooledConnection, (PreparedStatement) this, e);
+        for (StatementEventListener listener : statementEventListeners) {
+          listener.statementErrorOccurred(event);
+        }
+      }
+    }
+    return e;
+  }
+
+  @Override
+  public ResultSet executeQuery(String sql) throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(false);
+    SQLException error = null;
+    try {
+      ResultSet resultSet;
+      try {
+        resultSet = this.statement.executeQuery(sql);
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        resultSet = this.statement.executeQuery(sql);
+      }
+      this.conProxy.dealSqlCount(sql);
+      return resultSet;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(sql, begin, error);
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql) throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(true);
+    SQLException error = null;
+    try {
+      int count;
+      try {
+        count = this.statement.executeUpdate(sql);
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        count = this.statement.executeUpdate(sql);
+      }
+      this.conProxy.dealSqlCount(sql);
+      return count;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(sql, begin, error);
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(true);
+    SQLException error = null;
+    try {
+      int count;
+      try {
+        count = this.statement.executeUpdate(sql, autoGeneratedKeys);
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        count = this.statement.executeUpdate(sql, autoGeneratedKeys);
+      }
+      this.conProxy.dealSqlCount(sql);
+      return count;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(sql, begin, error);
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(true);
+    SQLException error = null;
+    try {
+      int count;
+      try {
+        count = this.statement.executeUpdate(sql, columnIndexes);
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        count = this.statement.executeUpdate(sql, columnIndexes);
+      }
+      this.conProxy.dealSqlCount(sql);
+      return count;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(sql, begin, error);
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(true);
+    SQLException error = null;
+    try {
+      int count;
+      try {
+        count = this.statement.executeUpdate(sql, columnNames);
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        count = this.statement.executeUpdate(sql, columnNames);
+      }
+      this.conProxy.dealSqlCount(sql);
+      return count;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(sql, begin, error);
+    }
+  }
+
+  @Override
+  public boolean execute(String sql) throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(true);
+    SQLException error = null;
+    try {
+      boolean result;
+      try {
+        result = this.statement.execute(sql);
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        result = this.statement.execute(sql);
+      }
+      this.conProxy.dealSqlCount(sql);
+      return result;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(sql, begin, error);
+    }
+  }
+
+  @Override
+  public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(true);
+    SQLException error = null;
+    try {
+      boolean result;
+      try {
+        result = this.statement.execute(sql, autoGeneratedKeys);
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        result = this.statement.execute(sql, autoGeneratedKeys);
+      }
+      this.conProxy.dealSqlCount(sql);
+      return result;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(sql, begin, error);
+    }
+  }
+
+  @Override
+  public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(true);
+    SQLException error = null;
+    try {
+      boolean result;
+      try {
+        result = this.statement.execute(sql, columnIndexes);
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        result = this.statement.execute(sql, columnIndexes);
+      }
+      this.conProxy.dealSqlCount(sql);
+      return result;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(sql, begin, error);
+    }
+  }
+
+  @Override
+  public boolean execute(String sql, String[] columnNames) throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(true);
+    SQLException error = null;
+    try {
+      boolean result;
+      try {
+        result = this.statement.execute(sql, columnNames);
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        result = this.statement.execute(sql, columnNames);
+      }
+      this.conProxy.dealSqlCount(sql);
+      return result;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(sql, begin, error);
+    }
+  }
+
+  @Override
+  public int[] executeBatch() throws SQLException {
+    this.checkOpen();
+    long begin = this.beforeExecute(true);
+    SQLException error = null;
+    try {
+      int[] counts;
+      try {
+        counts = this.statement.executeBatch();
+      } catch (SQLException e) {
+        if (!this.reconnect(e)) {
+          throw e;
+        }
+        counts = this.statement.executeBatch();
+      }
+      this.dealBatchSqlCount();
+      return counts;
+    } catch (SQLException e) {
+      error = e;
+      throw this.handleException(e);
+    } finally {
+      this.afterExecute(null, begin, error);
+    }
+  }
+
+  /**
+   * executeBatch成功后统计sql
+   */
+  void dealBatchSqlCount() {
+    if (this.batchSqlList != null) {
+      for (String sql : this.batchSqlList) {
+        this.conProxy.dealSqlCount(sql);
+      }
+      this.batchSqlList.clear();
+    }
+  }
+
+  @Override
+  public void addBatch(final String sql) throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.addBatch(sql);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.batchSqlList == null) {
+      this.batchSqlList = new ArrayList<String>();
+    }
+    this.batchSqlList.add(sql);
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          statement.addBatch(sql);
+        }
+      });
+    }
+    if (this.showSql) {
+      this.appendToSqlLog(sql);
+    }
+  }
+
+  @Override
+  public void clearBatch() throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.clearBatch();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (this.batchSqlList != null) {
+      this.batchSqlList.clear();
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          statement.clearBatch();
+        }
+      });
+    }
+    if (this.showSql && this.sqlLog != null) {
+      this.sqlLog.setLength(0);
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    try {
+      this.closeStatement();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    } finally {
+      this.setStatement(null);
+      this.pooledConnection.removeStatement(this);
+    }
+    if (this instanceof PreparedStatement) {
+      List<StatementEventListener> statementEventListeners =
+          this.pooledConnection.getStatementEventListeners();
+      if (statementEventListeners != null) {
+        StatementEvent event = new StatementEvent(this.pooledConnection, (PreparedStatement) this);
+        for (StatementEventListener listener : statementEventListeners) {
+          listener.statementClosed(event);
+        }
+      }
+    }
+  }
+
+  /**
+   * 逻辑关闭时调用，关闭驱动的statement
+   */
+  void closeStatement() throws SQLException {
+    this.statement.close();
+  }
+
+  @Override
+  public boolean isClosed() throws SQLException {
+    if (this.closed) {
+      return true;
+    }
+    try {
+      return this.statement.isClosed();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getConnection();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public int getMaxFieldSize() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getMaxFieldSize();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setMaxFieldSize(final int max) throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.setMaxFieldSize(max);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    this.reusable = false;
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          statement.setMaxFieldSize(max);
+        }
+      });
+    }
+  }
+
+  @Override
+  public int getMaxRows() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getMaxRows();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setMaxRows(final int max) throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.setMaxRows(max);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    this.reusable = false;
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          statement.setMaxRows(max);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void setEscapeProcessing(final boolean enable) throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.setEscapeProcessing(enable);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    this.reusable = false;
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          statement.setEscapeProcessing(enable);
+        }
+      });
+    }
+  }
+
+  @Override
+  public int getQueryTimeout() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getQueryTimeout();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setQueryTimeout(final int seconds) throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.setQueryTimeout(seconds);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    this.reusable = false;
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          statement.setQueryTimeout(seconds);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void cancel() throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.cancel();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public SQLWarning getWarnings() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getWarnings();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.clearWarnings();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setCursorName(final String name) throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.setCursorName(name);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    this.reusable = false;
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          statement.setCursorName(name);
+        }
+      });
+    }
+  }
+
+  @Override
+  public ResultSet getResultSet() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getResultSet();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public int getUpdateCount() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getUpdateCount();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public boolean getMoreResults() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getMoreResults();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public boolean getMoreResults(int current) throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getMoreResults(current);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setFetchDirection(final int direction) throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.setFetchDirection(direction);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    this.reusable = false;
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          statement.setFetchDirection(direction);
+        }
+      });
+    }
+  }
+
+  @Override
+  public int getFetchDirection() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getFetchDirection();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setFetchSize(final int rows) throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.setFetchSize(rows);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    this.reusable = false;
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          statement.setFetchSize(rows);
+        }
+      });
+    }
+  }
+
+  @Override
+  public int getFetchSize() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getFetchSize();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public int getResultSetConcurrency() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getResultSetConcurrency();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public int getResultSetType() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getResultSetType();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public ResultSet getGeneratedKeys() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getGeneratedKeys();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public int getResultSetHoldability() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.getResultSetHoldability();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public void setPoolable(final boolean poolable) throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.setPoolable(poolable);
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    if (!poolable) {
+      this.reusable = false;
+    }
+    if (this.replayList != null) {
+      this.record(new Replay() {
+
+        @Override
+        void replay(Statement statement) throws SQLException {
+          statement.setPoolable(poolable);
+        }
+      });
+    }
+  }
+
+  @Override
+  public boolean isPoolable() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.isPoolable();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  public void closeOnCompletion() throws SQLException {
+    this.checkOpen();
+    try {
+      this.statement.closeOnCompletion();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+    this.reusable = false;
+  }
+
+  public boolean isCloseOnCompletion() throws SQLException {
+    this.checkOpen();
+    try {
+      return this.statement.isCloseOnCompletion();
+    } catch (SQLException e) {
+      throw this.handleException(e);
+    }
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    this.checkOpen();
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    return this.statement.unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    this.checkOpen();
+    return iface.isInstance(this) || this.statement.isWrapperFor(iface);
+  }
+
+  /**
+   * 打印sql时记录参数
+   */
+  void saveParameter(int index, Object value) {
+    if (this.parameterMap == null) {
+      this.parameterMap = new TreeMap<Integer, Object>(new Comparator<Integer>() {
+
+        @Override
+        public int compare(Integer i1, Integer i2) {
+          return this.compareOrigin(i1, i2);
+        }
+
+        private int compareOrigin(int x, int y) {
+          return x < y ? -1 : x == y ? 0 : 1;
+        }
+      });
+    }
+    if (value == null) {
+      this.parameterMap.put(index, "NULL");
+    } else if (value instanceof String) {
+      value = ((String) value).replaceAll("'", "''");
+      this.parameterMap.put(index, "'" + value + "'");
+    } else if (value instanceof Boolean) {
+      this.parameterMap.put(index, value);
+    } else if (value instanceof Number) {
+      this.parameterMap.put(index, value);
+    } else {
+      String className = value.getClass().getName();
+      int position = className.lastIndexOf(".") + 1;
+      String name = className.substring(position);
+      this.parameterMap.put(index, name + ":" + value.toString());
+    }
+  }
+
+  void clearParameterLog() {
+    if (this.parameterMap != null) {
+      this.parameterMap.clear();
+    }
+  }
+
+  /**
+   * 把<tt>sql</tt>中的?替换成记录的参数后加入日志
+   */
+  void appendToSqlLog(String sql) {
+    if (this.sqlLog == null) {
+      this.sqlLog = new StringBuilder();
+    }
+    if (sql != null && sql.length() > 0) {
+      String[] sqlFrag = sql.split("\\?");
+      int index = 0;
+      for (String s : sqlFrag) {
+        if (index > 0) {
+          this.appendParameter(index);
+        }
+        this.sqlLog.append(s);
+        index++;
+      }
+      if (sql.endsWith("?")) {
+        this.appendParameter(index);
+      }
+      this.sqlLog.append("\n");
+    }
+    this.clearParameterLog();
+  }
+
+  private void appendParameter(int index) {
+    Object value = this.parameterMap == null ? null : this.parameterMap.get(index);
+    if (value != null) {
+      this.sqlLog.append(value);
+    } else {
+      this.sqlLog.append("?");
+    }
+  }
+
+  private void trace(boolean isError, long sqlTime) {
+    if (this.sqlLog == null) {
+      return;
+    }
+    if (isError || sqlTime >= this.sqlTimeFilter) {
+      int len = this.sqlLog.length();
+      if (len > 0) {
+        this.sqlLog.deleteCharAt(len - 1);
+      }
+      String logMsg = "SHOWSQL(" + sqlTime + "ms):\n" + this.sqlLog.toString();
+      if (isError) {
+        LOGGER.error(logMsg);
+      } else {
+        LOGGER.info(logMsg);
+      }
+    }
+    this.clearParameterLog();
+    this.sqlLog.setLength(0);
+  }
+
+  /**
+   * 第一次执行前调用的一个设置方法，重试时在新的statement上重放
+   *
+   * @author xionghui
+   * @version 1.0.0
+   * @since 1.0.0
+   */
+  abstract static class Replay {
+
+    abstract void replay(Statement statement) throws SQLException;
+  }
+}
@@ -1,7 +1,6 @@
 package com.github.xionghuicoder.clearpool.jta.xa;
 
 import java.sql.SQLException;
-import java.sql.Statement;
 
 import javax.sql.XAConnection;
 import javax.transaction.SystemException;
@@ -11,7 +10,6 @@ import javax.transaction.xa.XAResource;
 import com.github.xionghuicoder.clearpool.ConnectionPoolException;
 import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
 import com.github.xionghuicoder.clearpool.datasource.proxy.PoolConnectionImpl;
-import com.github.xionghuicoder.clearpool.datasource.proxy.dynamic.ProxyFactory;
 import com.github.xionghuicoder.clearpool.jta.TransactionManagerImpl;
 
 public class XAConnectionImpl extends PoolConnectionImpl implements XAConnection {
@@ -28,11 +26,32 @@ public class XAConnectionImpl extends PoolConnectionImpl implements XAConnection
     return this.xaCon.getXAResource();
   }
 
+  /**
+   * 有全局事务时把连接加入事务
+   */
   @Override
-  public Statement createProxyStatement(Statement statement, String sql) {
-    Statement statementProxy =
-        ProxyFactory.createProxyXAStatement(statement, this, this.conProxy, sql);
-    return statementProxy;
+  public void enlistTransaction() throws SQLException {
+    Transaction ts;
+    try {
+      ts = TransactionManagerImpl.getManager().getTransaction();
+    } catch (SystemException e) {
+      throw new ConnectionPoolException(e);
+    }
+    if (ts != null) {
+      try {
+        ts.enlistResource(this.getXAResource());
+      } catch (Exception e) {
+        throw new ConnectionPoolException(e);
+      }
+    }
+  }
+
+  /**
+   * 连接可能已经加入了全局事务，不能换连接重试
+   */
+  @Override
+  public boolean isRetryable() {
+    return false;
   }
 
   @Override
@@ -43,6 +62,18 @@ public class XAConnectionImpl extends PoolConnectionImpl implements XAConnection
     super.setAutoCommit(autoCommit);
   }
 
+  /**
+   * 全局事务中autoCommit由事务管理器关闭
+   */
+  @Override
+  public boolean getAutoCommit() throws SQLException {
+    if (this.isTsBeginning()) {
+      this.checkState();
+      return false;
+    }
+    return super.getAutoCommit();
+  }
+
   @Override
   public void commit() throws SQLException {
     if (this.isTsBeginning()) {
@@ -0,0 +1,249 @@
+package com.github.xionghuicoder.clearpool.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希时间轮
+ *
+ * <p>
+ * 时间轮有{@link #wheel wheel.length}个槽，每{@link #tickNanos tickNanos}前进一个槽；<br>
+ * 定时任务按到期时间放入对应的槽，超过一圈的任务记录剩余圈数；<br>
+ * 时间轮线程每次只处理当前槽中的任务，到期的任务交给<tt>executor</tt>执行，所以代价只和到期的任务数相关。
+ * </p>
+ *
+ * <p>
+ * 新任务和取消的任务都不加锁，新任务先放入{@link #pendingTimeouts pendingTimeouts}，由时间轮线程放入槽中；
+ * 取消的任务在所在的槽到期时移除。
+ * </p>
+ *
+ * @author xionghui
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class HashedWheelTimer implements Runnable {
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+
+  private final Executor executor;
+
+  private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+  private final long startTime = System.nanoTime();
+  private long tick;
+
+  private final Thread thread;
+  private volatile boolean stopped;
+
+  /**
+   * @param name 时间轮线程名称
+   * @param tickMillis 每个槽的时间(ms)
+   * @param wheelSize 槽的个数，会调整为2的幂
+   * @param executor 执行到期任务的线程池
+   */
+  public HashedWheelTimer(String name, long tickMillis, int wheelSize, Executor executor) {
+    if (tickMillis <= 0) {
+      throw new IllegalArgumentException("Illegal tickMillis: " + tickMillis);
+    }
+    if (wheelSize <= 0) {
+      throw new IllegalArgumentException("Illegal wheelSize: " + wheelSize);
+    }
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    int size = wheelSize > 1 ? Integer.highestOneBit(wheelSize - 1 << 1) : 1;
+    this.wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      this.wheel[i] = new Bucket();
+    }
+    this.mask = size - 1;
+    this.executor = executor;
+    this.thread = new Thread(this);
+    this.thread.setName(name);
+    this.thread.setDaemon(true);
+  }
+
+  public void start() {
+    this.thread.start();
+  }
+
+  public void stop() {
+    this.stopped = true;
+    this.thread.interrupt();
+  }
+
+  /**
+   * 新建定时任务
+   *
+   * @param task 到期后执行的任务
+   * @param delayMillis 延迟时间(ms)
+   * @return 可以取消的定时任务
+   */
+  public Timeout newTimeout(Runnable task, long delayMillis) {
+    long deadline =
+        System.nanoTime() - this.startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0));
+    Timeout timeout = new Timeout(task, deadline);
+    this.pendingTimeouts.offer(timeout);
+    return timeout;
+  }
+
+  @Override
+  public void run() {
+    while (!this.stopped) {
+      long deadline = this.waitForNextTick();
+      if (deadline < 0) {
+        break;
+      }
+      this.transferPendingTimeouts();
+      this.wheel[(int) (this.tick & this.mask)].expire(deadline);
+      this.tick++;
+    }
+  }
+
+  /**
+   * @return 当前tick的截止时间，被中断时返回-1
+   */
+  private long waitForNextTick() {
+    long deadline = this.tickNanos * (this.tick + 1);
+    for (;;) {
+      long current = System.nanoTime() - this.startTime;
+      long sleepMillis = TimeUnit.NANOSECONDS.toMillis(deadline - current + 999999);
+      if (sleepMillis <= 0) {
+        return current;
+      }
+      try {
+        Thread.sleep(sleepMillis);
+      } catch (InterruptedException e) {
+        return -1;
+      }
+    }
+  }
+
+  private void transferPendingTimeouts() {
+    Timeout timeout;
+    while ((timeout = this.pendingTimeouts.poll()) != null) {
+      if (timeout.isCancelled()) {
+        continue;
+      }
+      long calculated = timeout.deadline / this.tickNanos;
+      timeout.remainingRounds = (calculated - this.tick) / this.wheel.length;
+      // 已经过期的任务放到当前槽，马上执行
+      long ticks = Math.max(calculated, this.tick);
+      this.wheel[(int) (ticks & this.mask)].add(timeout);
+    }
+  }
+
+  private void execute(Timeout timeout) {
+    try {
+      this.executor.execute(timeout.task);
+    } catch (RejectedExecutionException e) {
+      // executor已关闭
+    }
+  }
+
+  /**
+   * 可以取消的定时任务
+   *
+   * @author xionghui
+   * @version 1.0.0
+   * @since 1.0.0
+   */
+  public static final class Timeout {
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    final Runnable task;
+    final long deadline;
+
+    private final AtomicInteger state = new AtomicInteger(INIT);
+
+    // 以下字段只在时间轮线程中访问
+    long remainingRounds;
+    Timeout prev;
+    Timeout next;
+
+    Timeout(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * @return 是否取消成功，已经到期时返回<tt>false</tt>
+     */
+    public boolean cancel() {
+      return this.state.compareAndSet(INIT, CANCELLED);
+    }
+
+    public boolean isCancelled() {
+      return this.state.get() == CANCELLED;
+    }
+
+    boolean expire() {
+      return this.state.compareAndSet(INIT, EXPIRED);
+    }
+  }
+
+  /**
+   * 时间轮的一个槽，只在时间轮线程中访问
+   *
+   * @author xionghui
+   * @version 1.0.0
+   * @since 1.0.0
+   */
+  private final class Bucket {
+    private Timeout head;
+    private Timeout tail;
+
+    void add(Timeout timeout) {
+      timeout.prev = this.tail;
+      timeout.next = null;
+      if (this.tail == null) {
+        this.head = timeout;
+      } else {
+        this.tail.next = timeout;
+      }
+      this.tail = timeout;
+    }
+
+    private Timeout remove(Timeout timeout) {
+      Timeout next = timeout.next;
+      if (timeout.prev == null) {
+        this.head = next;
+      } else {
+        timeout.prev.next = next;
+      }
+      if (next == null) {
+        this.tail = timeout.prev;
+      } else {
+        next.prev = timeout.prev;
+      }
+      timeout.prev = timeout.next = null;
+      return next;
+    }
+
+    /**
+     * 执行到期的任务，移除取消的任务，其余任务的剩余圈数减1
+     */
+    void expire(long deadline) {
+      Timeout timeout = this.head;
+      while (timeout != null) {
+        if (timeout.isCancelled()) {
+          timeout = this.remove(timeout);
+        } else if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+          Timeout next = this.remove(timeout);
+          if (timeout.expire()) {
+            HashedWheelTimer.this.execute(timeout);
+          }
+          timeout = next;
+        } else {
+          timeout.remainingRounds--;
+          timeout = timeout.next;
+        }
+      }
+    }
+  }
+}
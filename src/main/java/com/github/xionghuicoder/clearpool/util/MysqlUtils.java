@@ -25,4 +25,15 @@ public class MysqlUtils {
     }
     return new MysqlXAConnection(mysqlConn, false);
   }
+
+  public static boolean isMysqlConnection(Connection con) {
+    return con instanceof com.mysql.jdbc.Connection;
+  }
+
+  /**
+   * 只发送ping包，不执行sql
+   */
+  public static void ping(Connection con) throws SQLException {
+    ((com.mysql.jdbc.Connection) con).ping();
+  }
 }
@@ -1,12 +1,14 @@
 package com.github.xionghuicoder.clearpool.util;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 
 import javax.sql.XAConnection;
 import javax.transaction.xa.XAException;
 
 import com.github.xionghuicoder.clearpool.ConnectionPoolException;
 
+import oracle.jdbc.OracleConnection;
 import oracle.jdbc.xa.client.OracleXAConnection;
 
 public class OracleUtils {
@@ -20,4 +22,15 @@ public class OracleUtils {
       throw new ConnectionPoolException(e);
     }
   }
+
+  public static boolean isOracleConnection(Connection con) {
+    return con instanceof OracleConnection;
+  }
+
+  /**
+   * 驱动的isValid就是带超时的pingDatabase，pingDatabase(int)已废弃
+   */
+  public static boolean ping(Connection con, int timeoutSeconds) throws SQLException {
+    return con.isValid(timeoutSeconds);
+  }
 }
@@ -1,12 +1,14 @@
 package com.github.xionghuicoder.clearpool;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.alibaba.druid.mock.MockConnection;
 import com.alibaba.druid.mock.MockDriver;
+import com.alibaba.druid.mock.MockPreparedStatement;
 
 public class MockTestDriver extends MockDriver {
   public static final String CLASS = MockTestDriver.class.getName();
@@ -14,6 +16,27 @@ public class MockTestDriver extends MockDriver {
 
   public static AtomicLong physicalCon = new AtomicLong();
 
+  // 最近新建的物理连接
+  public static volatile MockConnection lastCon;
+
+  // 最近新建物理连接的线程
+  public static volatile Thread lastConnectThread;
+
+  // 不为null时新建物理连接抛出该异常
+  public static volatile SQLException connectError;
+
+  // 大于0时新建物理连接前先等待该时间(ms)
+  public static volatile long connectDelay;
+
+  // 尝试新建物理连接的次数，包括失败的
+  public static AtomicLong connectAttempts = new AtomicLong();
+
+  // 调用isValid的次数
+  public static AtomicLong validCount = new AtomicLong();
+
+  // 调用事务和属性相关方法的次数，这些方法在真实的驱动中通常需要访问数据库
+  public static AtomicLong roundTrips = new AtomicLong();
+
   @Override
   public boolean acceptsURL(String url) throws SQLException {
     if (url.startsWith("jdbc:test:")) {
@@ -24,7 +47,104 @@ public class MockTestDriver extends MockDriver {
 
   @Override
   public Connection connect(String url, Properties info) throws SQLException {
+    connectAttempts.incrementAndGet();
+    long delay = connectDelay;
+    if (delay > 0) {
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        throw new SQLException(e);
+      }
+    }
+    SQLException error = connectError;
+    if (error != null) {
+      throw new SQLException(error.getMessage(), error.getSQLState());
+    }
     physicalCon.incrementAndGet();
-    return new MockConnection(this, "jdbc:mock:case", info);
+    MockConnection con = new MockTestConnection(this, info);
+    lastCon = con;
+    lastConnectThread = Thread.currentThread();
+    return con;
+  }
+
+  /**
+   * 连接设置了error后，isValid返回false，执行sql时抛出该error
+   */
+  private static class MockTestConnection extends MockConnection {
+    private String schema = "public";
+
+    MockTestConnection(MockDriver driver, Properties info) {
+      super(driver, "jdbc:mock:case", info);
+    }
+
+    @Override
+    public void checkState() throws SQLException {
+      SQLException error = this.getError();
+      if (error != null) {
+        throw new SQLException(error.getMessage(), error.getSQLState());
+      }
+      super.checkState();
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+      roundTrips.incrementAndGet();
+      return super.getAutoCommit();
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+      roundTrips.incrementAndGet();
+      super.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+      roundTrips.incrementAndGet();
+      super.setReadOnly(readOnly);
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+      roundTrips.incrementAndGet();
+      return this.schema;
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+      roundTrips.incrementAndGet();
+      this.schema = schema;
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+      roundTrips.incrementAndGet();
+      super.rollback();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+      roundTrips.incrementAndGet();
+      super.clearWarnings();
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+      validCount.incrementAndGet();
+      return !this.isClosed() && this.getError() == null;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+      this.checkState();
+      return new MockPreparedStatement(this, sql) {
+
+        @Override
+        public boolean execute() throws SQLException {
+          this.getConnection().checkState();
+          return super.execute();
+        }
+      };
+    }
   }
 }
@@ -0,0 +1,50 @@
+package com.github.xionghuicoder.clearpool.testcase;
+
+import java.sql.Connection;
+
+import org.junit.Test;
+
+import com.github.xionghuicoder.clearpool.MockTestDriver;
+import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+import junit.framework.TestCase;
+
+public class AdaptiveSizingFunction extends TestCase {
+
+  @Override
+  public void setUp() throws Exception {
+    System.setProperty(PoolLoggerFactory.LOG_UNABLE, "true");
+    MockTestDriver.physicalCon.set(0);
+  }
+
+  @Test
+  public void testPreGrow() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setDriverClassName(MockTestDriver.CLASS);
+    dataSource.setUrl(MockTestDriver.URL);
+    dataSource.setUsername("1");
+    dataSource.setPassword("1");
+    dataSource.setCorePoolSize(1);
+    dataSource.setMaxPoolSize(20);
+    dataSource.setAdaptive(true);
+    Connection[] conns = new Connection[3];
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+    }
+    assertEquals(3, MockTestDriver.physicalCon.get());
+    // 3个连接在用，目标连接数是3加上1个空闲余量，调整线程会提前新建1个连接
+    long deadline = System.currentTimeMillis() + 3000;
+    while (MockTestDriver.physicalCon.get() < 4 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(4, MockTestDriver.physicalCon.get());
+    Connection conn = dataSource.getConnection();
+    assertEquals(4, MockTestDriver.physicalCon.get());
+    conn.close();
+    for (Connection con : conns) {
+      con.close();
+    }
+    dataSource.close();
+  }
+}
@@ -0,0 +1,216 @@
+package com.github.xionghuicoder.clearpool.testcase;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.github.xionghuicoder.clearpool.MockTestDriver;
+import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.core.ConnectionCallback;
+import com.github.xionghuicoder.clearpool.core.ConnectionFuture;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+import junit.framework.TestCase;
+
+public class AsyncBorrowFunction extends TestCase {
+  private int maxPoolSize = 5;
+
+  @Override
+  public void setUp() throws Exception {
+    System.setProperty(PoolLoggerFactory.LOG_UNABLE, "true");
+  }
+
+  @Test
+  public void testHandoff() throws Exception {
+    this.checkHandoff(this.createDataSource(false));
+    this.checkHandoff(this.createDataSource(true));
+  }
+
+  private void checkHandoff(ClearpoolDataSource dataSource) throws Exception {
+    ConnectionFuture future = dataSource.getConnectionAsync(0, null);
+    assertTrue(future.isDone());
+    Connection[] conns = new Connection[this.maxPoolSize];
+    conns[0] = future.get();
+    for (int i = 1; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+    }
+    final AtomicReference<Thread> callbackThread = new AtomicReference<Thread>();
+    final AtomicReference<Connection> callbackConnection = new AtomicReference<Connection>();
+    future = dataSource.getConnectionAsync(0, new ConnectionCallback() {
+      @Override
+      public void onConnection(Connection connection) {
+        callbackThread.set(Thread.currentThread());
+        callbackConnection.set(connection);
+      }
+
+      @Override
+      public void onError(Exception e) {
+        e.printStackTrace();
+      }
+    });
+    assertFalse(future.isDone());
+    // 由归还连接的线程完成
+    conns[0].close();
+    assertTrue(future.isDone());
+    assertSame(Thread.currentThread(), callbackThread.get());
+    assertSame(callbackConnection.get(), future.get());
+    conns[0] = future.get();
+    for (Connection conn : conns) {
+      conn.close();
+    }
+    dataSource.close();
+  }
+
+  @Test
+  public void testCreateAsync() throws Exception {
+    this.checkCreateAsync(this.createDataSource(false));
+    this.checkCreateAsync(this.createDataSource(true));
+  }
+
+  private void checkCreateAsync(ClearpoolDataSource dataSource) throws Exception {
+    Connection conn = dataSource.getConnection();
+    // 没有空闲连接时调用线程不新建连接，由创建线程新建后完成future
+    RecordCallback callback = new RecordCallback();
+    ConnectionFuture future = dataSource.getConnectionAsync(0, callback);
+    Connection asyncConn = future.get();
+    assertNotNull(asyncConn);
+    assertTrue(callback.latch.await(1, TimeUnit.SECONDS));
+    assertNotSame(Thread.currentThread(), MockTestDriver.lastConnectThread);
+    assertSame(MockTestDriver.lastConnectThread, callback.thread);
+    asyncConn.close();
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testCreateAsyncFailed() throws Exception {
+    this.checkCreateAsyncFailed(this.createDataSource(false));
+    this.checkCreateAsyncFailed(this.createDataSource(true));
+  }
+
+  private void checkCreateAsyncFailed(ClearpoolDataSource dataSource) throws Exception {
+    dataSource.setAcquireRetryTimes(0);
+    Connection conn = dataSource.getConnection();
+    // 创建线程新建失败时，future以该异常完成，不会一直等待
+    MockTestDriver.connectError = new SQLException("connect refused", "08001");
+    try {
+      ConnectionFuture future = dataSource.getConnectionAsync(0, null);
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      // expected
+    } finally {
+      MockTestDriver.connectError = null;
+    }
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testValidateAsync() throws Exception {
+    this.checkValidateAsync(this.createDataSource(false));
+    this.checkValidateAsync(this.createDataSource(true));
+  }
+
+  private void checkValidateAsync(ClearpoolDataSource dataSource) throws Exception {
+    dataSource.setTestBeforeUse(true);
+    MockTestDriver.validCount.set(0);
+    // 借出前检测在创建线程中执行，检测后由创建线程完成future
+    RecordCallback callback = new RecordCallback();
+    ConnectionFuture future = dataSource.getConnectionAsync(0, callback);
+    Connection conn = future.get();
+    assertNotNull(conn);
+    assertEquals(1, MockTestDriver.validCount.get());
+    assertTrue(callback.latch.await(1, TimeUnit.SECONDS));
+    assertNotSame(Thread.currentThread(), callback.thread);
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    this.checkTimeout(this.createDataSource(false));
+    this.checkTimeout(this.createDataSource(true));
+  }
+
+  private void checkTimeout(ClearpoolDataSource dataSource) throws Exception {
+    Connection[] conns = new Connection[this.maxPoolSize];
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+    }
+    long begin = System.currentTimeMillis();
+    ConnectionFuture future = dataSource.getConnectionAsync(100, null);
+    assertNull(future.get());
+    assertTrue(System.currentTimeMillis() - begin >= 100);
+    assertTrue(future.isDone());
+    assertFalse(future.isCancelled());
+    for (Connection conn : conns) {
+      conn.close();
+    }
+    dataSource.close();
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    this.checkCancel(this.createDataSource(false));
+    this.checkCancel(this.createDataSource(true));
+  }
+
+  private void checkCancel(ClearpoolDataSource dataSource) throws Exception {
+    Connection[] conns = new Connection[this.maxPoolSize];
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+    }
+    ConnectionFuture future = dataSource.getConnectionAsync(0, null);
+    assertTrue(future.cancel(false));
+    assertTrue(future.isCancelled());
+    try {
+      future.get();
+      fail();
+    } catch (CancellationException e) {
+      // expected
+    }
+    // 取消后归还的连接放回连接池
+    conns[0].close();
+    conns[0] = dataSource.getConnection(100);
+    assertNotNull(conns[0]);
+    for (Connection conn : conns) {
+      conn.close();
+    }
+    dataSource.close();
+  }
+
+  private ClearpoolDataSource createDataSource(boolean lockFree) {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setDriverClassName(MockTestDriver.CLASS);
+    dataSource.setUrl(MockTestDriver.URL);
+    dataSource.setUsername("1");
+    dataSource.setPassword("1");
+    dataSource.setCorePoolSize(1);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setLockFree(lockFree);
+    return dataSource;
+  }
+
+  private static class RecordCallback implements ConnectionCallback {
+    final CountDownLatch latch = new CountDownLatch(1);
+    volatile Thread thread;
+
+    @Override
+    public void onConnection(Connection connection) {
+      this.thread = Thread.currentThread();
+      this.latch.countDown();
+    }
+
+    @Override
+    public void onError(Exception e) {
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.github.xionghuicoder.clearpool.testcase;
+
+import java.sql.Connection;
+
+import org.junit.Test;
+
+import com.github.xionghuicoder.clearpool.MockTestDriver;
+import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.core.chain.BinaryHeap;
+import com.github.xionghuicoder.clearpool.core.chain.ConnectionMatcher;
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+import com.github.xionghuicoder.clearpool.datasource.proxy.PoolConnectionImpl;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+import junit.framework.TestCase;
+
+public class BinaryHeapFunction extends TestCase {
+  private static final int COUNT = 8;
+
+  private ClearpoolDataSource dataSource;
+  private Connection[] conns;
+  // 下标i的连接执行过i条不同的sql，下标越大越先借出
+  private ConnectionProxy[] proxies;
+
+  @Override
+  public void setUp() throws Exception {
+    System.setProperty(PoolLoggerFactory.LOG_UNABLE, "true");
+    this.dataSource = new ClearpoolDataSource();
+    this.dataSource.setDriverClassName(MockTestDriver.CLASS);
+    this.dataSource.setUrl(MockTestDriver.URL);
+    this.dataSource.setUsername("1");
+    this.dataSource.setPassword("1");
+    this.dataSource.setCorePoolSize(1);
+    this.dataSource.setMaxPoolSize(COUNT);
+    // 借出的连接不在连接池的空闲链中，可以放入单独的堆
+    this.conns = new Connection[COUNT];
+    this.proxies = new ConnectionProxy[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      this.conns[i] = this.dataSource.getConnection();
+      this.proxies[i] = this.conns[i].unwrap(PoolConnectionImpl.class).getConProxy();
+      for (int j = 0; j < i; j++) {
+        this.proxies[i].dealSqlCount("select " + j);
+      }
+    }
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    for (Connection conn : this.conns) {
+      conn.close();
+    }
+    this.dataSource.close();
+  }
+
+  @Test
+  public void testOrder() throws Exception {
+    BinaryHeap heap = new BinaryHeap(2);
+    int[] order = {3, 0, 7, 5, 1, 6, 2, 4};
+    for (int i : order) {
+      heap.add(this.proxies[i]);
+    }
+    assertEquals(COUNT, heap.size());
+    assertSame(this.proxies[7], heap.removeFirst());
+    assertSame(this.proxies[6], heap.removeFirst());
+    // 借出和归还交替进行
+    heap.add(this.proxies[7]);
+    assertSame(this.proxies[7], heap.removeFirst());
+    assertSame(this.proxies[5], heap.removeFirst());
+    heap.add(this.proxies[6]);
+    heap.add(this.proxies[5]);
+    for (int i = 6; i >= 0; i--) {
+      assertSame(this.proxies[i], heap.removeFirst());
+    }
+    assertEquals(0, heap.size());
+    assertNull(heap.removeFirst());
+  }
+
+  @Test
+  public void testRemoveMiddle() throws Exception {
+    BinaryHeap heap = new BinaryHeap();
+    int[] order = {5, 0, 2, 1, 7, 4, 6, 3};
+    for (int i : order) {
+      heap.add(this.proxies[i]);
+    }
+    // 按亲和或状态借出时从堆的中间移除；换上来的节点可能比父节点大，需要上移
+    assertSame(this.proxies[5], heap.removeMatching(this.same(this.proxies[5])));
+    assertSame(this.proxies[0], heap.removeMatching(this.same(this.proxies[0])));
+    assertNull(heap.removeMatching(this.same(this.proxies[5])));
+    assertEquals(COUNT - 2, heap.size());
+    int[] expected = {7, 6, 4, 3, 2, 1};
+    for (int i : expected) {
+      assertSame(this.proxies[i], heap.removeFirst());
+    }
+    assertNull(heap.removeFirst());
+    // 中间移除后，按放入顺序的链表也要同步
+    for (int i = 0; i < COUNT; i++) {
+      heap.add(this.proxies[i]);
+    }
+    heap.removeMatching(this.same(this.proxies[0]));
+    heap.removeMatching(this.same(this.proxies[5]));
+    int[] oldest = {1, 2, 3, 4, 6, 7};
+    for (int i : oldest) {
+      assertSame(this.proxies[i], heap.removeIdle(0));
+    }
+    assertNull(heap.removeIdle(0));
+    assertEquals(0, heap.size());
+  }
+
+  @Test
+  public void testReAddAfterPollIdle() throws Exception {
+    BinaryHeap heap = new BinaryHeap();
+    for (int i = 0; i < COUNT; i++) {
+      heap.add(this.proxies[i]);
+    }
+    assertNull(heap.removeIdle(60 * 1000L));
+    // 和Stripe.pollIdle一样：取出最早放入的节点，发现它刚被重新使用过，放回去
+    ConnectionProxy skipped = heap.removeIdle(0);
+    assertSame(this.proxies[0], skipped);
+    heap.add(skipped);
+    assertEquals(COUNT, heap.size());
+    // 放回的节点排到链表尾，下一次取出第二早放入的节点
+    for (int i = 1; i < COUNT; i++) {
+      assertSame(this.proxies[i], heap.removeIdle(0));
+      heap.add(this.proxies[i]);
+    }
+    assertSame(this.proxies[0], heap.removeIdle(0));
+    heap.add(this.proxies[0]);
+    // 堆的借出顺序不受影响
+    for (int i = COUNT - 1; i >= 0; i--) {
+      assertSame(this.proxies[i], heap.removeFirst());
+    }
+    assertNull(heap.removeIdle(0));
+  }
+
+  private ConnectionMatcher same(final ConnectionProxy conProxy) {
+    return new ConnectionMatcher() {
+      @Override
+      public boolean matches(ConnectionProxy anoConProxy) {
+        return anoConProxy == conProxy;
+      }
+    };
+  }
+}
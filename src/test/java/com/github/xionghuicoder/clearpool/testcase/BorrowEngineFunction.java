@@ -0,0 +1,349 @@
+package com.github.xionghuicoder.clearpool.testcase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.github.xionghuicoder.clearpool.ConnectionPoolUselessConnectionException;
+import com.github.xionghuicoder.clearpool.MockTestDriver;
+import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.core.ConfigurationVO;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+import junit.framework.TestCase;
+
+public class BorrowEngineFunction extends TestCase {
+  private int maxPoolSize = 5;
+
+  @Override
+  public void setUp() throws Exception {
+    System.setProperty(PoolLoggerFactory.LOG_UNABLE, "true");
+    MockTestDriver.physicalCon.set(0);
+  }
+
+  @Test
+  public void testMaxWait() throws Exception {
+    this.checkMaxWait(this.createDataSource(false));
+    this.checkMaxWait(this.createDataSource(true));
+  }
+
+  private void checkMaxWait(ClearpoolDataSource dataSource) throws Exception {
+    Connection[] conns = new Connection[this.maxPoolSize];
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+    }
+    long begin = System.currentTimeMillis();
+    assertNull(dataSource.getConnection(100));
+    assertTrue(System.currentTimeMillis() - begin >= 100);
+    conns[0].close();
+    conns[0] = dataSource.getConnection(100);
+    assertNotNull(conns[0]);
+    for (Connection conn : conns) {
+      conn.close();
+    }
+    dataSource.close();
+  }
+
+  @Test
+  public void testUselessConnectionException() throws Exception {
+    this.checkUselessConnectionException(this.createDataSource(false));
+    this.checkUselessConnectionException(this.createDataSource(true));
+  }
+
+  private void checkUselessConnectionException(ClearpoolDataSource dataSource) throws Exception {
+    dataSource.setUselessConnectionException(true);
+    Connection[] conns = new Connection[this.maxPoolSize];
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+    }
+    try {
+      dataSource.getConnection();
+      fail();
+    } catch (ConnectionPoolUselessConnectionException e) {
+      // expected
+    }
+    for (Connection conn : conns) {
+      conn.close();
+    }
+    dataSource.close();
+  }
+
+  @Test
+  public void testMaxPoolSize() throws Exception {
+    this.checkMaxPoolSize(this.createDataSource(false));
+    this.checkMaxPoolSize(this.createDataSource(true));
+  }
+
+  private void checkMaxPoolSize(final ClearpoolDataSource dataSource) throws Exception {
+    MockTestDriver.physicalCon.set(0);
+    int threadCount = 50;
+    final int loop = 200;
+    final AtomicInteger using = new AtomicInteger();
+    final AtomicInteger maxUsing = new AtomicInteger();
+    final CountDownLatch endLatch = new CountDownLatch(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < loop; j++) {
+              Connection conn = dataSource.getConnection();
+              int count = using.incrementAndGet();
+              int max;
+              while ((max = maxUsing.get()) < count && !maxUsing.compareAndSet(max, count)) {
+                // retry
+              }
+              using.decrementAndGet();
+              conn.close();
+            }
+          } catch (Exception e) {
+            e.printStackTrace();
+          }
+          endLatch.countDown();
+        }
+      };
+      thread.start();
+    }
+    endLatch.await();
+    dataSource.close();
+    assertTrue(maxUsing.get() <= this.maxPoolSize);
+    assertTrue(MockTestDriver.physicalCon.get() <= this.maxPoolSize);
+  }
+
+  @Test
+  public void testStriped() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource(false);
+    dataSource.setStriped(true);
+    dataSource.setStripeCount(4);
+    this.checkMaxWait(dataSource);
+    dataSource = this.createDataSource(false);
+    dataSource.setStriped(true);
+    dataSource.setStripeCount(4);
+    this.checkMaxPoolSize(dataSource);
+  }
+
+  @Test
+  public void testFair() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource(false);
+    dataSource.setFair(true);
+    this.checkMaxWait(dataSource);
+    dataSource = this.createDataSource(false);
+    dataSource.setFair(true);
+    this.checkMaxPoolSize(dataSource);
+    dataSource = this.createDataSource(false);
+    dataSource.setFair(true);
+    this.checkFairOrder(dataSource);
+  }
+
+  private void checkFairOrder(final ClearpoolDataSource dataSource) throws Exception {
+    Connection[] conns = new Connection[this.maxPoolSize];
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+    }
+    int threadCount = 3;
+    final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+    final CountDownLatch endLatch = new CountDownLatch(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      final int index = i;
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            Connection conn = dataSource.getConnection(2000);
+            order.add(index);
+            conn.close();
+          } catch (Exception e) {
+            e.printStackTrace();
+          }
+          endLatch.countDown();
+        }
+      };
+      thread.start();
+      // 保证按顺序排队
+      Thread.sleep(50);
+    }
+    conns[0].close();
+    endLatch.await();
+    assertEquals(3, order.size());
+    for (int i = 0; i < threadCount; i++) {
+      assertEquals(i, order.get(i).intValue());
+    }
+    for (int i = 1; i < conns.length; i++) {
+      conns[i].close();
+    }
+    dataSource.close();
+  }
+
+  @Test
+  public void testAcquireIncrement() throws Exception {
+    this.checkAcquireIncrement(this.createDataSource(false));
+    this.checkAcquireIncrement(this.createDataSource(true));
+    ClearpoolDataSource dataSource = this.createDataSource(false);
+    dataSource.setAcquireIncrement(3);
+    this.checkMaxPoolSize(dataSource);
+    dataSource = this.createDataSource(true);
+    dataSource.setAcquireIncrement(3);
+    this.checkMaxPoolSize(dataSource);
+  }
+
+  private void checkAcquireIncrement(ClearpoolDataSource dataSource) throws Exception {
+    MockTestDriver.physicalCon.set(0);
+    dataSource.setAcquireIncrement(3);
+    Connection[] conns = new Connection[2];
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+    }
+    // 其余的连接由创建线程池异步新建
+    long deadline = System.currentTimeMillis() + 1000;
+    while (MockTestDriver.physicalCon.get() < 4 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(4, MockTestDriver.physicalCon.get());
+    for (Connection conn : conns) {
+      conn.close();
+    }
+    dataSource.close();
+  }
+
+  @Test
+  public void testReuseCreatedConnection() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource(true);
+    Connection[] conns = new Connection[this.maxPoolSize];
+    for (int round = 0; round < 2; round++) {
+      // 第二轮借出的都是借用线程第一轮新建后归还的连接
+      for (int i = 0; i < conns.length; i++) {
+        conns[i] = dataSource.getConnection(100);
+        assertNotNull(conns[i]);
+      }
+      for (Connection conn : conns) {
+        conn.close();
+      }
+    }
+    assertEquals(this.maxPoolSize, MockTestDriver.physicalCon.get());
+    dataSource.close();
+  }
+
+  @Test
+  public void testThreadAffinity() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource(false);
+    dataSource.setThreadAffinity(true);
+    this.checkThreadAffinity(dataSource);
+    dataSource = this.createDataSource(true);
+    dataSource.setThreadAffinity(true);
+    this.checkThreadAffinity(dataSource);
+  }
+
+  private void checkThreadAffinity(final ClearpoolDataSource dataSource) throws Exception {
+    Connection conn = dataSource.getConnection();
+    Connection physicalConn = conn.createStatement().getConnection();
+    conn.close();
+    conn = dataSource.getConnection();
+    assertSame(physicalConn, conn.createStatement().getConnection());
+    conn.close();
+    // 其它线程可以取走当前线程缓存的连接
+    final Connection[] conns = new Connection[this.maxPoolSize];
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          for (int i = 0; i < conns.length; i++) {
+            conns[i] = dataSource.getConnection(100);
+          }
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      }
+    };
+    thread.start();
+    thread.join();
+    for (Connection con : conns) {
+      assertNotNull(con);
+    }
+    assertNull(dataSource.getConnection(100));
+    for (Connection con : conns) {
+      con.close();
+    }
+    dataSource.close();
+  }
+
+  @Test
+  public void testSqlAffinity() throws Exception {
+    this.checkSqlAffinity(this.createDataSource(false));
+    this.checkSqlAffinity(this.createDataSource(true));
+  }
+
+  private void checkSqlAffinity(ClearpoolDataSource dataSource) throws Exception {
+    Connection[] conns = new Connection[this.maxPoolSize];
+    Connection[] physicalConns = new Connection[conns.length];
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+      physicalConns[i] = conns[i].createStatement().getConnection();
+    }
+    PreparedStatement ps = conns[2].prepareStatement("select 2");
+    ps.execute();
+    ps.close();
+    for (Connection conn : conns) {
+      conn.close();
+    }
+    // 借出执行过该sql的连接
+    for (int i = 0; i < 3; i++) {
+      Connection conn = dataSource.getConnectionForSql("select 2");
+      assertSame(physicalConns[2], conn.createStatement().getConnection());
+      conn.close();
+    }
+    // 没有连接执行过时按正常顺序借出
+    Connection conn = dataSource.getConnectionForSql("select 3");
+    assertNotNull(conn);
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testIdleOrder() throws Exception {
+    this.checkIdleOrder(ConfigurationVO.IDLE_ORDER_WARMED, 2);
+    this.checkIdleOrder(ConfigurationVO.IDLE_ORDER_LIFO, this.maxPoolSize - 1);
+    this.checkIdleOrder(ConfigurationVO.IDLE_ORDER_FIFO, 0);
+    this.checkIdleOrder(ConfigurationVO.IDLE_ORDER_VALIDATED, 0);
+  }
+
+  private void checkIdleOrder(String idleOrder, int expected) throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource(false);
+    dataSource.setIdleOrder(idleOrder);
+    Connection[] conns = new Connection[this.maxPoolSize];
+    Connection[] physicalConns = new Connection[conns.length];
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+      physicalConns[i] = conns[i].createStatement().getConnection();
+    }
+    PreparedStatement ps = conns[2].prepareStatement("select 2");
+    ps.execute();
+    ps.close();
+    // 按顺序归还，使放入时间和lastValidTime各不相同
+    for (Connection conn : conns) {
+      conn.close();
+      Thread.sleep(5);
+    }
+    Connection conn = dataSource.getConnection();
+    assertSame(idleOrder, physicalConns[expected], conn.createStatement().getConnection());
+    conn.close();
+    dataSource.close();
+  }
+
+  private ClearpoolDataSource createDataSource(boolean lockFree) {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setDriverClassName(MockTestDriver.CLASS);
+    dataSource.setUrl(MockTestDriver.URL);
+    dataSource.setUsername("1");
+    dataSource.setPassword("1");
+    dataSource.setCorePoolSize(1);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setLockFree(lockFree);
+    return dataSource;
+  }
+}
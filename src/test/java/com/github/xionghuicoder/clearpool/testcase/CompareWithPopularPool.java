@@ -9,6 +9,7 @@ import org.junit.Test;
 import com.alibaba.druid.pool.DruidDataSource;
 import com.github.xionghuicoder.clearpool.MockTestDriver;
 import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.core.ConfigurationVO;
 import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
 import com.github.xionghuicoder.clearpool.util.MemoryUtils;
 import com.github.xionghuicoder.clearpool.util.ThreadProcessUtils;
@@ -57,6 +58,125 @@ public class CompareWithPopularPool extends TestCase {
     System.out.println();
   }
 
+  @Test
+  public void testClearpoolLockFree() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setCorePoolSize(this.corePoolSize);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setDriverClassName(this.driverClassName);
+    dataSource.setUrl(this.url);
+    dataSource.setUsername(this.username);
+    dataSource.setPassword(this.password);
+    dataSource.setLockFree(true);
+    for (int i = 0; i < this.loop; ++i) {
+      ThreadProcessUtils.process(dataSource, "clearpool-lockfree", this.count, threadCount,
+          physicalCon);
+    }
+    System.out.println();
+  }
+
+  @Test
+  public void testClearpoolThreadAffinity() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setCorePoolSize(this.corePoolSize);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setDriverClassName(this.driverClassName);
+    dataSource.setUrl(this.url);
+    dataSource.setUsername(this.username);
+    dataSource.setPassword(this.password);
+    dataSource.setThreadAffinity(true);
+    for (int i = 0; i < this.loop; ++i) {
+      ThreadProcessUtils.process(dataSource, "clearpool-affinity", this.count, threadCount,
+          physicalCon);
+    }
+    System.out.println();
+  }
+
+  @Test
+  public void testClearpoolStriped() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setCorePoolSize(this.corePoolSize);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setDriverClassName(this.driverClassName);
+    dataSource.setUrl(this.url);
+    dataSource.setUsername(this.username);
+    dataSource.setPassword(this.password);
+    dataSource.setStriped(true);
+    for (int i = 0; i < this.loop; ++i) {
+      ThreadProcessUtils.process(dataSource, "clearpool-striped", this.count, threadCount,
+          physicalCon);
+    }
+    System.out.println();
+  }
+
+  @Test
+  public void testClearpoolFair() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setCorePoolSize(this.corePoolSize);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setDriverClassName(this.driverClassName);
+    dataSource.setUrl(this.url);
+    dataSource.setUsername(this.username);
+    dataSource.setPassword(this.password);
+    dataSource.setFair(true);
+    for (int i = 0; i < this.loop; ++i) {
+      ThreadProcessUtils.process(dataSource, "clearpool-fair", this.count, threadCount,
+          physicalCon);
+    }
+    System.out.println();
+  }
+
+  @Test
+  public void testClearpoolLifo() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setCorePoolSize(this.corePoolSize);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setDriverClassName(this.driverClassName);
+    dataSource.setUrl(this.url);
+    dataSource.setUsername(this.username);
+    dataSource.setPassword(this.password);
+    dataSource.setIdleOrder(ConfigurationVO.IDLE_ORDER_LIFO);
+    for (int i = 0; i < this.loop; ++i) {
+      ThreadProcessUtils.process(dataSource, "clearpool-lifo", this.count, threadCount,
+          physicalCon);
+    }
+    System.out.println();
+  }
+
+  @Test
+  public void testClearpoolFifo() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setCorePoolSize(this.corePoolSize);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setDriverClassName(this.driverClassName);
+    dataSource.setUrl(this.url);
+    dataSource.setUsername(this.username);
+    dataSource.setPassword(this.password);
+    dataSource.setIdleOrder(ConfigurationVO.IDLE_ORDER_FIFO);
+    for (int i = 0; i < this.loop; ++i) {
+      ThreadProcessUtils.process(dataSource, "clearpool-fifo", this.count, threadCount,
+          physicalCon);
+    }
+    System.out.println();
+  }
+
+  @Test
+  public void testClearpoolValidated() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setCorePoolSize(this.corePoolSize);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setDriverClassName(this.driverClassName);
+    dataSource.setUrl(this.url);
+    dataSource.setUsername(this.username);
+    dataSource.setPassword(this.password);
+    dataSource.setIdleOrder(ConfigurationVO.IDLE_ORDER_VALIDATED);
+    for (int i = 0; i < this.loop; ++i) {
+      ThreadProcessUtils.process(dataSource, "clearpool-validated", this.count, threadCount,
+          physicalCon);
+    }
+    System.out.println();
+  }
+
   @Test
   public void testDruid() throws Exception {
     DruidDataSource dataSource = new DruidDataSource();
@@ -54,6 +54,74 @@ public class CompareWithWonderfulPool extends TestCase {
     System.out.println();
   }
 
+  @Test
+  public void testClearpoolLockFree() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setCorePoolSize(this.corePoolSize);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setDriverClassName(this.driverClassName);
+    dataSource.setUrl(this.url);
+    dataSource.setUsername(this.username);
+    dataSource.setPassword(this.password);
+    dataSource.setLockFree(true);
+    for (int i = 0; i < this.loop; ++i) {
+      ThreadProcessUtils.process(dataSource, "clearpool-lockfree", this.count, threadCount,
+          physicalCon);
+    }
+    System.out.println();
+  }
+
+  @Test
+  public void testClearpoolThreadAffinity() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setCorePoolSize(this.corePoolSize);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setDriverClassName(this.driverClassName);
+    dataSource.setUrl(this.url);
+    dataSource.setUsername(this.username);
+    dataSource.setPassword(this.password);
+    dataSource.setThreadAffinity(true);
+    for (int i = 0; i < this.loop; ++i) {
+      ThreadProcessUtils.process(dataSource, "clearpool-affinity", this.count, threadCount,
+          physicalCon);
+    }
+    System.out.println();
+  }
+
+  @Test
+  public void testClearpoolStriped() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setCorePoolSize(this.corePoolSize);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setDriverClassName(this.driverClassName);
+    dataSource.setUrl(this.url);
+    dataSource.setUsername(this.username);
+    dataSource.setPassword(this.password);
+    dataSource.setStriped(true);
+    for (int i = 0; i < this.loop; ++i) {
+      ThreadProcessUtils.process(dataSource, "clearpool-striped", this.count, threadCount,
+          physicalCon);
+    }
+    System.out.println();
+  }
+
+  @Test
+  public void testClearpoolFair() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setCorePoolSize(this.corePoolSize);
+    dataSource.setMaxPoolSize(this.maxPoolSize);
+    dataSource.setDriverClassName(this.driverClassName);
+    dataSource.setUrl(this.url);
+    dataSource.setUsername(this.username);
+    dataSource.setPassword(this.password);
+    dataSource.setFair(true);
+    for (int i = 0; i < this.loop; ++i) {
+      ThreadProcessUtils.process(dataSource, "clearpool-fair", this.count, threadCount,
+          physicalCon);
+    }
+    System.out.println();
+  }
+
   @Test
   public void testDruid() throws Exception {
     DruidDataSource dataSource = new DruidDataSource();
@@ -0,0 +1,194 @@
+package com.github.xionghuicoder.clearpool.testcase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import org.junit.Test;
+
+import com.alibaba.druid.mock.MockPreparedStatement;
+import com.github.xionghuicoder.clearpool.MockTestDriver;
+import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.core.ConnectionState;
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+import com.github.xionghuicoder.clearpool.datasource.proxy.PoolConnectionImpl;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+import junit.framework.TestCase;
+
+public class ConnectionStateFunction extends TestCase {
+  private ClearpoolDataSource dataSource;
+
+  @Override
+  public void setUp() throws Exception {
+    System.setProperty(PoolLoggerFactory.LOG_UNABLE, "true");
+    this.dataSource = this.createDataSource(1);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    this.dataSource.close();
+  }
+
+  @Test
+  public void testCleanReturn() throws Exception {
+    Connection conn = this.dataSource.getConnection();
+    MockTestDriver.roundTrips.set(0);
+    conn.close();
+    // 没有执行sql也没有修改属性，归还时不访问数据库
+    assertEquals(0, MockTestDriver.roundTrips.get());
+
+    conn = this.dataSource.getConnection();
+    PreparedStatement ps = conn.prepareStatement("select 1");
+    ps.execute();
+    ps.close();
+    MockTestDriver.roundTrips.set(0);
+    conn.close();
+    // autoCommit为true，只需要clearWarnings
+    assertEquals(1, MockTestDriver.roundTrips.get());
+  }
+
+  @Test
+  public void testCachedState() throws Exception {
+    Connection conn = this.dataSource.getConnection();
+    MockTestDriver.roundTrips.set(0);
+    // getter直接返回缓存的属性
+    assertTrue(conn.getAutoCommit());
+    assertEquals("public", conn.getSchema());
+    assertEquals(0, MockTestDriver.roundTrips.get());
+    conn.setAutoCommit(false);
+    conn.setSchema("test");
+    assertFalse(conn.getAutoCommit());
+    assertEquals("test", conn.getSchema());
+    assertEquals(2, MockTestDriver.roundTrips.get());
+    conn.close();
+    conn = this.dataSource.getConnection();
+    assertTrue(conn.getAutoCommit());
+    assertEquals("public", conn.getSchema());
+    conn.close();
+    this.dataSource.close();
+
+    // 新建连接复用第一个连接的默认属性，不再访问数据库
+    this.dataSource = this.createDataSource(3);
+    Connection[] conns = new Connection[3];
+    MockTestDriver.roundTrips.set(0);
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = this.dataSource.getConnection();
+    }
+    assertEquals(0, MockTestDriver.roundTrips.get());
+    for (Connection c : conns) {
+      c.close();
+    }
+  }
+
+  @Test
+  public void testStateAwareBorrow() throws Exception {
+    this.dataSource.close();
+    this.dataSource = this.createDataSource(2);
+    ConnectionState report = new ConnectionState();
+    report.setReadOnly(true);
+    report.setSchema("report");
+    MockTestDriver.roundTrips.set(0);
+    Connection conn1 = this.dataSource.getConnection(report);
+    // 修改readOnly和schema
+    assertEquals(2, MockTestDriver.roundTrips.get());
+    assertTrue(conn1.isReadOnly());
+    assertEquals("report", conn1.getSchema());
+    Connection conn2 = this.dataSource.getConnection();
+    assertFalse(conn2.isReadOnly());
+    conn1.close();
+    conn2.close();
+
+    // 归还后保持各自的状态，按状态借出时不需要访问数据库
+    MockTestDriver.roundTrips.set(0);
+    conn2 = this.dataSource.getConnection();
+    conn1 = this.dataSource.getConnection(report);
+    assertTrue(conn1.isReadOnly());
+    assertEquals("report", conn1.getSchema());
+    assertFalse(conn2.isReadOnly());
+    assertEquals("public", conn2.getSchema());
+    conn1.close();
+    conn2.close();
+    assertEquals(0, MockTestDriver.roundTrips.get());
+  }
+
+  @Test
+  public void testStateClearsPrepared() throws Exception {
+    this.dataSource.close();
+    this.dataSource = new ClearpoolDataSource();
+    this.dataSource.setDriverClassName(MockTestDriver.CLASS);
+    this.dataSource.setUrl(MockTestDriver.URL);
+    this.dataSource.setUsername("1");
+    this.dataSource.setPassword("1");
+    this.dataSource.setCorePoolSize(1);
+    this.dataSource.setMaxPoolSize(1);
+    this.dataSource.setStatementCacheSize(2);
+    Connection conn = this.dataSource.getConnection();
+    ConnectionProxy conProxy = conn.unwrap(PoolConnectionImpl.class).getConProxy();
+    Statement stmt = conn.createStatement();
+    stmt.execute("select 1");
+    stmt.close();
+    PreparedStatement ps = conn.prepareStatement("select 2");
+    MockPreparedStatement cached = ps.unwrap(MockPreparedStatement.class);
+    ps.close();
+    conn.close();
+    assertTrue(conProxy.hasStatement("select 1"));
+    assertTrue(conProxy.hasStatement("select 2"));
+    // 按状态借出时修改了catalog，之前准备的sql和statement都清空
+    ConnectionState other = new ConnectionState();
+    other.setCatalog("other");
+    conn = this.dataSource.getConnection(other);
+    assertSame(conProxy, conn.unwrap(PoolConnectionImpl.class).getConProxy());
+    assertFalse(conProxy.hasStatement("select 1"));
+    assertFalse(conProxy.hasStatement("select 2"));
+    assertTrue(cached.isClosed());
+    // 之后仍可以缓存
+    ps = conn.prepareStatement("select 2");
+    ps.close();
+    assertTrue(conProxy.hasStatement("select 2"));
+    conn.close();
+  }
+
+  @Test
+  public void testDirtyReturn() throws Exception {
+    Connection conn = this.dataSource.getConnection();
+    conn.setAutoCommit(false);
+    conn.setReadOnly(true);
+    PreparedStatement ps = conn.prepareStatement("select 1");
+    ps.execute();
+    ps.close();
+    MockTestDriver.roundTrips.set(0);
+    conn.close();
+    // rollback，恢复autoCommit和readOnly，clearWarnings
+    assertEquals(4, MockTestDriver.roundTrips.get());
+
+    // 恢复后的属性不需要再次恢复
+    conn = this.dataSource.getConnection();
+    MockTestDriver.roundTrips.set(0);
+    conn.close();
+    assertEquals(0, MockTestDriver.roundTrips.get());
+
+    // 事务已经提交，不需要rollback
+    conn = this.dataSource.getConnection();
+    conn.setAutoCommit(false);
+    ps = conn.prepareStatement("select 1");
+    ps.execute();
+    ps.close();
+    conn.commit();
+    MockTestDriver.roundTrips.set(0);
+    conn.close();
+    assertEquals(2, MockTestDriver.roundTrips.get());
+  }
+
+  private ClearpoolDataSource createDataSource(int maxPoolSize) {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setDriverClassName(MockTestDriver.CLASS);
+    dataSource.setUrl(MockTestDriver.URL);
+    dataSource.setUsername("1");
+    dataSource.setPassword("1");
+    dataSource.setCorePoolSize(1);
+    dataSource.setMaxPoolSize(maxPoolSize);
+    dataSource.init();
+    return dataSource;
+  }
+}
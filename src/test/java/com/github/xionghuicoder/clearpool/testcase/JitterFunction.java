@@ -0,0 +1,106 @@
+package com.github.xionghuicoder.clearpool.testcase;
+
+import java.sql.Connection;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.github.xionghuicoder.clearpool.MockTestDriver;
+import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.core.ConnectionPoolManager;
+import com.github.xionghuicoder.clearpool.core.hook.MaintenanceScheduler;
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+import com.github.xionghuicoder.clearpool.datasource.proxy.PoolConnectionImpl;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+import junit.framework.TestCase;
+
+public class JitterFunction extends TestCase {
+  private static final long SEED = 20161018L;
+  private static final int TIMES = 1000;
+
+  @Override
+  public void setUp() throws Exception {
+    System.setProperty(PoolLoggerFactory.LOG_UNABLE, "true");
+  }
+
+  @Test
+  public void testKeepAliveJitter() throws Exception {
+    long period = 10 * 1000L;
+    Random random = new Random(SEED);
+    Set<Long> delays = new HashSet<Long>();
+    for (int i = 0; i < TIMES; i++) {
+      long delay = MaintenanceScheduler.keepAliveDelay(period, period, random);
+      // 只会推迟，不超过keepTestPeriod的20%
+      assertTrue(delay >= period);
+      assertTrue(delay < period + period / 5);
+      delays.add(delay);
+    }
+    assertTrue(delays.size() > TIMES / 2);
+    // 相同的种子得到相同的延迟
+    Random ano = new Random(SEED);
+    random = new Random(SEED);
+    for (int i = 0; i < TIMES; i++) {
+      assertEquals(MaintenanceScheduler.keepAliveDelay(period, period, random),
+          MaintenanceScheduler.keepAliveDelay(period, period, ano));
+    }
+    // 距离下次检测很近时也至少等一个tick，jitter仍按keepTestPeriod计算
+    long delay = MaintenanceScheduler.keepAliveDelay(0, period, random);
+    assertTrue(delay >= 100 && delay < 100 + period / 5);
+    // keepTestPeriod太小时没有jitter
+    assertEquals(100, MaintenanceScheduler.keepAliveDelay(0, 0, random));
+  }
+
+  @Test
+  public void testLifetimeJitter() throws Exception {
+    long maxLifetime = 30 * 60 * 1000L;
+    Random random = new Random(SEED);
+    Set<Long> lifetimes = new HashSet<Long>();
+    for (int i = 0; i < TIMES; i++) {
+      long lifetime = ConnectionPoolManager.lifetime(maxLifetime, random);
+      // 只会提前，不超过maxLifetime的10%
+      assertTrue(lifetime <= maxLifetime);
+      assertTrue(lifetime > maxLifetime - maxLifetime / 10);
+      lifetimes.add(lifetime);
+    }
+    assertTrue(lifetimes.size() > TIMES / 2);
+    Random ano = new Random(SEED);
+    random = new Random(SEED);
+    for (int i = 0; i < TIMES; i++) {
+      assertEquals(ConnectionPoolManager.lifetime(maxLifetime, random),
+          ConnectionPoolManager.lifetime(maxLifetime, ano));
+    }
+  }
+
+  @Test
+  public void testRetireTime() throws Exception {
+    long maxLifetime = 30 * 60 * 1000L;
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setDriverClassName(MockTestDriver.CLASS);
+    dataSource.setUrl(MockTestDriver.URL);
+    dataSource.setUsername("1");
+    dataSource.setPassword("1");
+    dataSource.setCorePoolSize(1);
+    dataSource.setMaxPoolSize(10);
+    dataSource.setMaxLifetime(maxLifetime);
+    long begin = System.currentTimeMillis();
+    Connection[] conns = new Connection[10];
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+    }
+    long end = System.currentTimeMillis();
+    // 新建连接时按lifetime设置退役时间
+    for (Connection conn : conns) {
+      ConnectionProxy conProxy = conn.unwrap(PoolConnectionImpl.class).getConProxy();
+      long retireTime = conProxy.getRetireTime();
+      assertTrue(retireTime <= end + maxLifetime);
+      assertTrue(retireTime > begin + maxLifetime - maxLifetime / 10);
+    }
+    for (Connection conn : conns) {
+      conn.close();
+    }
+    dataSource.close();
+  }
+}
@@ -0,0 +1,352 @@
+package com.github.xionghuicoder.clearpool.testcase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.alibaba.druid.mock.MockConnection;
+
+import com.github.xionghuicoder.clearpool.ConnectionPoolCircuitOpenException;
+import com.github.xionghuicoder.clearpool.ConnectionPoolException;
+import com.github.xionghuicoder.clearpool.MockTestDriver;
+import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+import junit.framework.TestCase;
+
+public class MaintenanceFunction extends TestCase {
+
+  @Override
+  public void setUp() throws Exception {
+    System.setProperty(PoolLoggerFactory.LOG_UNABLE, "true");
+    MockTestDriver.physicalCon.set(0);
+  }
+
+  @Test
+  public void testEvictIdle() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource();
+    dataSource.setLimitIdleTime(200);
+    Connection[] conns = new Connection[3];
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+    }
+    for (Connection conn : conns) {
+      conn.close();
+    }
+    assertEquals(3, MockTestDriver.physicalCon.get());
+    // 空闲超过limitIdleTime的2个多余连接被回收，只剩corePoolSize个
+    Thread.sleep(1000);
+    for (int i = 0; i < conns.length; i++) {
+      conns[i] = dataSource.getConnection();
+    }
+    assertEquals(5, MockTestDriver.physicalCon.get());
+    for (Connection conn : conns) {
+      conn.close();
+    }
+    dataSource.close();
+  }
+
+  @Test
+  public void testKeepAlive() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource();
+    dataSource.setKeepTestPeriod(200);
+    dataSource.setTestQuerySql("select 1");
+    Connection conn = dataSource.getConnection();
+    conn.close();
+    assertEquals(1, MockTestDriver.physicalCon.get());
+    // 空闲连接失效后被检测出来，关闭并补充新连接
+    MockTestDriver.lastCon.close();
+    long deadline = System.currentTimeMillis() + 3000;
+    while (MockTestDriver.physicalCon.get() < 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(2, MockTestDriver.physicalCon.get());
+    conn = dataSource.getConnection();
+    assertFalse(conn.isClosed());
+    conn.close();
+    assertEquals(2, MockTestDriver.physicalCon.get());
+    dataSource.close();
+  }
+
+  @Test
+  public void testValidationWindow() throws Exception {
+    MockTestDriver.validCount.set(0);
+    ClearpoolDataSource dataSource = this.createDataSource();
+    dataSource.setTestBeforeUse(true);
+    dataSource.setValidationWindow(60 * 1000L);
+    for (int i = 0; i < 10; i++) {
+      Connection conn = dataSource.getConnection();
+      conn.close();
+    }
+    // 连接刚新建或刚正常归还，都在validationWindow内，不需要检测
+    assertEquals(0, MockTestDriver.validCount.get());
+    dataSource.close();
+
+    dataSource = this.createDataSource();
+    dataSource.setTestBeforeUse(true);
+    for (int i = 0; i < 10; i++) {
+      Connection conn = dataSource.getConnection();
+      conn.close();
+    }
+    assertEquals(10, MockTestDriver.validCount.get());
+    dataSource.close();
+  }
+
+  @Test
+  public void testOptimisticValidation() throws Exception {
+    MockTestDriver.validCount.set(0);
+    ClearpoolDataSource dataSource = this.createDataSource();
+    dataSource.setMaxPoolSize(1);
+    dataSource.setTestBeforeUse(true);
+    dataSource.setOptimisticValidation(true);
+    Connection conn = dataSource.getConnection();
+    assertEquals(0, MockTestDriver.validCount.get());
+    PreparedStatement ps = conn.prepareStatement("select ?");
+    ps.setInt(1, 1);
+    // 连接失效，第一条sql失败后换一个新连接重新执行；失效连接在后台关闭并补充新连接
+    MockConnection deadCon = MockTestDriver.lastCon;
+    deadCon.setError(new SQLException("connection reset", "08S01"));
+    ps.execute();
+    assertEquals(2, MockTestDriver.physicalCon.get());
+    assertNotSame(Thread.currentThread(), MockTestDriver.lastConnectThread);
+    assertTrue(deadCon.isClosed());
+    ps.close();
+    // 已经执行过sql，不再重试
+    ps = conn.prepareStatement("select 1");
+    MockTestDriver.lastCon.setError(new SQLException("connection reset", "08S01"));
+    try {
+      ps.execute();
+      fail();
+    } catch (SQLException e) {
+      assertEquals("08S01", e.getSQLState());
+    }
+    assertEquals(2, MockTestDriver.physicalCon.get());
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testOptimisticValidationTimeout() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource();
+    dataSource.setMaxPoolSize(1);
+    dataSource.setOptimisticValidation(true);
+    Connection conn = dataSource.getConnection(300);
+    PreparedStatement ps = conn.prepareStatement("select 1");
+    // 补充的新连接迟迟建不好，重新执行不超过借出时的maxWait
+    MockTestDriver.connectDelay = 3000;
+    MockTestDriver.lastCon.setError(new SQLException("connection reset", "08S01"));
+    long begin = System.currentTimeMillis();
+    try {
+      ps.execute();
+      fail();
+    } catch (SQLException e) {
+      assertEquals("08S01", e.getSQLState());
+    } finally {
+      MockTestDriver.connectDelay = 0;
+    }
+    assertTrue(System.currentTimeMillis() - begin < 2000);
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testReplenish() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource();
+    dataSource.setMaxPoolSize(1);
+    dataSource.setTestBeforeUse(true);
+    Connection conn = dataSource.getConnection();
+    conn.close();
+    // 借出前检测失败，借用线程排队等待后台补充的新连接，自己不新建连接
+    MockTestDriver.lastCon.setError(new SQLException("connection reset", "08S01"));
+    conn = dataSource.getConnection();
+    assertEquals(2, MockTestDriver.physicalCon.get());
+    assertNotSame(Thread.currentThread(), MockTestDriver.lastConnectThread);
+    assertFalse(conn.isClosed());
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testCircuitBreaker() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource();
+    dataSource.setCircuitBreakerThreshold(2);
+    dataSource.setCircuitBreakerBackoff(200);
+    Connection conn = dataSource.getConnection();
+    MockTestDriver.connectError = new SQLException("connection refused", "08001");
+    try {
+      MockTestDriver.connectAttempts.set(0);
+      for (int i = 0; i < 2; i++) {
+        try {
+          dataSource.getConnection();
+          fail();
+        } catch (ConnectionPoolException e) {
+          assertFalse(e instanceof ConnectionPoolCircuitOpenException);
+        }
+      }
+      // 连续失败2次后熔断，不再访问数据库
+      try {
+        dataSource.getConnection();
+        fail();
+      } catch (ConnectionPoolCircuitOpenException e) {
+        // expected
+      }
+      assertEquals(2, MockTestDriver.connectAttempts.get());
+    } finally {
+      MockTestDriver.connectError = null;
+    }
+    // 退避时间过后探测成功，恢复新建连接
+    Thread.sleep(300);
+    Connection conn2 = dataSource.getConnection();
+    assertEquals(3, MockTestDriver.connectAttempts.get());
+    conn2.close();
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testCircuitBreakerInterrupted() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource();
+    dataSource.setCircuitBreakerThreshold(1);
+    dataSource.setCircuitBreakerBackoff(100);
+    // 每次新建都要等待约500ms的令牌
+    dataSource.setCreateRate(2);
+    dataSource.setCreateBurst(1);
+    Connection conn = dataSource.getConnection();
+    MockTestDriver.connectError = new SQLException("connection refused", "08001");
+    try {
+      dataSource.getConnection();
+      fail();
+    } catch (ConnectionPoolException e) {
+      assertFalse(e instanceof ConnectionPoolCircuitOpenException);
+    } finally {
+      MockTestDriver.connectError = null;
+    }
+    // 退避时间过后的探测在等待令牌时被中断
+    Thread.sleep(150);
+    final ClearpoolDataSource ds = dataSource;
+    final AtomicReference<Exception> error = new AtomicReference<Exception>();
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          ds.getConnection();
+        } catch (Exception e) {
+          error.set(e);
+        }
+      }
+    };
+    thread.start();
+    Thread.sleep(50);
+    thread.interrupt();
+    thread.join();
+    assertTrue(error.get() instanceof ConnectionPoolException);
+    assertFalse(error.get() instanceof ConnectionPoolCircuitOpenException);
+    // 没有放行过探测，熔断器仍可以探测，不会一直拒绝
+    Thread.sleep(300);
+    Connection conn2 = dataSource.getConnection();
+    assertFalse(conn2.isClosed());
+    conn2.close();
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testMaxLifetime() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource();
+    dataSource.setMaxLifetime(300);
+    Connection conn = dataSource.getConnection();
+    MockConnection first = MockTestDriver.lastCon;
+    // 使用中的连接到期后不退役
+    Thread.sleep(500);
+    assertEquals(1, MockTestDriver.physicalCon.get());
+    assertFalse(first.isClosed());
+    // 归还时退役，先新建新连接再关闭旧连接
+    conn.close();
+    this.waitClosed(first);
+    assertEquals(2, MockTestDriver.physicalCon.get());
+    // 空闲的连接到期后退役
+    this.waitPhysicalCon(3);
+    conn = dataSource.getConnection();
+    assertFalse(conn.isClosed());
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testRetireRetry() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource();
+    dataSource.setAcquireRetryTimes(0);
+    dataSource.setMaxLifetime(300);
+    Connection conn = dataSource.getConnection();
+    MockConnection first = MockTestDriver.lastCon;
+    conn.close();
+    // 新建替代连接失败，旧连接继续使用
+    MockTestDriver.connectAttempts.set(0);
+    MockTestDriver.connectError = new SQLException("connect refused", "08001");
+    try {
+      long deadline = System.currentTimeMillis() + 3000;
+      while (MockTestDriver.connectAttempts.get() == 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertTrue(MockTestDriver.connectAttempts.get() > 0);
+    } finally {
+      MockTestDriver.connectError = null;
+    }
+    assertFalse(first.isClosed());
+    // 退避后再次退役
+    this.waitClosed(first);
+    assertEquals(2, MockTestDriver.physicalCon.get());
+    conn = dataSource.getConnection();
+    assertFalse(conn.isClosed());
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testMaxUses() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource();
+    dataSource.setMaxUses(3);
+    MockConnection first = null;
+    for (int i = 0; i < 3; i++) {
+      Connection conn = dataSource.getConnection();
+      first = MockTestDriver.lastCon;
+      conn.close();
+    }
+    this.waitClosed(first);
+    Connection conn = dataSource.getConnection();
+    assertFalse(conn.isClosed());
+    conn.close();
+    assertEquals(2, MockTestDriver.physicalCon.get());
+    dataSource.close();
+  }
+
+  private void waitClosed(MockConnection con) throws Exception {
+    long deadline = System.currentTimeMillis() + 3000;
+    while (!con.isClosed() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(con.isClosed());
+  }
+
+  private void waitPhysicalCon(long expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 3000;
+    while (MockTestDriver.physicalCon.get() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, MockTestDriver.physicalCon.get());
+  }
+
+  private ClearpoolDataSource createDataSource() {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setDriverClassName(MockTestDriver.CLASS);
+    dataSource.setUrl(MockTestDriver.URL);
+    dataSource.setUsername("1");
+    dataSource.setPassword("1");
+    dataSource.setCorePoolSize(1);
+    dataSource.setMaxPoolSize(5);
+    return dataSource;
+  }
+}
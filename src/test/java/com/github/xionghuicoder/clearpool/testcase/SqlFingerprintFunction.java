@@ -0,0 +1,162 @@
+package com.github.xionghuicoder.clearpool.testcase;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.xionghuicoder.clearpool.MockTestDriver;
+import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+import com.github.xionghuicoder.clearpool.datasource.proxy.PoolConnectionImpl;
+import com.github.xionghuicoder.clearpool.datasource.proxy.SqlFingerprintSet;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+import junit.framework.TestCase;
+
+public class SqlFingerprintFunction extends TestCase {
+  // 与SqlFingerprintSet一致
+  private static final int CAPACITY = 512;
+  private static final int MAX_SIZE = CAPACITY * 3 / 4;
+
+  @Override
+  public void setUp() throws Exception {
+    System.setProperty(PoolLoggerFactory.LOG_UNABLE, "true");
+  }
+
+  @Test
+  public void testFingerprint() throws Exception {
+    // 空串是FNV-1a的offset basis
+    assertEquals(0xcbf29ce484222325L, SqlFingerprintSet.fingerprint(""));
+    String sql = "select * from t where a = ?";
+    assertEquals(SqlFingerprintSet.fingerprint(sql),
+        SqlFingerprintSet.fingerprint(new String(sql.toCharArray())));
+    assertTrue(SqlFingerprintSet.fingerprint(sql) != SqlFingerprintSet
+        .fingerprint("select * from t where b = ?"));
+    // char的高低字节都参与计算
+    assertTrue(SqlFingerprintSet.fingerprint("\u0100") != SqlFingerprintSet.fingerprint("\u0001"));
+    assertTrue(SqlFingerprintSet.fingerprint("ab") != SqlFingerprintSet.fingerprint("ba"));
+  }
+
+  @Test
+  public void testCollision() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource(1);
+    Connection conn = dataSource.getConnection();
+    ConnectionProxy conProxy = conn.unwrap(PoolConnectionImpl.class).getConProxy();
+    List<String> collided = this.findSql(CAPACITY - 1, 4);
+    assertFalse(conProxy.hasStatement(collided.get(0)));
+    // 前三条sql都落在最后一个槽，探测回绕到槽0和1
+    for (int i = 0; i < 3; i++) {
+      conProxy.dealSqlCount(collided.get(i));
+    }
+    for (int i = 0; i < 3; i++) {
+      assertTrue(conProxy.hasStatement(collided.get(i)));
+    }
+    // 同一个槽但不在集合中，探测到空槽为止
+    assertFalse(conProxy.hasStatement(collided.get(3)));
+    // 槽0已被回绕的指纹占用，顺延到槽2
+    List<String> first = this.findSql(0, 2);
+    conProxy.dealSqlCount(first.get(0));
+    assertTrue(conProxy.hasStatement(first.get(0)));
+    assertFalse(conProxy.hasStatement(first.get(1)));
+    for (int i = 0; i < 3; i++) {
+      assertTrue(conProxy.hasStatement(collided.get(i)));
+    }
+    conn.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testMaxSize() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource(2);
+    Connection conn = dataSource.getConnection();
+    ConnectionProxy conProxy = conn.unwrap(PoolConnectionImpl.class).getConProxy();
+    Connection ano = dataSource.getConnection();
+    ConnectionProxy anoConProxy = ano.unwrap(PoolConnectionImpl.class).getConProxy();
+    for (int i = 1; i <= MAX_SIZE; i++) {
+      conProxy.dealSqlCount("select " + i);
+      anoConProxy.dealSqlCount("select " + i);
+    }
+    assertEquals(0, conProxy.compareTo(anoConProxy));
+    // 存满后不再添加，也不报错，sqlCount不再增长
+    String extra = "select " + (MAX_SIZE + 1);
+    conProxy.dealSqlCount(extra);
+    assertFalse(conProxy.hasStatement(extra));
+    for (int i = 1; i <= MAX_SIZE; i++) {
+      assertTrue(conProxy.hasStatement("select " + i));
+      // 重复的sql不计数
+      conProxy.dealSqlCount("select " + i);
+    }
+    assertEquals(0, conProxy.compareTo(anoConProxy));
+    // 恢复catalog时清空，之后可以重新记录
+    conn.setCatalog("other");
+    conn.close();
+    assertFalse(conProxy.hasStatement("select 1"));
+    assertTrue(conProxy.compareTo(anoConProxy) < 0);
+    conn = dataSource.getConnection();
+    assertSame(conProxy, conn.unwrap(PoolConnectionImpl.class).getConProxy());
+    conProxy.dealSqlCount(extra);
+    assertTrue(conProxy.hasStatement(extra));
+    conn.close();
+    ano.close();
+    dataSource.close();
+  }
+
+  @Test
+  public void testClearOnReset() throws Exception {
+    ClearpoolDataSource dataSource = this.createDataSource(1);
+    Connection conn = dataSource.getConnection();
+    ConnectionProxy conProxy = conn.unwrap(PoolConnectionImpl.class).getConProxy();
+    Statement stmt = conn.createStatement();
+    stmt.execute("select 1");
+    stmt.close();
+    conn.close();
+    // 没有修改catalog和schema，归还后仍保留执行过的sql
+    assertTrue(conProxy.hasStatement("select 1"));
+    conn = dataSource.getConnection();
+    assertSame(conProxy, conn.unwrap(PoolConnectionImpl.class).getConProxy());
+    conn.setCatalog("other");
+    stmt = conn.createStatement();
+    stmt.execute("select 2");
+    stmt.close();
+    assertTrue(conProxy.hasStatement("select 2"));
+    // 归还时恢复了catalog，之前执行的sql都清空
+    conn.close();
+    assertFalse(conProxy.hasStatement("select 1"));
+    assertFalse(conProxy.hasStatement("select 2"));
+    dataSource.close();
+  }
+
+  private ClearpoolDataSource createDataSource(int maxPoolSize) {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setDriverClassName(MockTestDriver.CLASS);
+    dataSource.setUrl(MockTestDriver.URL);
+    dataSource.setUsername("1");
+    dataSource.setPassword("1");
+    dataSource.setCorePoolSize(1);
+    dataSource.setMaxPoolSize(maxPoolSize);
+    return dataSource;
+  }
+
+  /**
+   * 找出<tt>count</tt>条指纹落在槽<tt>slot</tt>的sql
+   */
+  private List<String> findSql(int slot, int count) {
+    List<String> sqls = new ArrayList<String>();
+    for (int i = 0; sqls.size() < count; i++) {
+      String sql = "select " + i;
+      if (index(SqlFingerprintSet.fingerprint(sql)) == slot) {
+        sqls.add(sql);
+      }
+    }
+    return sqls;
+  }
+
+  // 与SqlFingerprintSet一致
+  private static int index(long fingerprint) {
+    int hash = (int) (fingerprint ^ (fingerprint >>> 32));
+    return (hash ^ (hash >>> 16)) & (CAPACITY - 1);
+  }
+}
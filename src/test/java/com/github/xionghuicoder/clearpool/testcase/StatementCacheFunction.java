@@ -0,0 +1,196 @@
+package com.github.xionghuicoder.clearpool.testcase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+import com.alibaba.druid.mock.MockPreparedStatement;
+import com.github.xionghuicoder.clearpool.MockTestDriver;
+import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+import com.github.xionghuicoder.clearpool.datasource.proxy.PoolConnectionImpl;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+import junit.framework.TestCase;
+
+public class StatementCacheFunction extends TestCase {
+  private ClearpoolDataSource dataSource;
+
+  @Override
+  public void setUp() throws Exception {
+    System.setProperty(PoolLoggerFactory.LOG_UNABLE, "true");
+    this.dataSource = new ClearpoolDataSource();
+    this.dataSource.setDriverClassName(MockTestDriver.CLASS);
+    this.dataSource.setUrl(MockTestDriver.URL);
+    this.dataSource.setUsername("1");
+    this.dataSource.setPassword("1");
+    this.dataSource.setCorePoolSize(1);
+    this.dataSource.setMaxPoolSize(1);
+    this.dataSource.setStatementCacheSize(2);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    this.dataSource.close();
+  }
+
+  @Test
+  public void testStatementCache() throws Exception {
+    this.dataSource.init();
+    Connection conn = this.dataSource.getConnection();
+    MockPreparedStatement a = this.prepareAndClose(conn, "select a");
+    // 关闭后放回缓存，再次prepare时复用
+    assertSame(a, this.prepareAndClose(conn, "select a"));
+    assertFalse(a.isClosed());
+    // 结果集类型不同时不复用
+    PreparedStatement ps = conn.prepareStatement("select a", ResultSet.TYPE_SCROLL_INSENSITIVE,
+        ResultSet.CONCUR_READ_ONLY);
+    assertNotSame(a, ps.unwrap(MockPreparedStatement.class));
+    ps.close();
+    // 同一条sql同时打开两个statement
+    PreparedStatement ps1 = conn.prepareStatement("select a");
+    PreparedStatement ps2 = conn.prepareStatement("select a");
+    assertNotSame(ps1.unwrap(MockPreparedStatement.class),
+        ps2.unwrap(MockPreparedStatement.class));
+    ps1.close();
+    ps2.close();
+    conn.close();
+
+    // 归还连接后缓存仍然有效，超过statementCacheSize时淘汰最久没有使用的
+    conn = this.dataSource.getConnection();
+    assertSame(a, this.prepareAndClose(conn, "select a"));
+    MockPreparedStatement b = this.prepareAndClose(conn, "select b");
+    MockPreparedStatement c = this.prepareAndClose(conn, "select c");
+    assertTrue(a.isClosed());
+    assertFalse(b.isClosed());
+    assertFalse(c.isClosed());
+
+    // 修改过statement级别设置的不放回缓存
+    ps = conn.prepareStatement("select d");
+    ps.setMaxRows(1);
+    MockPreparedStatement d = ps.unwrap(MockPreparedStatement.class);
+    ps.close();
+    assertTrue(d.isClosed());
+    conn.close();
+  }
+
+  @Test
+  public void testColumnIndexes() throws Exception {
+    this.dataSource.init();
+    Connection conn = this.dataSource.getConnection();
+    int[] columnIndexes = {1};
+    PreparedStatement ps = conn.prepareStatement("select a", columnIndexes);
+    MockPreparedStatement a = ps.unwrap(MockPreparedStatement.class);
+    ps.close();
+    // 放回缓存后修改调用者的数组，不影响缓存的key
+    columnIndexes[0] = 2;
+    ps = conn.prepareStatement("select a", columnIndexes);
+    assertNotSame(a, ps.unwrap(MockPreparedStatement.class));
+    ps.close();
+    ps = conn.prepareStatement("select a", new int[] {1});
+    assertSame(a, ps.unwrap(MockPreparedStatement.class));
+    ps.close();
+    conn.close();
+  }
+
+  @Test
+  public void testHasStatement() throws Exception {
+    this.dataSource.init();
+    Connection conn = this.dataSource.getConnection();
+    ConnectionProxy conProxy = conn.unwrap(PoolConnectionImpl.class).getConProxy();
+    // 只prepare不执行，只能从statement缓存中找到
+    PreparedStatement ps1 = conn.prepareStatement("select a");
+    PreparedStatement ps2 = conn.prepareStatement("select a", ResultSet.TYPE_SCROLL_INSENSITIVE,
+        ResultSet.CONCUR_READ_ONLY);
+    assertFalse(conProxy.hasStatement("select a"));
+    ps1.close();
+    ps2.close();
+    assertTrue(conProxy.hasStatement("select a"));
+    // 同一条sql缓存了两个statement，取出一个后仍然有
+    PreparedStatement ps = conn.prepareStatement("select a");
+    assertTrue(conProxy.hasStatement("select a"));
+    ps.close();
+    // 两个都被淘汰后才没有
+    conn.prepareStatement("select b").close();
+    assertTrue(conProxy.hasStatement("select a"));
+    conn.prepareStatement("select c").close();
+    assertFalse(conProxy.hasStatement("select a"));
+    assertTrue(conProxy.hasStatement("select b"));
+    assertTrue(conProxy.hasStatement("select c"));
+    conn.close();
+  }
+
+  @Test
+  public void testStatementCacheMemory() throws Exception {
+    // 只够缓存一个statement
+    this.dataSource.setStatementCacheMemory(1500);
+    this.dataSource.init();
+    Connection conn = this.dataSource.getConnection();
+    MockPreparedStatement a = this.prepareAndClose(conn, "select a");
+    assertFalse(a.isClosed());
+    MockPreparedStatement b = this.prepareAndClose(conn, "select b");
+    assertTrue(a.isClosed());
+    assertSame(b, this.prepareAndClose(conn, "select b"));
+    conn.close();
+  }
+
+  @Test
+  public void testClosedStatement() throws Exception {
+    this.dataSource.init();
+    Connection conn = this.dataSource.getConnection();
+    PreparedStatement ps = conn.prepareStatement("select a");
+    ps.setInt(1, 1);
+    ps.execute();
+    ResultSet resultSet = ps.getResultSet();
+    MockPreparedStatement a = ps.unwrap(MockPreparedStatement.class);
+    ps.close();
+    // 放回缓存前关闭结果集
+    assertFalse(a.isClosed());
+    assertTrue(resultSet.isClosed());
+    assertTrue(ps.isClosed());
+    // 驱动的statement已交给其它借用者，关闭后不能再通过原来的对象访问
+    PreparedStatement other = conn.prepareStatement("select a");
+    assertSame(a, other.unwrap(MockPreparedStatement.class));
+    try {
+      ps.setInt(1, 2);
+      fail();
+    } catch (SQLException e) {
+      assertEquals("Statement is closed", e.getMessage());
+    }
+    try {
+      ps.execute();
+      fail();
+    } catch (SQLException e) {
+      assertEquals("Statement is closed", e.getMessage());
+    }
+    try {
+      ps.getResultSet();
+      fail();
+    } catch (SQLException e) {
+      assertEquals("Statement is closed", e.getMessage());
+    }
+    try {
+      ps.unwrap(MockPreparedStatement.class);
+      fail();
+    } catch (SQLException e) {
+      assertEquals("Statement is closed", e.getMessage());
+    }
+    // 重复关闭不影响其它借用者
+    ps.close();
+    assertFalse(a.isClosed());
+    other.close();
+    conn.close();
+  }
+
+  private MockPreparedStatement prepareAndClose(Connection conn, String sql) throws Exception {
+    PreparedStatement ps = conn.prepareStatement(sql);
+    ps.setInt(1, 1);
+    ps.execute();
+    MockPreparedStatement statement = ps.unwrap(MockPreparedStatement.class);
+    ps.close();
+    return statement;
+  }
+}
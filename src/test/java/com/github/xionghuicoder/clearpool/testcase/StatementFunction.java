@@ -0,0 +1,296 @@
+package com.github.xionghuicoder.clearpool.testcase;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.PooledConnection;
+import javax.sql.StatementEvent;
+import javax.sql.StatementEventListener;
+
+import org.junit.Test;
+
+import com.alibaba.druid.mock.MockCallableStatement;
+import com.alibaba.druid.mock.MockPreparedStatement;
+import com.alibaba.druid.mock.MockStatement;
+import com.github.xionghuicoder.clearpool.MockTestDriver;
+import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.datasource.proxy.ConnectionProxy;
+import com.github.xionghuicoder.clearpool.datasource.proxy.PoolConnectionImpl;
+import com.github.xionghuicoder.clearpool.datasource.proxy.StatementImpl;
+import com.github.xionghuicoder.clearpool.logging.PoolLogger;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+import com.github.xionghuicoder.clearpool.logging.impl.NullLogger;
+
+import junit.framework.TestCase;
+
+public class StatementFunction extends TestCase {
+  private ClearpoolDataSource dataSource;
+
+  @Override
+  public void setUp() throws Exception {
+    System.setProperty(PoolLoggerFactory.LOG_UNABLE, "true");
+    MockTestDriver.physicalCon.set(0);
+    this.dataSource = new ClearpoolDataSource();
+    this.dataSource.setDriverClassName(MockTestDriver.CLASS);
+    this.dataSource.setUrl(MockTestDriver.URL);
+    this.dataSource.setUsername("1");
+    this.dataSource.setPassword("1");
+    this.dataSource.setCorePoolSize(1);
+    this.dataSource.setMaxPoolSize(1);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    this.dataSource.close();
+  }
+
+  @Test
+  public void testSqlCount() throws Exception {
+    Connection conn = this.dataSource.getConnection();
+    ConnectionProxy conProxy = conn.unwrap(PoolConnectionImpl.class).getConProxy();
+    Statement stmt = conn.createStatement();
+    stmt.executeQuery("select 1");
+    stmt.executeUpdate("update t set a = 1");
+    assertTrue(conProxy.hasStatement("select 1"));
+    assertTrue(conProxy.hasStatement("update t set a = 1"));
+    // batch中的sql在executeBatch成功后才统计
+    stmt.addBatch("insert into t values (1)");
+    stmt.addBatch("insert into t values (2)");
+    assertFalse(conProxy.hasStatement("insert into t values (1)"));
+    stmt.executeBatch();
+    assertTrue(conProxy.hasStatement("insert into t values (1)"));
+    assertTrue(conProxy.hasStatement("insert into t values (2)"));
+    stmt.close();
+    PreparedStatement ps = conn.prepareStatement("select ?");
+    assertFalse(conProxy.hasStatement("select ?"));
+    ps.setInt(1, 1);
+    ps.execute();
+    assertTrue(conProxy.hasStatement("select ?"));
+    ps.close();
+    conn.close();
+  }
+
+  @Test
+  public void testShowSql() throws Exception {
+    this.dataSource.setShowSql(true);
+    RecordLogger logger = new RecordLogger();
+    PoolLogger origin = swapLogger(logger);
+    try {
+      Connection conn = this.dataSource.getConnection();
+      PreparedStatement ps = conn.prepareStatement("select ? from t where b = ?");
+      ps.setInt(1, 5);
+      ps.setString(2, "it's");
+      ps.execute();
+      assertEquals(1, logger.infoList.size());
+      assertTrue(logger.infoList.get(0).startsWith("SHOWSQL("));
+      assertTrue(logger.infoList.get(0).endsWith("ms):\nselect 5 from t where b = 'it''s'"));
+      ps.close();
+      // batch中的每条sql占一行
+      Statement stmt = conn.createStatement();
+      stmt.addBatch("insert into t values (1)");
+      stmt.addBatch("insert into t values (2)");
+      stmt.executeBatch();
+      assertEquals(2, logger.infoList.size());
+      assertTrue(logger.infoList.get(1)
+          .endsWith("ms):\ninsert into t values (1)\ninsert into t values (2)"));
+      stmt.close();
+      // 执行失败的sql打印在error中
+      ps = conn.prepareStatement("select 1");
+      MockTestDriver.lastCon.setError(new SQLException("syntax error", "42000"));
+      try {
+        ps.execute();
+        fail();
+      } catch (SQLException e) {
+        assertEquals("42000", e.getSQLState());
+      }
+      MockTestDriver.lastCon.setError(null);
+      assertEquals(1, logger.errorList.size());
+      assertTrue(logger.errorList.get(0).endsWith("ms):\nselect 1"));
+      ps.close();
+      conn.close();
+    } finally {
+      swapLogger(origin);
+    }
+  }
+
+  @Test
+  public void testStatementEvent() throws Exception {
+    Connection conn = this.dataSource.getConnection();
+    RecordListener listener = new RecordListener();
+    PooledConnection pooledConnection = conn.unwrap(PooledConnection.class);
+    pooledConnection.addStatementEventListener(listener);
+    pooledConnection.addConnectionEventListener(listener);
+    PreparedStatement ps = conn.prepareStatement("select 1");
+    MockTestDriver.lastCon.setError(new SQLException("syntax error", "42000"));
+    SQLException error = null;
+    try {
+      ps.execute();
+      fail();
+    } catch (SQLException e) {
+      error = e;
+    }
+    MockTestDriver.lastCon.setError(null);
+    assertEquals(1, listener.errorList.size());
+    assertSame(ps, listener.errorList.get(0).getStatement());
+    assertSame(error, listener.errorList.get(0).getSQLException());
+    // 不是连接失效的异常不通知连接的监听器
+    assertEquals(0, listener.connectionErrorList.size());
+    assertEquals(0, listener.closedList.size());
+    ps.close();
+    assertEquals(1, listener.closedList.size());
+    assertSame(ps, listener.closedList.get(0).getStatement());
+    // 重复关闭不再通知
+    ps.close();
+    assertEquals(1, listener.closedList.size());
+    conn.close();
+    assertEquals(1, MockTestDriver.physicalCon.get());
+  }
+
+  @Test
+  public void testConnectionError() throws Exception {
+    Connection conn = this.dataSource.getConnection();
+    RecordListener listener = new RecordListener();
+    conn.unwrap(PooledConnection.class).addConnectionEventListener(listener);
+    Connection physicalConn = MockTestDriver.lastCon;
+    PreparedStatement ps = conn.prepareStatement("select 1");
+    MockTestDriver.lastCon.setError(new SQLException("connection reset", "08S01"));
+    try {
+      ps.execute();
+      fail();
+    } catch (SQLException e) {
+      assertEquals("08S01", e.getSQLState());
+    }
+    assertEquals(1, listener.connectionErrorList.size());
+    assertEquals("08S01", listener.connectionErrorList.get(0).getSQLException().getSQLState());
+    ps.close();
+    conn.close();
+    // 失效的连接归还时被关闭，借用线程等待补充的新连接
+    conn = this.dataSource.getConnection();
+    assertEquals(2, MockTestDriver.physicalCon.get());
+    assertTrue(physicalConn.isClosed());
+    Statement stmt = conn.createStatement();
+    assertNotSame(physicalConn, stmt.getConnection());
+    stmt.close();
+    conn.close();
+  }
+
+  @Test
+  public void testUnwrap() throws Exception {
+    Connection conn = this.dataSource.getConnection();
+    Statement stmt = conn.createStatement();
+    assertTrue(stmt.isWrapperFor(StatementImpl.class));
+    assertTrue(stmt.isWrapperFor(MockStatement.class));
+    assertFalse(stmt.isWrapperFor(CallableStatement.class));
+    assertSame(stmt, stmt.unwrap(Statement.class));
+    assertNotSame(stmt, stmt.unwrap(MockStatement.class));
+    stmt.close();
+    PreparedStatement ps = conn.prepareStatement("select 1");
+    assertTrue(ps.isWrapperFor(PreparedStatement.class));
+    assertTrue(ps.isWrapperFor(MockPreparedStatement.class));
+    assertSame(ps, ps.unwrap(PreparedStatement.class));
+    assertTrue(ps.unwrap(MockPreparedStatement.class) instanceof MockPreparedStatement);
+    ps.close();
+    conn.close();
+  }
+
+  @Test
+  public void testGetConnection() throws Exception {
+    Connection conn = this.dataSource.getConnection();
+    Connection physicalConn = MockTestDriver.lastCon;
+    Statement stmt = conn.createStatement();
+    PreparedStatement ps = conn.prepareStatement("select 1");
+    CallableStatement cs = conn.prepareCall("{call p()}");
+    // 返回驱动的连接，同一个逻辑连接上的statement返回同一个物理连接
+    assertSame(physicalConn, stmt.getConnection());
+    assertSame(physicalConn, ps.getConnection());
+    assertSame(physicalConn, cs.getConnection());
+    stmt.close();
+    ps.close();
+    cs.close();
+    conn.close();
+  }
+
+  @Test
+  public void testCallableOutParameter() throws Exception {
+    Connection conn = this.dataSource.getConnection();
+    CallableStatement cs = conn.prepareCall("{call p(?, ?)}");
+    cs.registerOutParameter(1, Types.INTEGER);
+    cs.registerOutParameter(2, Types.VARCHAR);
+    MockCallableStatement mock = cs.unwrap(MockCallableStatement.class);
+    assertEquals(2, mock.getOutParameters().size());
+    cs.execute();
+    mock.getOutParameters().set(0, 42);
+    assertEquals(42, cs.getInt(1));
+    assertFalse(cs.wasNull());
+    assertNull(cs.getString(2));
+    assertTrue(cs.wasNull());
+    assertEquals(42, cs.getObject(1));
+    cs.close();
+    conn.close();
+  }
+
+  /**
+   * 替换{@link StatementImpl StatementImpl}的log，返回原来的log
+   */
+  private static PoolLogger swapLogger(PoolLogger logger) throws Exception {
+    Field field = StatementImpl.class.getDeclaredField("LOGGER");
+    field.setAccessible(true);
+    Field modifiers = Field.class.getDeclaredField("modifiers");
+    modifiers.setAccessible(true);
+    modifiers.setInt(field, field.getModifiers() & ~Modifier.FINAL);
+    PoolLogger origin = (PoolLogger) field.get(null);
+    field.set(null, logger);
+    return origin;
+  }
+
+  private static class RecordLogger extends NullLogger {
+    private static final long serialVersionUID = 1L;
+
+    final List<String> infoList = new ArrayList<String>();
+    final List<String> errorList = new ArrayList<String>();
+
+    @Override
+    public void info(String msg) {
+      this.infoList.add(msg);
+    }
+
+    @Override
+    public void error(String msg) {
+      this.errorList.add(msg);
+    }
+  }
+
+  private static class RecordListener implements StatementEventListener, ConnectionEventListener {
+    final List<StatementEvent> closedList = new ArrayList<StatementEvent>();
+    final List<StatementEvent> errorList = new ArrayList<StatementEvent>();
+    final List<ConnectionEvent> connectionErrorList = new ArrayList<ConnectionEvent>();
+
+    @Override
+    public void statementClosed(StatementEvent event) {
+      this.closedList.add(event);
+    }
+
+    @Override
+    public void statementErrorOccurred(StatementEvent event) {
+      this.errorList.add(event);
+    }
+
+    @Override
+    public void connectionClosed(ConnectionEvent event) {}
+
+    @Override
+    public void connectionErrorOccurred(ConnectionEvent event) {
+      this.connectionErrorList.add(event);
+    }
+  }
+}
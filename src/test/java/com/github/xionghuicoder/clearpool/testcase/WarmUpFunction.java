@@ -0,0 +1,141 @@
+package com.github.xionghuicoder.clearpool.testcase;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.xionghuicoder.clearpool.MockTestDriver;
+import com.github.xionghuicoder.clearpool.core.ClearpoolDataSource;
+import com.github.xionghuicoder.clearpool.core.ConfigurationVO;
+import com.github.xionghuicoder.clearpool.logging.PoolLoggerFactory;
+
+import junit.framework.TestCase;
+
+public class WarmUpFunction extends TestCase {
+  private int corePoolSize = 20;
+
+  @Override
+  public void setUp() throws Exception {
+    System.setProperty(PoolLoggerFactory.LOG_UNABLE, "true");
+    MockTestDriver.physicalCon.set(0);
+  }
+
+  @Test
+  public void testParallelWarmUp() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    List<ConfigurationVO> voList = new ArrayList<ConfigurationVO>();
+    for (int i = 0; i < 3; i++) {
+      ConfigurationVO vo = this.createVO("warmup" + i);
+      vo.setWarmUpThreads(4);
+      voList.add(vo);
+    }
+    dataSource.initVOList(voList);
+    assertEquals(this.corePoolSize * 3, MockTestDriver.physicalCon.get());
+    for (int i = 0; i < 3; i++) {
+      Connection conn = dataSource.getConnection("warmup" + i);
+      assertNotNull(conn);
+      conn.close();
+    }
+    assertEquals(this.corePoolSize * 3, MockTestDriver.physicalCon.get());
+    dataSource.close();
+  }
+
+  @Test
+  public void testAsyncStartup() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    List<ConfigurationVO> voList = new ArrayList<ConfigurationVO>();
+    ConfigurationVO vo = this.createVO("async");
+    vo.setStartupMode(ConfigurationVO.STARTUP_MODE_ASYNC);
+    voList.add(vo);
+    dataSource.initVOList(voList);
+    Connection conn = dataSource.getConnection();
+    assertNotNull(conn);
+    conn.close();
+    long deadline = System.currentTimeMillis() + 1000;
+    while (MockTestDriver.physicalCon.get() < this.corePoolSize
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(50);
+    // 借用线程新建的连接也算在corePoolSize里
+    long physicalCon = MockTestDriver.physicalCon.get();
+    assertTrue(physicalCon >= this.corePoolSize && physicalCon <= this.corePoolSize + 1);
+    dataSource.close();
+  }
+
+  @Test
+  public void testCreateRateLimit() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    // 3个连接池共享每秒100个连接的限速，瞬间最多新建20个
+    dataSource.setSharedCreateRate(100);
+    dataSource.setSharedCreateBurst(20);
+    List<ConfigurationVO> voList = new ArrayList<ConfigurationVO>();
+    for (int i = 0; i < 3; i++) {
+      ConfigurationVO vo = this.createVO("limit" + i);
+      vo.setWarmUpThreads(4);
+      voList.add(vo);
+    }
+    long begin = System.currentTimeMillis();
+    dataSource.initVOList(voList);
+    long cost = System.currentTimeMillis() - begin;
+    assertEquals(this.corePoolSize * 3, MockTestDriver.physicalCon.get());
+    assertTrue("cost " + cost + "ms", cost >= 350);
+    dataSource.close();
+
+    // 单个连接池每秒100个连接，瞬间最多新建10个
+    MockTestDriver.physicalCon.set(0);
+    dataSource = new ClearpoolDataSource();
+    voList = new ArrayList<ConfigurationVO>();
+    ConfigurationVO vo = this.createVO("limit");
+    vo.setCreateRate(100);
+    vo.setCreateBurst(10);
+    voList.add(vo);
+    begin = System.currentTimeMillis();
+    dataSource.initVOList(voList);
+    cost = System.currentTimeMillis() - begin;
+    assertEquals(this.corePoolSize, MockTestDriver.physicalCon.get());
+    assertTrue("cost " + cost + "ms", cost >= 80);
+    dataSource.close();
+  }
+
+  @Test
+  public void testCreateRateMaxWait() throws Exception {
+    ClearpoolDataSource dataSource = new ClearpoolDataSource();
+    dataSource.setDriverClassName(MockTestDriver.CLASS);
+    dataSource.setUrl(MockTestDriver.URL);
+    dataSource.setUsername("1");
+    dataSource.setPassword("1");
+    dataSource.setCorePoolSize(1);
+    dataSource.setMaxPoolSize(5);
+    // 每秒新建1个连接，初始化用掉了唯一的令牌
+    dataSource.setCreateRate(1);
+    dataSource.setCreateBurst(1);
+    Connection conn = dataSource.getConnection();
+    // 下一个令牌在1s后，限时借用不会等到maxWait之后
+    long begin = System.currentTimeMillis();
+    assertNull(dataSource.getConnection(100));
+    long cost = System.currentTimeMillis() - begin;
+    assertTrue("cost " + cost + "ms", cost < 500);
+    assertEquals(1, MockTestDriver.physicalCon.get());
+    // 不限时借用等待令牌后新建
+    Connection conn2 = dataSource.getConnection();
+    assertEquals(2, MockTestDriver.physicalCon.get());
+    conn2.close();
+    conn.close();
+    dataSource.close();
+  }
+
+  private ConfigurationVO createVO(String name) {
+    ConfigurationVO vo = new ConfigurationVO();
+    vo.setName(name);
+    vo.setDriverClassName(MockTestDriver.CLASS);
+    vo.setUrl(MockTestDriver.URL);
+    vo.setUsername("1");
+    vo.setPassword("1");
+    vo.setCorePoolSize(this.corePoolSize);
+    vo.setMaxPoolSize(this.corePoolSize * 2);
+    return vo;
+  }
+}